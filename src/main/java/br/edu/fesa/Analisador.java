@@ -4,6 +4,7 @@ import br.edu.fesa.lexico.Lexer;
 import br.edu.fesa.lexico.Token;
 import br.edu.fesa.semantico.ResultadoAnalise;
 import br.edu.fesa.semantico.Semantico;
+import br.edu.fesa.sintatico.ErroSintatico;
 import br.edu.fesa.sintatico.Parser;
 import br.edu.fesa.sintatico.RetornoParser;
 import java.util.List;
@@ -22,18 +23,20 @@ public class Analisador {
         System.out.println("\n");
         
         Parser parser = new Parser(tokens);
-        RetornoParser result = parser.parse();
+        RetornoParser result = parser.parseProgram();
 
         if (result.isSuccess()) {
             System.out.println(result.getArvoreSintatica());
             
-            Semantico analisador = new Semantico(result.getArvoreSintatica(), tokens);
+            Semantico analisador = new Semantico(result.getArena(), tokens, lexer.getNamePool());
             ResultadoAnalise resultado = analisador.analisar();
             System.out.println(resultado.toString());
             
         }
         else{
-            System.out.println(result.getErrorMessage());
+            for (ErroSintatico erro : result.getErros()) {
+                System.out.println(erro);
+            }
         }
     }
 }
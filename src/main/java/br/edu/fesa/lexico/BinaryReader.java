@@ -0,0 +1,142 @@
+package br.edu.fesa.lexico;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Lê o que BinaryWriter gravou, direto de um ByteBuffer (em geral um arquivo
+// mapeado em memória). Nada é decodificado antecipadamente: a tabela de textos
+// guarda só onde cada texto começa e cria a String na primeira consulta
+public final class BinaryReader {
+    private final ByteBuffer bytes;
+    private int posicao;
+
+    private int[] inicioTextos = new int[0];
+    private String[] textos = new String[0];
+
+    public BinaryReader(ByteBuffer bytes) {
+        this.bytes = bytes;
+        this.posicao = bytes.position();
+    }
+
+    // O mapeamento continua válido depois que o canal é fechado
+    public static BinaryReader map(Path arquivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            return new BinaryReader(canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size()));
+        }
+    }
+
+    public int position() {
+        return posicao;
+    }
+
+    public void position(int posicao) {
+        this.posicao = posicao;
+    }
+
+    public int limit() {
+        return bytes.limit();
+    }
+
+    public int readByte() {
+        return bytes.get(posicao++) & 0xFF;
+    }
+
+    public int readInt() {
+        int valor = bytes.getInt(posicao);
+        posicao += 4;
+        return valor;
+    }
+
+    public long readLong() {
+        long valor = bytes.getLong(posicao);
+        posicao += 8;
+        return valor;
+    }
+
+    public int readVarint() {
+        int valor = 0;
+        for (int deslocamento = 0; ; deslocamento += 7) {
+            int b = bytes.get(posicao++);
+            valor |= (b & 0x7F) << deslocamento;
+            if (b >= 0) {
+                return valor;
+            }
+        }
+    }
+
+    public int readSignedVarint() {
+        int valor = readVarint();
+        return (valor >>> 1) ^ -(valor & 1);
+    }
+
+    public long readVarlong() {
+        long valor = 0;
+        for (int deslocamento = 0; ; deslocamento += 7) {
+            int b = bytes.get(posicao++);
+            valor |= (long) (b & 0x7F) << deslocamento;
+            if (b >= 0) {
+                return valor;
+            }
+        }
+    }
+
+    public long readSignedVarlong() {
+        long valor = readVarlong();
+        return (valor >>> 1) ^ -(valor & 1);
+    }
+
+    public String readText() {
+        int comprimento = readVarint();
+        String texto = decodificar(posicao, comprimento);
+        posicao += comprimento;
+        return texto;
+    }
+
+    // Lê os comprimentos da tabela gravada por writeTextTable, sem criar os textos
+    public void readTextTable() {
+        int total = readVarint();
+        inicioTextos = new int[total];
+        textos = new String[total];
+        for (int i = 0; i < total; i++) {
+            inicioTextos[i] = posicao;
+            int comprimento = readVarint();
+            posicao += comprimento;
+        }
+    }
+
+    public int textCount() {
+        return textos.length;
+    }
+
+    // Texto de índice i na tabela, decodificado uma única vez
+    public String text(int i) {
+        if (textos[i] == null) {
+            int p = posicao;
+            posicao = inicioTextos[i];
+            textos[i] = readText();
+            posicao = p;
+        }
+        return textos[i];
+    }
+
+    public LineMap readLineMap() {
+        LineMap linhas = new LineMap();
+        int total = readVarint();
+        int inicio = 0;
+        for (int l = 2; l <= total; l++) {
+            inicio += readVarint();
+            linhas.adicionar(inicio);
+        }
+        return linhas;
+    }
+
+    private String decodificar(int inicio, int comprimento) {
+        byte[] utf8 = new byte[comprimento];
+        bytes.get(inicio, utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+}
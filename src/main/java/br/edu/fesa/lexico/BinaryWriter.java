@@ -0,0 +1,133 @@
+package br.edu.fesa.lexico;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+// Bytes acumulados em memória pelos formatos binários de tokens e árvores.
+// Inteiros sem sinal vão como varint (7 bits por byte; o bit alto indica que
+// há mais bytes); os com sinal passam antes por zigzag, para que valores
+// pequenos negativos também ocupem um byte
+public final class BinaryWriter {
+    private byte[] bytes;
+    private int tamanho = 0;
+
+    public BinaryWriter(int capacidade) {
+        bytes = new byte[Math.max(16, capacidade)];
+    }
+
+    public void writeByte(int valor) {
+        if (tamanho == bytes.length) {
+            bytes = Arrays.copyOf(bytes, tamanho * 2);
+        }
+        bytes[tamanho++] = (byte) valor;
+    }
+
+    public void writeInt(int valor) {
+        writeByte(valor >>> 24);
+        writeByte(valor >>> 16);
+        writeByte(valor >>> 8);
+        writeByte(valor);
+    }
+
+    public void writeLong(long valor) {
+        writeInt((int) (valor >>> 32));
+        writeInt((int) valor);
+    }
+
+    public void writeVarint(int valor) {
+        while ((valor & ~0x7F) != 0) {
+            writeByte((valor & 0x7F) | 0x80);
+            valor >>>= 7;
+        }
+        writeByte(valor);
+    }
+
+    public void writeSignedVarint(int valor) {
+        writeVarint((valor << 1) ^ (valor >> 31));
+    }
+
+    public void writeVarlong(long valor) {
+        while ((valor & ~0x7FL) != 0) {
+            writeByte((int) (valor & 0x7F) | 0x80);
+            valor >>>= 7;
+        }
+        writeByte((int) valor);
+    }
+
+    public void writeSignedVarlong(long valor) {
+        writeVarlong((valor << 1) ^ (valor >> 63));
+    }
+
+    // Comprimento em bytes UTF-8 seguido dos bytes
+    public void writeText(String texto) {
+        byte[] utf8 = texto.getBytes(StandardCharsets.UTF_8);
+        writeVarint(utf8.length);
+        write(utf8, 0, utf8.length);
+    }
+
+    // Tabela de textos referida pelo índice no resto do arquivo
+    public void writeTextTable(List<String> textos) {
+        writeVarint(textos.size());
+        for (String texto : textos) {
+            writeText(texto);
+        }
+    }
+
+    // Início de cada linha como diferença para o da linha anterior
+    public void writeLineMap(LineMap linhas) {
+        writeVarint(linhas.lineCount());
+        for (int l = 2; l <= linhas.lineCount(); l++) {
+            writeVarint(linhas.lineStart(l) - linhas.lineStart(l - 1));
+        }
+    }
+
+    public void write(BinaryWriter outro) {
+        write(outro.bytes, 0, outro.tamanho);
+    }
+
+    // Copia os bytes [inicio, fim) já gravados em outro
+    public void write(BinaryWriter outro, int inicio, int fim) {
+        write(outro.bytes, inicio, fim - inicio);
+    }
+
+    private void write(byte[] origem, int inicio, int comprimento) {
+        if (tamanho + comprimento > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, tamanho + comprimento));
+        }
+        System.arraycopy(origem, inicio, bytes, tamanho, comprimento);
+        tamanho += comprimento;
+    }
+
+    public int size() {
+        return tamanho;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(bytes, tamanho);
+    }
+
+    public void writeTo(Path arquivo) throws IOException {
+        try (OutputStream saida = Files.newOutputStream(arquivo)) {
+            saida.write(bytes, 0, tamanho);
+        }
+    }
+
+    // Bytes ocupados por writeVarint(valor)
+    public static int varintSize(int valor) {
+        int n = 1;
+        while ((valor & ~0x7F) != 0) {
+            valor >>>= 7;
+            n++;
+        }
+        return n;
+    }
+
+    public static int signedVarintSize(int valor) {
+        return varintSize((valor << 1) ^ (valor >> 31));
+    }
+}
@@ -0,0 +1,142 @@
+package br.edu.fesa.lexico;
+
+// Atualiza um TokenBuffer depois de uma edição no texto sem gerar todos os
+// tokens de novo. A leitura recomeça no último token cuja análise não chegou a
+// examinar o trecho editado e continua até que um token novo coincida (tipo,
+// comprimento, estado e posição deslocada) com um token antigo posterior à
+// edição; dali em diante os tokens antigos são copiados com a posição deslocada.
+// O resultado é idêntico ao de gerar o buffer do texto novo.
+//
+// O ponto de reinício é achado por busca binária e a leitura é proporcional à
+// edição, mas cada chamada ainda copia o texto, os arrays de tokens e o mapa de
+// linhas inteiros (System.arraycopy), já que o buffer anterior continua válido
+public class IncrementalLexer {
+    private static final int ESTADO_INICIAL = Lexer.State.DEFAULT.ordinal();
+
+    private final LanguageProfile perfil;
+    private int relidos;
+    // Intervalo trocado na última chamada: tokens antigos [inicioAlterado,
+    // fimAlteradoAntigo) viraram os novos [inicioAlterado, fimAlteradoNovo)
+    private int inicioAlterado;
+    private int fimAlteradoAntigo;
+    private int fimAlteradoNovo;
+
+    public IncrementalLexer() {
+        this(LanguageProfile.CSHARP);
+    }
+
+    // O perfil deve ser o mesmo usado para gerar os buffers anteriores
+    public IncrementalLexer(LanguageProfile perfil) {
+        this.perfil = perfil;
+    }
+
+    // Substitui os caracteres [offset, offset + removidos) do texto anterior por inseridos
+    public TokenBuffer relex(TokenBuffer anterior, int offset, int removidos, String inseridos) {
+        CharSequence fonte = anterior.getSource();
+        NamePool nomes = anterior.getNamePool();
+        if (fonte == null || nomes == null) {
+            throw new IllegalArgumentException("O buffer precisa do texto fonte e da tabela de nomes");
+        }
+        if (offset < 0 || removidos < 0 || offset + removidos > fonte.length()) {
+            throw new IndexOutOfBoundsException("Edicao fora do texto: " + offset + "+" + removidos);
+        }
+
+        TextoFonte texto = TextoFonte.editar(fonte, offset, removidos, inseridos);
+        int delta = inseridos.length() - removidos;
+        int fimEdicao = offset + inseridos.length(); // no texto novo
+
+        int reinicio = pontoDeReinicio(anterior, offset);
+        LineMap linhas = anterior.getLineMap().edit(offset, removidos, inseridos);
+        TokenBuffer novo = new TokenBuffer(texto, nomes, linhas, anterior.size() + 16);
+        novo.copyRange(anterior, 0, reinicio, 0);
+
+        int inicio = reinicio > 0 ? anterior.start(reinicio) : 0;
+        Lexer lexer = new Lexer(texto, texto.caracteres(), nomes, perfil,
+                                linhas, inicio, Integer.MAX_VALUE);
+        relidos = 0;
+        inicioAlterado = reinicio;
+        fimAlteradoAntigo = anterior.size();
+        int antigo = reinicio;
+        boolean continua = true;
+        while (continua) {
+            continua = lexer.appendNextToken(novo);
+            relidos++;
+
+            int atual = novo.size() - 1;
+            int inicioAtual = novo.start(atual);
+            if (inicioAtual < fimEdicao) {
+                continue;
+            }
+            while (antigo < anterior.size() && anterior.start(antigo) + delta < inicioAtual) {
+                antigo++;
+            }
+            if (antigo < anterior.size() && coincide(anterior, antigo, novo, atual, delta)) {
+                fimAlteradoAntigo = antigo;
+                novo.copyRange(anterior, antigo + 1, anterior.size(), delta);
+                break;
+            }
+        }
+        fimAlteradoNovo = fimAlteradoAntigo + novo.size() - anterior.size();
+        return novo;
+    }
+
+    // Primeiro token que pode ter mudado na última chamada a relex; os
+    // anteriores são idênticos nos dois buffers
+    public int changedStart() {
+        return inicioAlterado;
+    }
+
+    // Fim (exclusivo) do trecho alterado no buffer anterior; daí em diante os
+    // tokens antigos foram copiados com a posição deslocada
+    public int changedEndOld() {
+        return fimAlteradoAntigo;
+    }
+
+    // Fim (exclusivo) do trecho alterado no buffer novo
+    public int changedEndNew() {
+        return fimAlteradoNovo;
+    }
+
+    // Quantos tokens foram lidos de novo na última chamada a relex
+    int getRelexedCount() {
+        return relidos;
+    }
+
+    // Primeiro token a reler: um token só é mantido se sua leitura (incluindo o
+    // code point que a encerrou e a busca do operador mais longo) terminou antes
+    // da edição, e a leitura recomeça no início de um token lido em estado inicial
+    private int pontoDeReinicio(TokenBuffer anterior, int offset) {
+        // A condição só deixa de valer uma vez ao longo do buffer: os tokens
+        // estão em ordem de posição e não se sobrepõem
+        int r = 0;
+        int fim = anterior.size();
+        while (r < fim) {
+            int meio = (r + fim) >>> 1;
+            if (lidoAntes(anterior, meio, offset)) {
+                r = meio + 1;
+            } else {
+                fim = meio;
+            }
+        }
+        // O espaço antes do token r pode conter a edição; recomeça no anterior
+        if (r > 0 && (r == anterior.size() || anterior.start(r) >= offset)) {
+            r--;
+        }
+        while (r > 0 && anterior.state(r) != ESTADO_INICIAL) {
+            r--;
+        }
+        return r;
+    }
+
+    private boolean lidoAntes(TokenBuffer anterior, int i, int offset) {
+        return anterior.type(i) != TipoToken.EOF
+            && anterior.start(i) + Math.max(anterior.length(i) + 1, perfil.maiorOperador()) < offset;
+    }
+
+    private static boolean coincide(TokenBuffer anterior, int i, TokenBuffer novo, int j, int delta) {
+        return anterior.start(i) + delta == novo.start(j)
+            && anterior.type(i) == novo.type(j)
+            && anterior.length(i) == novo.length(j)
+            && anterior.state(i) == novo.state(j);
+    }
+}
@@ -0,0 +1,240 @@
+package br.edu.fesa.lexico;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Conjunto de palavras reservadas e operadores reconhecidos pelo Lexer.
+// As tabelas são compiladas na criação do perfil: palavras reservadas viram um
+// hash perfeito (sem colisões) e operadores uma trie, ambos consultados direto
+// sobre o trecho de caracteres, sem criar Strings.
+public final class LanguageProfile {
+
+    // Palavras reservadas e operadores do C#
+    public static final LanguageProfile CSHARP;
+
+    // Apenas expressões aritméticas, sem palavras reservadas
+    public static final LanguageProfile EXPRESSION;
+
+    static {
+        Map<String, TipoToken> palavras = new LinkedHashMap<>();
+        for (String palavra : new String[] {
+            "abstract", "as", "base", "bool", "break", "byte", "case", "catch", "char",
+            "checked", "class", "const", "continue", "decimal", "default", "delegate", "do",
+            "double", "else", "enum", "event", "explicit", "extern", "finally", "fixed",
+            "float", "for", "foreach", "goto", "if", "implicit", "in", "int", "interface",
+            "internal", "is", "lock", "long", "namespace", "new", "null", "object",
+            "operator", "out", "override", "params", "private", "protected", "public",
+            "readonly", "ref", "return", "sbyte", "sealed", "short", "sizeof", "stackalloc",
+            "static", "string", "struct", "switch", "this", "throw", "try", "typeof", "uint",
+            "ulong", "unchecked", "unsafe", "ushort", "using", "virtual", "void", "volatile",
+            "while", "var"
+        }) {
+            palavras.put(palavra, TipoToken.KEYWORD);
+        }
+        palavras.put("true", TipoToken.BOOLEAN);
+        palavras.put("false", TipoToken.BOOLEAN);
+
+        Map<String, TipoToken> operadores = new LinkedHashMap<>();
+        for (String op : new String[] { "+", "-", "*", "/", "%", "++", "--", "<<", ">>" }) {
+            operadores.put(op, TipoToken.OP_ARITHMETIC);
+        }
+        for (String op : new String[] { "<", ">", "<=", ">=", "==", "!=" }) {
+            operadores.put(op, TipoToken.OP_RELATIONAL);
+        }
+        for (String op : new String[] { "!", "&&", "||", "&", "|", "^", "~", "??" }) {
+            operadores.put(op, TipoToken.OP_LOGICAL);
+        }
+        for (String op : new String[] { "=", "+=", "-=", "*=", "/=", "%=",
+                                        "&=", "|=", "^=", "<<=", ">>=", "??=" }) {
+            operadores.put(op, TipoToken.OP_ASSIGNMENT);
+        }
+        adicionarDelimitadores(operadores);
+        operadores.put("?", TipoToken.QUESTION);
+        operadores.put(":", TipoToken.COLON);
+        operadores.put("=>", TipoToken.ARROW);
+        CSHARP = new LanguageProfile("C#", palavras, operadores);
+
+        Map<String, TipoToken> aritmeticos = new LinkedHashMap<>();
+        for (String op : new String[] { "+", "-", "*", "/", "%" }) {
+            aritmeticos.put(op, TipoToken.OP_ARITHMETIC);
+        }
+        aritmeticos.put("=", TipoToken.OP_ASSIGNMENT);
+        aritmeticos.put("(", TipoToken.LPAREN);
+        aritmeticos.put(")", TipoToken.RPAREN);
+        aritmeticos.put(";", TipoToken.SEMICOLON);
+        aritmeticos.put(",", TipoToken.COMMA);
+        EXPRESSION = new LanguageProfile("Expressao", Map.of(), aritmeticos);
+    }
+
+    private static void adicionarDelimitadores(Map<String, TipoToken> operadores) {
+        operadores.put("(", TipoToken.LPAREN);
+        operadores.put(")", TipoToken.RPAREN);
+        operadores.put("{", TipoToken.LBRACE);
+        operadores.put("}", TipoToken.RBRACE);
+        operadores.put("[", TipoToken.LBRACKET);
+        operadores.put("]", TipoToken.RBRACKET);
+        operadores.put(";", TipoToken.SEMICOLON);
+        operadores.put(",", TipoToken.COMMA);
+        operadores.put(".", TipoToken.DOT);
+    }
+
+    private final String nome;
+
+    // Hash perfeito das palavras reservadas
+    private final char[][] palavras;
+    private final String[] textosPalavras;
+    private final TipoToken[] tiposPalavras;
+    private final int semente;
+    private final int mascara;
+    private final int menorPalavra;
+    private final int maiorPalavra;
+
+    // Trie de operadores sobre ASCII: filhos[no * 128 + c] é o próximo nó, 0 se não houver
+    private int[] filhos = new int[128];
+    private String[] textosOperadores = new String[1];
+    private TipoToken[] tiposOperadores = new TipoToken[1];
+    private Operador[] codigosOperadores = new Operador[1];
+    private int totalNos = 1;
+    private int maiorOperador = 0;
+
+    public LanguageProfile(String nome, Map<String, TipoToken> palavrasReservadas,
+                           Map<String, TipoToken> operadores) {
+        this.nome = nome;
+
+        int menor = Integer.MAX_VALUE;
+        int maior = 0;
+        for (String palavra : palavrasReservadas.keySet()) {
+            menor = Math.min(menor, palavra.length());
+            maior = Math.max(maior, palavra.length());
+        }
+        this.menorPalavra = menor;
+        this.maiorPalavra = maior;
+
+        // Procura a menor tabela e uma semente que não gerem colisões
+        int tamanho = Integer.highestOneBit(Math.max(4, palavrasReservadas.size() * 2 - 1)) << 1;
+        char[][] tabela = null;
+        int sementeEncontrada = 0;
+        while (tabela == null) {
+            for (int s = 1; s <= 4096 && tabela == null; s++) {
+                tabela = distribuir(palavrasReservadas, s, tamanho - 1);
+                sementeEncontrada = s;
+            }
+            if (tabela == null) {
+                tamanho <<= 1;
+            }
+        }
+        this.palavras = tabela;
+        this.semente = sementeEncontrada;
+        this.mascara = tamanho - 1;
+        this.textosPalavras = new String[tamanho];
+        this.tiposPalavras = new TipoToken[tamanho];
+        for (Map.Entry<String, TipoToken> entrada : palavrasReservadas.entrySet()) {
+            char[] chars = entrada.getKey().toCharArray();
+            int slot = hash(semente, chars, 0, chars.length) & mascara;
+            textosPalavras[slot] = entrada.getKey();
+            tiposPalavras[slot] = entrada.getValue();
+        }
+
+        for (Map.Entry<String, TipoToken> entrada : operadores.entrySet()) {
+            inserirOperador(entrada.getKey(), entrada.getValue());
+        }
+    }
+
+    private static char[][] distribuir(Map<String, TipoToken> palavras, int semente, int mascara) {
+        char[][] tabela = new char[mascara + 1][];
+        for (String palavra : palavras.keySet()) {
+            char[] chars = palavra.toCharArray();
+            int slot = hash(semente, chars, 0, chars.length) & mascara;
+            if (tabela[slot] != null) {
+                return null;
+            }
+            tabela[slot] = chars;
+        }
+        return tabela;
+    }
+
+    private static int hash(int semente, char[] texto, int inicio, int comprimento) {
+        int h = semente ^ comprimento;
+        for (int i = 0; i < comprimento; i++) {
+            h = (h ^ texto[inicio + i]) * 0x01000193;
+        }
+        return h ^ (h >>> 15);
+    }
+
+    private void inserirOperador(String operador, TipoToken tipo) {
+        int no = 0;
+        for (int i = 0; i < operador.length(); i++) {
+            char c = operador.charAt(i);
+            if (c >= 128) {
+                throw new IllegalArgumentException("Operador deve ser ASCII: " + operador);
+            }
+            if (filhos[no * 128 + c] == 0) {
+                if (totalNos * 128 == filhos.length) {
+                    filhos = Arrays.copyOf(filhos, filhos.length * 2);
+                    textosOperadores = Arrays.copyOf(textosOperadores, totalNos * 2);
+                    tiposOperadores = Arrays.copyOf(tiposOperadores, totalNos * 2);
+                    codigosOperadores = Arrays.copyOf(codigosOperadores, totalNos * 2);
+                }
+                filhos[no * 128 + c] = totalNos++;
+            }
+            no = filhos[no * 128 + c];
+        }
+        maiorOperador = Math.max(maiorOperador, operador.length());
+        textosOperadores[no] = operador;
+        tiposOperadores[no] = tipo;
+        codigosOperadores[no] = Operador.of(operador); // null para delimitadores
+    }
+
+    public String getNome() {
+        return nome;
+    }
+
+    // Posição da palavra reservada na tabela, ou -1 se o trecho não for reservado
+    int buscarPalavra(char[] texto, int inicio, int comprimento) {
+        if (comprimento < menorPalavra || comprimento > maiorPalavra) {
+            return -1;
+        }
+        int slot = hash(semente, texto, inicio, comprimento) & mascara;
+        char[] palavra = palavras[slot];
+        if (palavra == null || palavra.length != comprimento) {
+            return -1;
+        }
+        for (int i = 0; i < comprimento; i++) {
+            if (palavra[i] != texto[inicio + i]) {
+                return -1;
+            }
+        }
+        return slot;
+    }
+
+    TipoToken tipoPalavra(int slot) {
+        return tiposPalavras[slot];
+    }
+
+    String textoPalavra(int slot) {
+        return textosPalavras[slot];
+    }
+
+    // Percorre a trie de operadores; retorna 0 quando não há continuação
+    int proximoNo(int no, char c) {
+        return c < 128 ? filhos[no * 128 + c] : 0;
+    }
+
+    TipoToken tipoOperador(int no) {
+        return tiposOperadores[no];
+    }
+
+    Operador codigoOperador(int no) {
+        return codigosOperadores[no];
+    }
+
+    String textoOperador(int no) {
+        return textosOperadores[no];
+    }
+
+    // Quantos caracteres a busca do operador mais longo pode examinar
+    int maiorOperador() {
+        return maiorOperador;
+    }
+}
@@ -1,19 +1,39 @@
 package br.edu.fesa.lexico;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.regex.Pattern;
 
-public class Lexer {
-    private final String input;
+public class Lexer implements Closeable {
+    // Tamanho padrão da janela de leitura no modo streaming
+    private static final int TAMANHO_JANELA = 8192;
+
+    private final CharSequence fonte; // texto completo, disponível apenas fora do modo streaming
+    private final Reader reader;
+    private final NamePool nomes;
+    private final LanguageProfile perfil;
+    private char[] buffer;
+    private int bufferStart = 0; // posição absoluta de buffer[0]
+    private int bufferEnd;       // quantidade de caracteres válidos no buffer
+    private boolean fimLeitura;
     private int pos = 0;
-    private int line = 1;
-    private int column = 1;
+    private int limite = Integer.MAX_VALUE; // nenhum token novo começa a partir daqui
+    private int marca = -1;      // início do lexema em leitura, preservado na janela
+    private final LineMap linhas; // linha e coluna são derivadas dos deslocamentos
+    // Na leitura por janela o mapa de linhas esquece o que já passou; só o
+    // TokenBuffer, que guarda deslocamentos de todo o texto, precisa dele inteiro
+    private boolean descartarLinhas;
     private char currentChar;
     
-    private enum State {
+    enum State {
         DEFAULT,
         STRING,
         LINE_COMMENT,
@@ -21,30 +41,160 @@ public class Lexer {
     }
     
     private State state = State.DEFAULT;
+    private int inicioComentario;
+    private TriviaBuffer trivia; // null enquanto o canal de trivia não for pedido
+    
+    // Último token reconhecido por scan()
+    private TipoToken tipoLido;
+    private String lexemaLido;
+    private int idNomeLido;      // id no NamePool quando o token é um identificador
+    private boolean lexemaSintetico; // lexema difere do trecho [inicioLido, fimLido) do fonte
+    private int inicioLido;
+    private int fimLido;
+    private boolean interrompido;    // erro que encerra a geração de tokens
+    private TipoLiteral literalLido;  // tipo do número lido, ou null
+    private Operador operadorLido;    // código do operador lido, ou null
+    private long valorLido;           // valor do inteiro, ou bits do double
     
-    // Palavras reservadas do C#
-    private static final Map<String, TipoToken> KEYWORDS = new HashMap<>();
+    // Classes de caracteres ASCII usadas pelo DFA de identificadores e números
+    private static final byte C_OUTRO = 0;
+    private static final byte C_LETRA = 1;
+    private static final byte C_DIGITO = 2;
+    private static final byte C_PONTO = 3;
+    private static final byte C_EXPOENTE = 4;
+    private static final byte C_SINAL = 5;
+
+    private static final byte[] CLASSES = new byte[128];
+    static {
+        for (char c = 'a'; c <= 'z'; c++) {
+            CLASSES[c] = C_LETRA;
+        }
+        for (char c = 'A'; c <= 'Z'; c++) {
+            CLASSES[c] = C_LETRA;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            CLASSES[c] = C_DIGITO;
+        }
+        CLASSES['_'] = C_LETRA;
+        CLASSES['.'] = C_PONTO;
+        CLASSES['e'] = C_EXPOENTE;
+        CLASSES['E'] = C_EXPOENTE;
+        CLASSES['+'] = C_SINAL;
+        CLASSES['-'] = C_SINAL;
+    }
+
+    // Espaços ASCII por tabela; Character.isWhitespace fica só para o resto
+    private static final boolean[] ESPACOS = new boolean[128];
     static {
-        KEYWORDS.put("if", TipoToken.KEYWORD);
-        KEYWORDS.put("else", TipoToken.KEYWORD);
-        KEYWORDS.put("while", TipoToken.KEYWORD);
-        KEYWORDS.put("for", TipoToken.KEYWORD);
-        KEYWORDS.put("return", TipoToken.KEYWORD);
-        KEYWORDS.put("class", TipoToken.KEYWORD);
-        KEYWORDS.put("public", TipoToken.KEYWORD);
-        KEYWORDS.put("private", TipoToken.KEYWORD);
-        KEYWORDS.put("true", TipoToken.BOOLEAN);
-        KEYWORDS.put("false", TipoToken.BOOLEAN);
-        KEYWORDS.put("var", TipoToken.KEYWORD);
-    }
-
-    // Padrões regex para validação
-    private static final Pattern IDENTIFIER_PATTERN = Pattern.compile("^[a-zA-Z_][a-zA-Z0-9_]*$");
-    private static final Pattern NUMBER_PATTERN = Pattern.compile("^\\d+(\\.\\d+)?([eE][+-]?\\d+)?$");
+        for (char c = 0; c < 128; c++) {
+            ESPACOS[c] = Character.isWhitespace(c);
+        }
+    }
+
+    // Estados do DFA de números: \d+(\.\d+)?([eE][+-]?\d+)?
+    // ERRO consome o restante de um número mal formado para reportá-lo inteiro
+    private static final int N_FIM = -1;
+    private static final int N_INTEIRO = 0;
+    private static final int N_PONTO = 1;
+    private static final int N_FRACAO = 2;
+    private static final int N_EXPOENTE = 3;
+    private static final int N_SINAL_EXP = 4;
+    private static final int N_DIGITOS_EXP = 5;
+    private static final int N_ERRO = 6;
+
+    private static final boolean[] N_ACEITA = {
+        true, false, true, false, false, true, false
+    };
+
+    // Potências de 10 representáveis exatamente em double
+    private static final double[] POTENCIAS_10 = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    // Colunas: OUTRO, LETRA, DIGITO, PONTO, EXPOENTE, SINAL
+    private static final int[][] N_TRANSICOES = {
+        /* INTEIRO     */ { N_FIM, N_FIM, N_INTEIRO,     N_PONTO, N_EXPOENTE, N_FIM },
+        /* PONTO       */ { N_FIM, N_FIM, N_FRACAO,      N_ERRO,  N_ERRO,     N_FIM },
+        /* FRACAO      */ { N_FIM, N_FIM, N_FRACAO,      N_ERRO,  N_EXPOENTE, N_FIM },
+        /* EXPOENTE    */ { N_FIM, N_FIM, N_DIGITOS_EXP, N_ERRO,  N_ERRO,     N_SINAL_EXP },
+        /* SINAL_EXP   */ { N_FIM, N_FIM, N_DIGITOS_EXP, N_ERRO,  N_ERRO,     N_FIM },
+        /* DIGITOS_EXP */ { N_FIM, N_FIM, N_DIGITOS_EXP, N_ERRO,  N_ERRO,     N_FIM },
+        /* ERRO        */ { N_FIM, N_FIM, N_ERRO,        N_ERRO,  N_ERRO,     N_FIM }
+    };
     
     public Lexer(String input) {
-        this.input = input;
-        this.currentChar = input.length() > 0 ? input.charAt(pos) : '\0';
+        this(input, new NamePool(), LanguageProfile.CSHARP);
+    }
+
+    public Lexer(String input, LanguageProfile perfil) {
+        this(input, new NamePool(), perfil);
+    }
+
+    // Compartilha a tabela de nomes com outras fases (e outros lexers)
+    public Lexer(String input, NamePool nomes) {
+        this(input, nomes, LanguageProfile.CSHARP);
+    }
+
+    public Lexer(String input, NamePool nomes, LanguageProfile perfil) {
+        this(input, input.toCharArray(), nomes, perfil, LineMap.of(input));
+    }
+
+    private Lexer(CharSequence input, char[] caracteres, NamePool nomes, LanguageProfile perfil, LineMap linhas) {
+        this.fonte = input;
+        this.reader = null;
+        this.nomes = nomes;
+        this.perfil = perfil;
+        this.linhas = linhas;
+        this.buffer = caracteres;
+        this.bufferEnd = buffer.length;
+        this.fimLeitura = true;
+        this.currentChar = charAt(pos);
+    }
+
+    // Lê a entrada sob demanda, mantendo em memória apenas uma janela do código fonte
+    public Lexer(Reader reader) {
+        this(reader, LanguageProfile.CSHARP);
+    }
+
+    public Lexer(Reader reader, LanguageProfile perfil) {
+        this(reader, TAMANHO_JANELA, perfil);
+    }
+
+    public Lexer(ReadableByteChannel channel) {
+        this(Channels.newReader(channel, StandardCharsets.UTF_8));
+    }
+
+    // Mapeia o arquivo em memória e decodifica o UTF-8 direto dos bytes mapeados
+    public Lexer(Path arquivo) throws IOException {
+        this(new MappedUtf8Reader(arquivo));
+    }
+
+    // Começa a leitura no meio do texto; os caracteres e o mapa de linhas são
+    // compartilhados (somente leitura) entre lexers do mesmo texto
+    Lexer(CharSequence input, char[] caracteres, NamePool nomes, LanguageProfile perfil,
+          LineMap linhas, int inicio, int limite) {
+        this(input, caracteres, nomes, perfil, linhas);
+        this.pos = inicio;
+        this.limite = limite;
+        this.currentChar = charAt(pos);
+    }
+
+    Lexer(Reader reader, int tamanhoJanela) {
+        this(reader, tamanhoJanela, LanguageProfile.CSHARP);
+    }
+
+    Lexer(Reader reader, int tamanhoJanela, LanguageProfile perfil) {
+        this.fonte = null;
+        this.reader = reader;
+        this.nomes = new NamePool();
+        this.perfil = perfil;
+        this.linhas = new LineMap();
+        this.descartarLinhas = true;
+        this.buffer = new char[Math.max(2, tamanhoJanela)];
+        this.bufferEnd = 0;
+        this.fimLeitura = false;
+        this.currentChar = charAt(pos);
     }
 
      public List<Token> generateTokens() {
@@ -55,9 +205,7 @@ public class Lexer {
             token = nextToken();
             tokens.add(token);
             
-            if (token.type == TipoToken.ERROR && 
-                (token.lexeme.startsWith("String nao fechada") || 
-                 token.lexeme.startsWith("Sequencia de escape invalida"))) {
+            if (interrompido) {
                 break;
             }
             
@@ -65,302 +213,686 @@ public class Lexer {
         
         return tokens;
     }
+
+    // Gera os tokens direto em arrays paralelos, sem criar um objeto Token por lexema
+    public TokenBuffer generateTokenBuffer() {
+        descartarLinhas = false;
+        TokenBuffer tokens = new TokenBuffer(fonte, nomes, linhas, fonte != null ? fonte.length() / 4 : 0);
+        while (appendNextToken(tokens)) {
+            // continua até EOF ou erro fatal
+        }
+        return tokens;
+    }
+    
+    // Acrescenta o próximo token ao buffer, registrando o estado do lexer no início
+    // da leitura; retorna false quando a geração terminou (EOF ou erro fatal)
+    boolean appendNextToken(TokenBuffer tokens) {
+        State inicial = state;
+        TipoToken tipo = scan();
+        if (idNomeLido >= 0) {
+            tokens.addName(idNomeLido, inicioLido, fimLido - inicioLido);
+        } else if (literalLido != null && fonte != null) {
+            tokens.addNumber(inicioLido, fimLido - inicioLido, literalLido, valorLido);
+        } else if (literalLido != null) {
+            // Sem o fonte o texto do número só existe na janela; fica como avulso
+            tokens.add(tipo, inicioLido, fimLido - inicioLido, lexemaLido());
+            tokens.marcarLiteral(literalLido, valorLido);
+        } else if (fonte != null && !lexemaSintetico) {
+            tokens.add(tipo, inicioLido, fimLido - inicioLido);
+        } else {
+            tokens.add(tipo, inicioLido, fimLido - inicioLido, lexemaLido());
+        }
+        tokens.setState(tokens.size() - 1, inicial.ordinal());
+        if (operadorLido != null) {
+            tokens.setOperator(tokens.size() - 1, operadorLido);
+        }
+        marca = -1;
+        return tipo != TipoToken.EOF && !interrompido;
+    }
+    
+    // Gera os tokens que começam antes do limite; a leitura para em EOF ou em erro fatal
+    List<Token> generateTokensUntilLimit() {
+        List<Token> tokens = new ArrayList<>();
+        TipoToken tipo;
+        
+        while ((tipo = scan()) != null) {
+            tokens.add(criarToken(tipo));
+            
+            if (tipo == TipoToken.EOF || interrompido) {
+                break;
+            }
+        }
+        return tokens;
+    }
+
+    int getPosition() {
+        return pos;
+    }
+
+    boolean isInterrupted() {
+        return interrompido;
+    }
+
+    // Tokens produzidos sob demanda: apenas a janela de lookahead fica em memória.
+    // Na leitura por janela linha e coluna de cada token são resolvidas quando
+    // ele é lido, antes que o mapa de linhas esqueça o trecho
+    public TokenSource tokenSource() {
+        return new FonteSobDemanda();
+    }
     
     public Token nextToken() {
-        while (currentChar != '\0') {
+        return criarToken(scan());
+    }
+
+    // Com o fonte inteiro em memória o token só guarda as posições; o lexema é
+    // criado sob demanda. Na leitura por janela lexema, linha e coluna precisam
+    // ser materializados já, antes que a janela e o mapa de linhas avancem
+    private Token criarToken(TipoToken tipo) {
+        Token token;
+        if (descartarLinhas) {
+            token = new Token(tipo, null, inicioLido, fimLido, null);
+            token.setLine(linhas.line(inicioLido));
+            token.setColumn(linhas.column(inicioLido));
+        } else {
+            token = new Token(tipo, fonte, inicioLido, fimLido, linhas);
+        }
+        if (lexemaLido != null || fonte == null) {
+            token.setLexeme(lexemaLido());
+        }
+        if (literalLido != null) {
+            token.setLiteral(literalLido, valorLido);
+        }
+        token.setOperator(operadorLido);
+        token.nameId = idNomeLido;
+        marca = -1;
+        return token;
+    }
+
+    private TipoToken scan() {
+        lexemaLido = null;
+        lexemaSintetico = false;
+        idNomeLido = -1;
+        literalLido = null;
+        operadorLido = null;
+        while (true) {
             switch (state) {
-                case DEFAULT:
-                    return processDefaultState();
                 case STRING:
                     return processString();
                 case LINE_COMMENT:
                     skipLineComment();
+                    registrarTrivia(TipoToken.LINE_COMMENT, inicioComentario);
                     continue;
                 case BLOCK_COMMENT:
                     skipBlockComment();
+                    registrarTrivia(TipoToken.BLOCK_COMMENT, inicioComentario);
                     continue;
+                default:
+                    break;
+            }
+
+            int inicioEspacos = pos;
+            skipWhitespace();
+            registrarTrivia(TipoToken.WHITESPACE, inicioEspacos);
+
+            if (currentChar == '\0') {
+                return emitirFim();
             }
+            if (pos >= limite) {
+                return null;
+            }
+
+            // Comentários: troca de estado e segue no laço
+            if (currentChar == '/') {
+                char nextChar = peek();
+                if (nextChar == '/' || nextChar == '*') {
+                    state = nextChar == '/' ? State.LINE_COMMENT : State.BLOCK_COMMENT;
+                    inicioComentario = pos;
+                    marca = -1;
+                    advance();
+                    advance();
+                    continue;
+                }
+            }
+
+            return processDefaultState();
         }
-        return new Token(TipoToken.EOF, "$", line, column);
     }
 
-    private Token processDefaultState() {
-        skipWhitespace();
-        
-        if (currentChar == '\0') {
-            return new Token(TipoToken.EOF, "$", line, column);
+    private void registrarTrivia(TipoToken tipo, int inicio) {
+        if (trivia != null && pos > inicio) {
+            trivia.add(tipo, inicio, pos);
+        }
+    }
+
+    private TipoToken emitir(TipoToken tipo, String lexema) {
+        tipoLido = tipo;
+        lexemaLido = lexema;
+        fimLido = pos;
+        return tipo;
+    }
+
+    private TipoToken emitirSintetico(TipoToken tipo, String lexema) {
+        lexemaSintetico = true;
+        return emitir(tipo, lexema);
+    }
+
+    private TipoToken emitirFim() {
+        inicioLido = pos;
+        return emitirSintetico(TipoToken.EOF, "$");
+    }
+
+    // Materializa o lexema a partir da janela; a marca mantém o trecho disponível.
+    // Uma string sem escapes tem como lexema o trecho entre as aspas
+    private String lexemaLido() {
+        if (lexemaLido == null) {
+            int aspas = tipoLido == TipoToken.STRING ? 1 : 0;
+            lexemaLido = new String(buffer, inicioLido + aspas - bufferStart, fimLido - inicioLido - 2 * aspas);
         }
+        return lexemaLido;
+    }
 
-        int startLine = line;
-        int startColumn = column;
+    private TipoToken processDefaultState() {
+        inicioLido = pos;
+        marca = pos;
+        
+        byte classe = currentChar < 128 ? CLASSES[currentChar] : C_OUTRO;
         
-        // Identificadores e palavras-chave
-        if (Character.isLetter(currentChar) || currentChar == '_') {
-            return readIdentifierOrKeyword(startLine, startColumn);
+        // Identificadores e palavras-chave; fora do ASCII a classe vem do code point
+        if (classe == C_LETRA || classe == C_EXPOENTE
+                || (currentChar >= 128 && Character.isUnicodeIdentifierStart(codePointAtual()))) {
+            return readIdentifierOrKeyword();
         }
         
         // Números
-        if (Character.isDigit(currentChar)) {
-            return readNumber(startLine, startColumn);
+        if (classe == C_DIGITO) {
+            return readNumber();
         }
         
         // Strings
         if (currentChar == '"') {
             state = State.STRING;
-            return readString(startLine, startColumn);
-        }
-        
-        // Comentários
-        if (currentChar == '/') {
-            char nextChar = peek();
-            if (nextChar == '/') {
-                state = State.LINE_COMMENT;
-                advance();
-                advance();
-                return nextToken();
-            } else if (nextChar == '*') {
-                state = State.BLOCK_COMMENT;
-                advance();
-                advance();
-                return nextToken();
-            }
+            advance(); // aspa inicial
+            return processString();
         }
         
         // Operadores e delimitadores
-        return readOperatorOrDelimiter(startLine, startColumn);
+        return readOperatorOrDelimiter();
     }
 
-    private Token processString() {
-        // Já consumimos a aspa inicial no estado DEFAULT
-        int startLine = line;
-        int startColumn = column - 1; // Ajuste para pegar a posição da aspa
-        
-        StringBuilder builder = new StringBuilder();
-        boolean escape = false;
+    // Sem escapes o lexema é o próprio trecho do fonte; a cópia decodificada só
+    // é montada a partir do primeiro escape encontrado
+    private TipoToken processString() {
+        StringBuilder builder = null;
         
         while (true) {
-            if (currentChar == '\0') {
-                state = State.DEFAULT;
-                return new Token(TipoToken.ERROR, "String não fechada", startLine, startColumn);
+            int inicio = pos - bufferStart;
+            int i = inicio;
+            while (i < bufferEnd) {
+                char c = buffer[i];
+                if (c == '"' || c == '\\' || c == '\0') {
+                    break;
+                }
+                i++;
             }
+            if (builder != null) {
+                builder.append(buffer, inicio, i - inicio);
+            }
+            saltarPara(i);
             
-            if (escape) {
-                switch (currentChar) {
-                    case 'n': builder.append('\n'); break;
-                    case 't': builder.append('\t'); break;
-                    case '"': builder.append('"'); break;
-                    case '\\': builder.append('\\'); break;
-                    default:
-                        state = State.DEFAULT;
-                        return new Token(TipoToken.ERROR, "Sequência de escape inválida: \\" + currentChar, 
-                                       startLine, startColumn);
-                }
-                escape = false;
+            if (currentChar == '"') {
                 advance();
-                continue;
+                state = State.DEFAULT;
+                if (builder == null) {
+                    return emitir(TipoToken.STRING, null);
+                }
+                return emitirSintetico(TipoToken.STRING, builder.toString());
             }
             
             if (currentChar == '\\') {
-                escape = true;
+                if (builder == null) {
+                    // A marca mantém na janela o corpo lido desde a aspa inicial
+                    int corpo = inicioLido + 1 - bufferStart;
+                    builder = new StringBuilder(pos - inicioLido + 16).append(buffer, corpo, pos - inicioLido - 1);
+                }
                 advance();
-                continue;
+                switch (currentChar) {
+                    case '\0': break;
+                    case 'n': builder.append('\n'); advance(); continue;
+                    case 't': builder.append('\t'); advance(); continue;
+                    case '"': builder.append('"'); advance(); continue;
+                    case '\\': builder.append('\\'); advance(); continue;
+                    default:
+                        state = State.DEFAULT;
+                        interrompido = true;
+                        return emitirSintetico(TipoToken.ERROR, "Sequência de escape inválida: \\" + currentChar);
+                }
             }
             
-            if (currentChar == '"') {
-                advance();
+            if (currentChar == '\0') {
                 state = State.DEFAULT;
-                return new Token(TipoToken.STRING, builder.toString(), startLine, startColumn);
+                interrompido = true;
+                return emitirSintetico(TipoToken.ERROR, "String não fechada");
             }
-            
-            builder.append(currentChar);
-            advance();
         }
     }
 
-    private Token readIdentifierOrKeyword(int startLine, int startColumn) {
-        StringBuilder builder = new StringBuilder();
+    private TipoToken readIdentifierOrKeyword() {
+        int inicio = pos;
         
-        while (Character.isLetterOrDigit(currentChar) || currentChar == '_') {
-            builder.append(currentChar);
-            advance();
+        while (true) {
+            char c = currentChar;
+            if (c < 128) {
+                byte classe = CLASSES[c];
+                if (classe != C_LETRA && classe != C_EXPOENTE && classe != C_DIGITO) {
+                    break;
+                }
+                advance();
+            } else {
+                // Inclui marcas combinantes (o "c" + cedilha de um texto
+                // decomposto), mas não os caracteres de controle ignoráveis
+                int codePoint = codePointAtual();
+                if (!Character.isUnicodeIdentifierPart(codePoint) || Character.isIdentifierIgnorable(codePoint)) {
+                    break;
+                }
+                avancarCodePoint(codePoint);
+            }
         }
         
-        String id = builder.toString();
-        
-        // Valida o identificador com o padrão regex
-        if (!IDENTIFIER_PATTERN.matcher(id).matches()) {
-            return new Token(TipoToken.ERROR, id, startLine, startColumn);
+        int palavra = perfil.buscarPalavra(buffer, inicio - bufferStart, pos - inicio);
+        if (palavra >= 0) {
+            return emitir(perfil.tipoPalavra(palavra), perfil.textoPalavra(palavra));
         }
         
-        TipoToken type = KEYWORDS.getOrDefault(id, TipoToken.IDENTIFIER);
-        return new Token(type, id, startLine, startColumn);
+        // Nomes repetidos reaproveitam a String já internada
+        idNomeLido = nomes.intern(buffer, inicio - bufferStart, pos - inicio);
+        return emitir(TipoToken.IDENTIFIER, nomes.name(idNomeLido));
     }
 
-    private Token readNumber(int startLine, int startColumn) {
-        StringBuilder builder = new StringBuilder();
+    // O valor é acumulado durante o próprio DFA: dígitos da mantissa, casas
+    // decimais e expoente. O lexema só é materializado se alguém pedir por ele
+    private TipoToken readNumber() {
+        int estado = N_INTEIRO;
+        long mantissa = currentChar - '0';
+        boolean transbordou = false; // a mantissa não cabe em um long
+        int casasDecimais = 0;
+        int expoente = 0;
+        boolean expoenteNegativo = false;
+        advance(); // primeiro dígito, já verificado pelo chamador
         
-        while (Character.isDigit(currentChar) || 
-               currentChar == '.' || 
-               currentChar == 'e' || currentChar == 'E' ||
-               currentChar == '+' || currentChar == '-') {
-            
-            builder.append(currentChar);
+        while (true) {
+            char c = currentChar;
+            int proximo = N_TRANSICOES[estado][c < 128 ? CLASSES[c] : C_OUTRO];
+            if (proximo == N_FIM) {
+                break;
+            }
+            if (proximo == N_INTEIRO || proximo == N_FRACAO) {
+                int digito = c - '0';
+                if (mantissa > (Long.MAX_VALUE - digito) / 10) {
+                    transbordou = true;
+                } else {
+                    mantissa = mantissa * 10 + digito;
+                    if (proximo == N_FRACAO) {
+                        casasDecimais++;
+                    }
+                }
+            } else if (proximo == N_SINAL_EXP) {
+                expoenteNegativo = c == '-';
+            } else if (proximo == N_DIGITOS_EXP && expoente < 100000) {
+                expoente = expoente * 10 + (c - '0');
+            }
+            estado = proximo;
             advance();
         }
         
-        String numStr = builder.toString();
-        if (!NUMBER_PATTERN.matcher(numStr).matches()) {
-            return new Token(TipoToken.ERROR, numStr, startLine, startColumn);
+        if (!N_ACEITA[estado]) {
+            return emitir(TipoToken.ERROR, null);
         }
         
-        return new Token(TipoToken.NUMBER, numStr, startLine, startColumn);
+        if (estado == N_INTEIRO) {
+            if (transbordou) {
+                return emitirForaDoIntervalo();
+            }
+            literalLido = TipoLiteral.INTEIRO;
+            valorLido = mantissa;
+            return emitir(TipoToken.NUMBER, null);
+        }
+        
+        // Caminho rápido exato: mantissa e potência de 10 representáveis em double
+        int potencia = (expoenteNegativo ? -expoente : expoente) - casasDecimais;
+        double valor;
+        if (!transbordou && mantissa < (1L << 53) && potencia >= -22 && potencia <= 22) {
+            valor = potencia >= 0 ? mantissa * POTENCIAS_10[potencia] : mantissa / POTENCIAS_10[-potencia];
+        } else {
+            valor = Double.parseDouble(new String(buffer, inicioLido - bufferStart, pos - inicioLido));
+            if (Double.isInfinite(valor)) {
+                return emitirForaDoIntervalo();
+            }
+        }
+        literalLido = TipoLiteral.DECIMAL;
+        valorLido = Double.doubleToRawLongBits(valor);
+        return emitir(TipoToken.NUMBER, null);
     }
 
-    private Token readString(int startLine, int startColumn) {
-        // Este método agora apenas inicia o processamento da string
-        // O processamento real é feito em processString()
-        return processString();
+    private TipoToken emitirForaDoIntervalo() {
+        String texto = new String(buffer, inicioLido - bufferStart, pos - inicioLido);
+        return emitirSintetico(TipoToken.ERROR, "Número fora do intervalo: " + texto);
     }
 
+    // Para antes da quebra de linha, que fica para os espaços em branco
     private void skipLineComment() {
         while (currentChar != '\n' && currentChar != '\0') {
-            advance();
-        }
-        if (currentChar == '\n') {
-            advance();
+            int i = pos - bufferStart;
+            while (i < bufferEnd && buffer[i] != '\n' && buffer[i] != '\0') {
+                i++;
+            }
+            saltarPara(i);
         }
         state = State.DEFAULT;
     }
 
     private void skipBlockComment() {
         while (currentChar != '\0') {
-            if (currentChar == '*' && peek() == '/') {
-                advance();
+            int i = pos - bufferStart;
+            while (i < bufferEnd && buffer[i] != '*' && buffer[i] != '\0') {
+                i++;
+            }
+            saltarPara(i);
+            
+            if (currentChar == '*') {
+                if (peek() == '/') {
+                    advance();
+                    advance();
+                    state = State.DEFAULT;
+                    return;
+                }
                 advance();
-                state = State.DEFAULT;
-                return;
             }
-            advance();
         }
         state = State.DEFAULT;
     }
 
-    private Token readOperatorOrDelimiter(int startLine, int startColumn) {
-        char c = currentChar;
-        advance();
-        
-        switch (c) {
-            // Operadores aritméticos
-            case '+': case '-': case '*': case '/': case '%':
-                return new Token(TipoToken.OP_ARITHMETIC, String.valueOf(c), startLine, startColumn);
-                
-            // Operadores relacionais
-            case '>':
-                if (currentChar == '=') {
-                    advance();
-                    return new Token(TipoToken.OP_RELATIONAL, ">=", startLine, startColumn);
-                }
-                return new Token(TipoToken.OP_RELATIONAL, ">", startLine, startColumn);
-            case '<':
-                if (currentChar == '=') {
-                    advance();
-                    return new Token(TipoToken.OP_RELATIONAL, "<=", startLine, startColumn);
-                }
-                return new Token(TipoToken.OP_RELATIONAL, "<", startLine, startColumn);
-                
-            // Operadores lógicos
-            case '!':
-                if (currentChar == '=') {
-                    advance();
-                    return new Token(TipoToken.OP_RELATIONAL, "!=", startLine, startColumn);
-                }
-                return new Token(TipoToken.OP_LOGICAL, "!", startLine, startColumn);
-            case '&':
-                if (currentChar == '&') {
-                    advance();
-                    return new Token(TipoToken.OP_LOGICAL, "&&", startLine, startColumn);
-                }
+    private TipoToken readOperatorOrDelimiter() {
+        // Casamento mais longo na trie de operadores do perfil
+        int no = 0;
+        int aceito = 0;
+        int comprimento = 0;
+        for (int k = 0; ; k++) {
+            no = perfil.proximoNo(no, charAt(pos + k));
+            if (no == 0) {
                 break;
-            case '|':
-                if (currentChar == '|') {
-                    advance();
-                    return new Token(TipoToken.OP_LOGICAL, "||", startLine, startColumn);
-                }
-                break;
-                
-            // Atribuição
-            case '=':
-                if (currentChar == '=') {
-                    advance();
-                    return new Token(TipoToken.OP_RELATIONAL, "==", startLine, startColumn);
-                }
-                return new Token(TipoToken.OP_ASSIGNMENT, "=", startLine, startColumn);
-                
-            // Delimitadores
-            case '(': return new Token(TipoToken.LPAREN, "(", startLine, startColumn);
-            case ')': return new Token(TipoToken.RPAREN, ")", startLine, startColumn);
-            case '{': return new Token(TipoToken.LBRACE, "{", startLine, startColumn);
-            case '}': return new Token(TipoToken.RBRACE, "}", startLine, startColumn);
-            case '[': return new Token(TipoToken.LBRACKET, "[", startLine, startColumn);
-            case ']': return new Token(TipoToken.RBRACKET, "]", startLine, startColumn);
-            case ';': return new Token(TipoToken.SEMICOLON, ";", startLine, startColumn);
-            case ',': return new Token(TipoToken.COMMA, ",", startLine, startColumn);
-            case '.': return new Token(TipoToken.DOT, ".", startLine, startColumn);
+            }
+            if (perfil.tipoOperador(no) != null) {
+                aceito = no;
+                comprimento = k + 1;
+            }
+        }
+        
+        if (aceito == 0) {
+            // Um par substituto inválido vira um único token de erro
+            avancarCodePoint(codePointAtual());
+            return emitir(TipoToken.ERROR, null);
         }
         
-        return new Token(TipoToken.ERROR, String.valueOf(c), startLine, startColumn);
+        for (int k = 0; k < comprimento; k++) {
+            advance();
+        }
+        operadorLido = perfil.codigoOperador(aceito);
+        return emitir(perfil.tipoOperador(aceito), perfil.textoOperador(aceito));
     }
 
-    private void processLineComment() {
-        while (currentChar != '\n' && currentChar != '\0') {
-            advance();
+    private void skipWhitespace() {
+        while (espaco(currentChar)) {
+            int i = pos - bufferStart;
+            while (i < bufferEnd && espaco(buffer[i])) {
+                i++;
+            }
+            saltarPara(i);
         }
-        if (currentChar == '\n') {
-            advance();
+    }
+
+    private static boolean espaco(char c) {
+        return c < 128 ? ESPACOS[c] : Character.isWhitespace(c);
+    }
+
+    // Passa a registrar espaços em branco e comentários no canal de trivia. Deve
+    // ser chamado antes de gerar os tokens; sem ele nada é registrado
+    public TriviaBuffer recordTrivia() {
+        if (trivia == null) {
+            trivia = new TriviaBuffer(fonte);
         }
-        state = State.DEFAULT;
+        return trivia;
     }
 
-    private void processBlockComment() {
-        while (currentChar != '\0') {
-            if (currentChar == '*' && peek() == '/') {
-                advance();
-                advance();
-                state = State.DEFAULT;
-                return;
+    public NamePool getNamePool() {
+        return nomes;
+    }
+
+    // Na leitura por janela o mapa cobre apenas o que já foi lido, e só a
+    // partir do início da janela, exceto depois de generateTokenBuffer()
+    public LineMap getLineMap() {
+        return linhas;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (reader != null) {
+            reader.close();
+        }
+    }
+
+    private void advance() {
+        pos++;
+        currentChar = charAt(pos);
+    }
+    
+    // Move pos para o índice i da janela
+    private void saltarPara(int i) {
+        pos = bufferStart + i;
+        currentChar = charAt(pos);
+    }
+    
+    // Code point na posição atual, juntando os pares substitutos do UTF-16
+    private int codePointAtual() {
+        char c = currentChar;
+        if (Character.isHighSurrogate(c)) {
+            char baixo = peek();
+            if (Character.isLowSurrogate(baixo)) {
+                return Character.toCodePoint(c, baixo);
             }
-            advance();
         }
-        // Se chegou aqui, comentário não fechado
-        state = State.DEFAULT;
+        return c;
     }
 
-    private void skipWhitespace() {
-        while (Character.isWhitespace(currentChar)) {
+    private void avancarCodePoint(int codePoint) {
+        advance();
+        if (Character.isSupplementaryCodePoint(codePoint)) {
             advance();
         }
     }
 
-    private void advance() {
-        if (currentChar == '\n') {
-            line++;
-            column = 1;
-        } else {
-            column++;
+    private char peek() {
+        return charAt(pos + 1);
+    }
+
+    private char charAt(int offset) {
+        if (offset - bufferStart >= bufferEnd && !carregarAte(offset)) {
+            return '\0';
+        }
+        return buffer[offset - bufferStart];
+    }
+
+    // Recarrega a janela descartando o que já foi consumido; só cresce se o
+    // trecho ainda necessário não couber no buffer atual
+    private boolean carregarAte(int offset) {
+        if (fimLeitura) {
+            return false;
         }
         
-        pos++;
-        if (pos < input.length()) {
-            currentChar = input.charAt(pos);
-        } else {
-            currentChar = '\0';
+        int descartar = (marca >= 0 ? marca : pos) - bufferStart;
+        if (descartar > 0) {
+            System.arraycopy(buffer, descartar, buffer, 0, bufferEnd - descartar);
+            bufferEnd -= descartar;
+            bufferStart += descartar;
+        }
+        
+        try {
+            while (offset - bufferStart >= bufferEnd) {
+                if (bufferEnd == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                int lidos = reader.read(buffer, bufferEnd, buffer.length - bufferEnd);
+                if (lidos < 0) {
+                    fimLeitura = true;
+                    return false;
+                }
+                if (descartarLinhas) {
+                    linhas.descartarAntes(bufferStart);
+                }
+                linhas.registrar(buffer, bufferEnd, bufferEnd + lidos, bufferStart + bufferEnd);
+                bufferEnd += lidos;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
+        return true;
     }
-    
-    private char peek() {
-        if (pos + 1 < input.length()) {
-            return input.charAt(pos + 1);
+
+    // Anel de lookahead alimentado por scan()
+    private final class FonteSobDemanda implements TokenSource {
+        private static final int CAPACIDADE = 4;
+        private static final int MASCARA = CAPACIDADE - 1;
+        
+        private final TipoToken[] tipos = new TipoToken[CAPACIDADE];
+        private final String[] lexemas = new String[CAPACIDADE];
+        private final int[] inicios = new int[CAPACIDADE];
+        private final int[] linhasLidas = new int[CAPACIDADE]; // só na leitura por janela
+        private final int[] colunas = new int[CAPACIDADE];
+        private final int[] ids = new int[CAPACIDADE];
+        private final TipoLiteral[] literais = new TipoLiteral[CAPACIDADE];
+        private final long[] valores = new long[CAPACIDADE];
+        private final Operador[] operadores = new Operador[CAPACIDADE];
+        private int atual = 0;
+        private int disponiveis = 0;
+        private boolean terminou = false;
+        
+        // Posição no anel do token k à frente, ou -1 se já passou do fim
+        private int indice(int k) {
+            if (k >= CAPACIDADE) {
+                throw new IllegalArgumentException("Lookahead maximo: " + (CAPACIDADE - 1));
+            }
+            while (disponiveis <= k) {
+                if (terminou) {
+                    return -1;
+                }
+                ler();
+            }
+            return (atual + k) & MASCARA;
+        }
+        
+        private void ler() {
+            int i = (atual + disponiveis) & MASCARA;
+            TipoToken tipo = scan();
+            tipos[i] = tipo;
+            lexemas[i] = lexemaLido();
+            inicios[i] = inicioLido;
+            if (descartarLinhas) {
+                linhasLidas[i] = linhas.line(inicioLido);
+                colunas[i] = linhas.column(inicioLido);
+            }
+            ids[i] = idNomeLido;
+            literais[i] = literalLido;
+            valores[i] = valorLido;
+            operadores[i] = operadorLido;
+            marca = -1;
+            disponiveis++;
+            terminou = tipo == TipoToken.EOF || interrompido;
+        }
+        
+        @Override
+        public TipoToken type(int k) {
+            int i = indice(k);
+            return i >= 0 ? tipos[i] : TipoToken.EOF;
+        }
+        
+        @Override
+        public String lexeme(int k) {
+            int i = indice(k);
+            return i >= 0 ? lexemas[i] : "$";
+        }
+        
+        @Override
+        public boolean lexemeEquals(int k, String texto) {
+            return lexeme(k).equals(texto);
+        }
+        
+        @Override
+        public int line(int k) {
+            int i = indice(k);
+            if (i < 0) {
+                return -1;
+            }
+            return descartarLinhas ? linhasLidas[i] : linhas.line(inicios[i]);
+        }
+        
+        @Override
+        public int column(int k) {
+            int i = indice(k);
+            if (i < 0) {
+                return -1;
+            }
+            return descartarLinhas ? colunas[i] : linhas.column(inicios[i]);
+        }
+        
+        @Override
+        public int offset(int k) {
+            int i = indice(k);
+            return i >= 0 ? inicios[i] : -1;
+        }
+        
+        @Override
+        // O mapa parcial da leitura por janela não serve para consultas
+        // posteriores; sem ele o Parser guarda linha e coluna explícitas
+        public LineMap lineMap() {
+            return descartarLinhas ? null : linhas;
+        }
+        
+        @Override
+        public TipoLiteral literal(int k) {
+            int i = indice(k);
+            return i >= 0 ? literais[i] : null;
+        }
+        
+        @Override
+        public long longValue(int k) {
+            int i = indice(k);
+            return i >= 0 ? TokenBuffer.comoLong(literais[i], valores[i]) : 0;
+        }
+        
+        @Override
+        public double doubleValue(int k) {
+            int i = indice(k);
+            return i >= 0 ? TokenBuffer.comoDouble(literais[i], valores[i]) : 0;
+        }
+        
+        @Override
+        public Operador operator(int k) {
+            int i = indice(k);
+            return i >= 0 ? operadores[i] : null;
+        }
+        
+        @Override
+        public int nameId(int k) {
+            int i = indice(k);
+            return i >= 0 ? ids[i] : -1;
+        }
+        
+        @Override
+        public void advance() {
+            if (indice(0) >= 0) {
+                lexemas[atual] = null;
+                atual = (atual + 1) & MASCARA;
+                disponiveis--;
+            }
         }
-        return '\0';
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,106 @@
+package br.edu.fesa.lexico;
+
+import java.util.Arrays;
+
+// Posições de início de cada linha do texto. Tokens, nós e mensagens guardam só
+// o deslocamento no fonte; linha e coluna são obtidas aqui, por busca binária,
+// apenas quando alguém pede por elas.
+public final class LineMap {
+    private int[] inicios = new int[64];
+    private int total = 1; // a linha 1 começa no deslocamento 0
+    private int descartadas = 0; // linhas já esquecidas antes de inicios[0]
+
+    // Mapa preenchido à medida que o texto é lido (leitura por janela)
+    LineMap() {
+    }
+
+    public static LineMap of(CharSequence texto) {
+        LineMap mapa = new LineMap();
+        for (int i = 0, n = texto.length(); i < n; i++) {
+            if (texto.charAt(i) == '\n') {
+                mapa.adicionar(i + 1);
+            }
+        }
+        return mapa;
+    }
+
+    // Registra as quebras de linha de texto[inicio, fim), que ocupa no fonte a
+    // partir de deslocamento
+    void registrar(char[] texto, int inicio, int fim, int deslocamento) {
+        for (int i = inicio; i < fim; i++) {
+            if (texto[i] == '\n') {
+                adicionar(deslocamento + i - inicio + 1);
+            }
+        }
+    }
+
+    // Na leitura sob demanda esquece as linhas que terminam antes de offset,
+    // guardando só as da janela; depois disso só deslocamentos a partir de
+    // offset podem ser consultados
+    void descartarAntes(int offset) {
+        int primeira = line(offset) - 1 - descartadas;
+        if (primeira > 0) {
+            System.arraycopy(inicios, primeira, inicios, 0, total - primeira);
+            total -= primeira;
+            descartadas += primeira;
+        }
+    }
+
+    void adicionar(int inicioLinha) {
+        if (total == inicios.length) {
+            inicios = Arrays.copyOf(inicios, total * 2);
+        }
+        inicios[total++] = inicioLinha;
+    }
+
+    // Linha (a partir de 1) do caractere no deslocamento
+    public int line(int offset) {
+        int baixo = 0;
+        int alto = total - 1;
+        while (baixo < alto) {
+            int meio = (baixo + alto + 1) >>> 1;
+            if (inicios[meio] <= offset) {
+                baixo = meio;
+            } else {
+                alto = meio - 1;
+            }
+        }
+        return descartadas + baixo + 1;
+    }
+
+    // Coluna (a partir de 1) do caractere no deslocamento
+    public int column(int offset) {
+        return offset - inicios[line(offset) - 1 - descartadas] + 1;
+    }
+
+    public int lineCount() {
+        return descartadas + total;
+    }
+
+    // Deslocamento do primeiro caractere da linha
+    public int lineStart(int linha) {
+        return inicios[linha - 1 - descartadas];
+    }
+
+    // Mapa do texto depois de substituir [offset, offset + removidos) por inseridos
+    LineMap edit(int offset, int removidos, CharSequence inseridos) {
+        LineMap mapa = new LineMap();
+        int delta = inseridos.length() - removidos;
+        int i = 1;
+        while (i < total && inicios[i] <= offset) {
+            mapa.adicionar(inicios[i++]);
+        }
+        for (int k = 0; k < inseridos.length(); k++) {
+            if (inseridos.charAt(k) == '\n') {
+                mapa.adicionar(offset + k + 1);
+            }
+        }
+        while (i < total && inicios[i] <= offset + removidos) {
+            i++; // quebras removidas
+        }
+        while (i < total) {
+            mapa.adicionar(inicios[i++] + delta);
+        }
+        return mapa;
+    }
+}
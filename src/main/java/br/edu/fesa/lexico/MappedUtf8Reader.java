@@ -0,0 +1,155 @@
+package br.edu.fesa.lexico;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Decodifica UTF-8 diretamente dos bytes de um arquivo mapeado em memória.
+// Bytes ASCII são copiados sem passar por CharsetDecoder; apenas sequências
+// multibyte são decodificadas manualmente.
+class MappedUtf8Reader extends Reader {
+    private static final long TAMANHO_REGIAO = 1L << 30;
+    private static final char SUBSTITUTO = '\uFFFD';
+
+    private final FileChannel canal;
+    private final long tamanhoArquivo;
+    private long inicioRegiao = 0;
+    private MappedByteBuffer bytes;
+    private char pendente = 0; // segunda metade de um par substituto
+
+    MappedUtf8Reader(Path arquivo) throws IOException {
+        this.canal = FileChannel.open(arquivo, StandardOpenOption.READ);
+        this.tamanhoArquivo = canal.size();
+        mapear(0);
+    }
+
+    @Override
+    public int read(char[] destino, int inicio, int quantidade) throws IOException {
+        if (quantidade == 0) {
+            return 0;
+        }
+
+        int n = inicio;
+        int fim = inicio + quantidade;
+
+        if (pendente != 0) {
+            destino[n++] = pendente;
+            pendente = 0;
+        }
+
+        while (n < fim) {
+            // Caminho rápido: sequência de bytes ASCII
+            int p = bytes.position();
+            int limite = bytes.limit();
+            while (n < fim && p < limite) {
+                byte b = bytes.get(p);
+                if (b < 0) {
+                    break;
+                }
+                destino[n++] = (char) b;
+                p++;
+            }
+            bytes.position(p);
+
+            if (n == fim) {
+                break;
+            }
+            if (p == limite) {
+                if (!proximaRegiao()) {
+                    break;
+                }
+                continue;
+            }
+
+            // Sequência multibyte que atravessa o fim da região: remapeia a partir dela
+            if (limite - p < 4 && inicioRegiao + limite < tamanhoArquivo) {
+                mapear(inicioRegiao + p);
+                continue;
+            }
+
+            int codePoint = decodificar();
+            if (codePoint < 0x10000) {
+                destino[n++] = (char) codePoint;
+            } else {
+                destino[n++] = Character.highSurrogate(codePoint);
+                if (n < fim) {
+                    destino[n++] = Character.lowSurrogate(codePoint);
+                } else {
+                    pendente = Character.lowSurrogate(codePoint);
+                }
+            }
+        }
+
+        int lidos = n - inicio;
+        return lidos == 0 ? -1 : lidos;
+    }
+
+    private int decodificar() {
+        int p = bytes.position();
+        int limite = bytes.limit();
+        int b0 = bytes.get(p) & 0xFF;
+
+        int tamanho;
+        int minimo;
+        int codePoint;
+        if ((b0 & 0xE0) == 0xC0) {
+            tamanho = 2;
+            minimo = 0x80;
+            codePoint = b0 & 0x1F;
+        } else if ((b0 & 0xF0) == 0xE0) {
+            tamanho = 3;
+            minimo = 0x800;
+            codePoint = b0 & 0x0F;
+        } else if ((b0 & 0xF8) == 0xF0) {
+            tamanho = 4;
+            minimo = 0x10000;
+            codePoint = b0 & 0x07;
+        } else {
+            bytes.position(p + 1);
+            return SUBSTITUTO;
+        }
+
+        if (p + tamanho > limite) {
+            bytes.position(p + 1);
+            return SUBSTITUTO;
+        }
+        for (int i = 1; i < tamanho; i++) {
+            int b = bytes.get(p + i) & 0xFF;
+            if ((b & 0xC0) != 0x80) {
+                bytes.position(p + 1);
+                return SUBSTITUTO;
+            }
+            codePoint = (codePoint << 6) | (b & 0x3F);
+        }
+
+        bytes.position(p + tamanho);
+        if (codePoint < minimo || codePoint > Character.MAX_CODE_POINT
+                || (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE)) {
+            return SUBSTITUTO;
+        }
+        return codePoint;
+    }
+
+    private boolean proximaRegiao() throws IOException {
+        long proximo = inicioRegiao + bytes.limit();
+        if (proximo >= tamanhoArquivo) {
+            return false;
+        }
+        mapear(proximo);
+        return true;
+    }
+
+    private void mapear(long inicio) throws IOException {
+        inicioRegiao = inicio;
+        bytes = canal.map(FileChannel.MapMode.READ_ONLY, inicio,
+                Math.min(TAMANHO_REGIAO, tamanhoArquivo - inicio));
+    }
+
+    @Override
+    public void close() throws IOException {
+        canal.close();
+    }
+}
@@ -0,0 +1,112 @@
+package br.edu.fesa.lexico;
+
+import java.util.Arrays;
+
+// Tabela de nomes internados: cada texto distinto de identificador recebe um id
+// inteiro denso. Buscas comparam direto no trecho de caracteres, de modo que um
+// nome repetido não aloca nada.
+public final class NamePool {
+    private String[] nomes = new String[64];
+    private int[] hashes = new int[64];
+    private int[] tabela = new int[128]; // id + 1; zero indica posição livre
+    private int tamanho = 0;
+
+    public int intern(char[] texto, int inicio, int comprimento) {
+        int h = 0;
+        for (int i = 0; i < comprimento; i++) {
+            h = 31 * h + texto[inicio + i];
+        }
+
+        int mascara = tabela.length - 1;
+        int slot = espalhar(h) & mascara;
+        int entrada;
+        while ((entrada = tabela[slot]) != 0) {
+            int id = entrada - 1;
+            if (hashes[id] == h && iguais(nomes[id], texto, inicio, comprimento)) {
+                return id;
+            }
+            slot = (slot + 1) & mascara;
+        }
+        return adicionar(new String(texto, inicio, comprimento), h, slot);
+    }
+
+    public int intern(String nome) {
+        int h = nome.hashCode();
+        int slot = localizar(nome, h);
+        int entrada = tabela[slot];
+        return entrada != 0 ? entrada - 1 : adicionar(nome, h, slot);
+    }
+
+    // Retorna -1 se o nome nunca foi internado
+    public int find(String nome) {
+        return tabela[localizar(nome, nome.hashCode())] - 1;
+    }
+
+    public String name(int id) {
+        return nomes[id];
+    }
+
+    public int size() {
+        return tamanho;
+    }
+
+    private int localizar(String nome, int h) {
+        int mascara = tabela.length - 1;
+        int slot = espalhar(h) & mascara;
+        int entrada;
+        while ((entrada = tabela[slot]) != 0) {
+            int id = entrada - 1;
+            if (hashes[id] == h && nomes[id].equals(nome)) {
+                return slot;
+            }
+            slot = (slot + 1) & mascara;
+        }
+        return slot;
+    }
+
+    private int adicionar(String nome, int h, int slot) {
+        if (tamanho == nomes.length) {
+            nomes = Arrays.copyOf(nomes, tamanho * 2);
+            hashes = Arrays.copyOf(hashes, tamanho * 2);
+        }
+        int id = tamanho++;
+        nomes[id] = nome;
+        hashes[id] = h;
+        tabela[slot] = id + 1;
+
+        // Mantém a ocupação abaixo de 50%
+        if (tamanho * 2 > tabela.length) {
+            redimensionar();
+        }
+        return id;
+    }
+
+    private void redimensionar() {
+        int[] nova = new int[tabela.length * 2];
+        int mascara = nova.length - 1;
+        for (int id = 0; id < tamanho; id++) {
+            int slot = espalhar(hashes[id]) & mascara;
+            while (nova[slot] != 0) {
+                slot = (slot + 1) & mascara;
+            }
+            nova[slot] = id + 1;
+        }
+        tabela = nova;
+    }
+
+    private static int espalhar(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean iguais(String nome, char[] texto, int inicio, int comprimento) {
+        if (nome.length() != comprimento) {
+            return false;
+        }
+        for (int i = 0; i < comprimento; i++) {
+            if (nome.charAt(i) != texto[inicio + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
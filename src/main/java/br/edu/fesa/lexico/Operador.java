@@ -0,0 +1,76 @@
+package br.edu.fesa.lexico;
+
+// Código de cada operador, atribuído pelo Lexer ao reconhecer o token. Parser e
+// análise semântica consultam suas tabelas pelo ordinal, sem comparar textos.
+public enum Operador {
+    // Aritméticos
+    SOMA("+"),
+    SUBTRACAO("-"),
+    MULTIPLICACAO("*"),
+    DIVISAO("/"),
+    RESTO("%"),
+    INCREMENTO("++"),
+    DECREMENTO("--"),
+
+    // Relacionais
+    MENOR("<"),
+    MAIOR(">"),
+    MENOR_IGUAL("<="),
+    MAIOR_IGUAL(">="),
+    IGUAL("=="),
+    DIFERENTE("!="),
+
+    // Lógicos
+    NEGACAO("!"),
+    E_LOGICO("&&"),
+    OU_LOGICO("||"),
+    E_BIT("&"),
+    OU_BIT("|"),
+    OU_EXCLUSIVO("^"),
+    COMPLEMENTO("~"),
+    COALESCENCIA("??"),
+
+    // Deslocamento
+    DESLOCAMENTO_ESQUERDA("<<"),
+    DESLOCAMENTO_DIREITA(">>"),
+
+    // Atribuição
+    ATRIBUICAO("="),
+    SOMA_ATRIBUICAO("+="),
+    SUBTRACAO_ATRIBUICAO("-="),
+    MULTIPLICACAO_ATRIBUICAO("*="),
+    DIVISAO_ATRIBUICAO("/="),
+    RESTO_ATRIBUICAO("%="),
+    E_BIT_ATRIBUICAO("&="),
+    OU_BIT_ATRIBUICAO("|="),
+    OU_EXCLUSIVO_ATRIBUICAO("^="),
+    DESLOCAMENTO_ESQUERDA_ATRIBUICAO("<<="),
+    DESLOCAMENTO_DIREITA_ATRIBUICAO(">>="),
+    COALESCENCIA_ATRIBUICAO("??=");
+
+    private static final Operador[] TODOS = values();
+
+    private final String texto;
+
+    Operador(String texto) {
+        this.texto = texto;
+    }
+
+    public String getTexto() {
+        return texto;
+    }
+
+    // Operador com o texto dado, ou null. Usado só onde não há código vindo do
+    // Lexer (tokens e nós criados à mão)
+    public static Operador of(CharSequence texto) {
+        if (texto == null) {
+            return null;
+        }
+        for (Operador operador : TODOS) {
+            if (operador.texto.contentEquals(texto)) {
+                return operador;
+            }
+        }
+        return null;
+    }
+}
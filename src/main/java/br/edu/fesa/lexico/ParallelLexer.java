@@ -0,0 +1,179 @@
+package br.edu.fesa.lexico;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Divide o texto em blocos terminados em quebra de linha e gera os tokens de
+// cada bloco em paralelo, supondo que todo bloco começa fora de strings e
+// comentários. Na junção, um bloco cuja suposição se mostra errada (o bloco
+// anterior terminou em uma string ou comentário que atravessa a fronteira) é
+// gerado de novo a partir do ponto onde o anterior parou. Todos os blocos
+// compartilham o LineMap do texto, de modo que linhas e colunas não precisam de
+// ajuste. O resultado é idêntico ao de Lexer.generateTokens().
+public class ParallelLexer {
+    private static final int TAMANHO_MINIMO_BLOCO = 64 * 1024;
+
+    private final String input;
+    private final char[] caracteres;
+    private final LineMap linhas;
+    private final LanguageProfile perfil;
+    private final ForkJoinPool pool;
+    private final int tamanhoBloco;
+
+    public ParallelLexer(String input) {
+        this(input, LanguageProfile.CSHARP, ForkJoinPool.commonPool());
+    }
+
+    public ParallelLexer(String input, LanguageProfile perfil, ForkJoinPool pool) {
+        this(input, perfil, pool,
+             Math.max(TAMANHO_MINIMO_BLOCO, input.length() / (pool.getParallelism() * 4)));
+    }
+
+    ParallelLexer(String input, LanguageProfile perfil, ForkJoinPool pool, int tamanhoBloco) {
+        this.input = input;
+        this.caracteres = input.toCharArray();
+        this.linhas = LineMap.of(input);
+        this.perfil = perfil;
+        this.pool = pool;
+        this.tamanhoBloco = Math.max(1, tamanhoBloco);
+    }
+
+    public List<Token> generateTokens() {
+        return generateTokens(new NamePool());
+    }
+
+    public List<Token> generateTokens(NamePool nomes) {
+        List<Bloco> blocos = dividir();
+        pool.invoke(new TarefaBlocos(blocos, 0, blocos.size()));
+        return juntar(blocos, nomes);
+    }
+
+    private List<Bloco> dividir() {
+        List<Bloco> blocos = new ArrayList<>();
+        int inicio = 0;
+        int tamanho = input.length();
+        while (inicio < tamanho) {
+            int fim = inicio + tamanhoBloco;
+            if (fim >= tamanho) {
+                fim = tamanho;
+            } else {
+                int quebra = input.indexOf('\n', fim - 1);
+                fim = quebra < 0 ? tamanho : quebra + 1;
+            }
+            blocos.add(new Bloco(inicio, fim));
+            inicio = fim;
+        }
+        if (blocos.isEmpty()) {
+            blocos.add(new Bloco(0, 0));
+        }
+        return blocos;
+    }
+
+    private List<Token> juntar(List<Bloco> blocos, NamePool nomes) {
+        List<Token> tokens = new ArrayList<>();
+        int cursor = 0;
+
+        for (Bloco bloco : blocos) {
+            if (!bloco.ultimo && bloco.fim <= cursor) {
+                continue; // bloco inteiramente consumido pelo anterior
+            }
+
+            Resultado resultado;
+            if (suposicaoValida(bloco, cursor)) {
+                resultado = bloco.resultado;
+            } else {
+                resultado = gerar(cursor, bloco.ultimo ? Integer.MAX_VALUE : bloco.fim);
+            }
+
+            for (Token token : resultado.tokens) {
+                if (token.nameId >= 0) {
+                    token.nameId = nomes.intern(token.getLexeme());
+                }
+                tokens.add(token);
+            }
+            if (resultado.encerrou) {
+                break;
+            }
+
+            cursor = resultado.saida;
+        }
+        return tokens;
+    }
+
+    // A geração especulativa vale se entre o início do bloco e o ponto onde o
+    // bloco anterior parou só houver espaços em branco
+    private boolean suposicaoValida(Bloco bloco, int cursor) {
+        if (cursor < bloco.inicio) {
+            return false;
+        }
+        for (int i = bloco.inicio; i < cursor; i++) {
+            if (!Character.isWhitespace(caracteres[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Resultado gerar(int inicio, int limite) {
+        Lexer lexer = new Lexer(input, caracteres, new NamePool(), perfil, linhas, inicio, limite);
+        List<Token> tokens = lexer.generateTokensUntilLimit();
+        boolean encerrou = lexer.isInterrupted()
+                || (!tokens.isEmpty() && tokens.get(tokens.size() - 1).type == TipoToken.EOF);
+        return new Resultado(tokens, lexer.getPosition(), encerrou);
+    }
+
+    private static final class Resultado {
+        private final List<Token> tokens;
+        private final int saida;
+        private final boolean encerrou;
+
+        private Resultado(List<Token> tokens, int saida, boolean encerrou) {
+            this.tokens = tokens;
+            this.saida = saida;
+            this.encerrou = encerrou;
+        }
+    }
+
+    private final class Bloco {
+        private final int inicio;
+        private final int fim;
+        private final boolean ultimo;
+        private Resultado resultado;
+
+        private Bloco(int inicio, int fim) {
+            this.inicio = inicio;
+            this.fim = fim;
+            this.ultimo = fim == input.length();
+        }
+
+        private void processar() {
+            resultado = gerar(inicio, ultimo ? Integer.MAX_VALUE : fim);
+        }
+    }
+
+    private static final class TarefaBlocos extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Bloco> blocos;
+        private final int inicio;
+        private final int fim;
+
+        private TarefaBlocos(List<Bloco> blocos, int inicio, int fim) {
+            this.blocos = blocos;
+            this.inicio = inicio;
+            this.fim = fim;
+        }
+
+        @Override
+        protected void compute() {
+            if (fim - inicio == 1) {
+                blocos.get(inicio).processar();
+                return;
+            }
+            int meio = (inicio + fim) >>> 1;
+            invokeAll(new TarefaBlocos(blocos, inicio, meio), new TarefaBlocos(blocos, meio, fim));
+        }
+    }
+}
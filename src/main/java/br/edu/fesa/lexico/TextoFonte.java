@@ -0,0 +1,53 @@
+package br.edu.fesa.lexico;
+
+// Texto fonte sobre um char[] já existente, sem a cópia que um String faria.
+// Usado pelo IncrementalLexer: o texto editado é montado uma única vez e o
+// mesmo array serve ao Lexer e ao TokenBuffer
+final class TextoFonte implements CharSequence {
+    private final char[] caracteres;
+
+    TextoFonte(char[] caracteres) {
+        this.caracteres = caracteres;
+    }
+
+    // Texto de fonte depois de substituir [offset, offset + removidos) por inseridos
+    static TextoFonte editar(CharSequence fonte, int offset, int removidos, String inseridos) {
+        int fimRemovido = offset + removidos;
+        char[] novo = new char[fonte.length() - removidos + inseridos.length()];
+        if (fonte instanceof TextoFonte) {
+            char[] antigo = ((TextoFonte) fonte).caracteres;
+            System.arraycopy(antigo, 0, novo, 0, offset);
+            System.arraycopy(antigo, fimRemovido, novo, offset + inseridos.length(), antigo.length - fimRemovido);
+        } else {
+            String antigo = fonte.toString();
+            antigo.getChars(0, offset, novo, 0);
+            antigo.getChars(fimRemovido, antigo.length(), novo, offset + inseridos.length());
+        }
+        inseridos.getChars(0, inseridos.length(), novo, offset);
+        return new TextoFonte(novo);
+    }
+
+    char[] caracteres() {
+        return caracteres;
+    }
+
+    @Override
+    public int length() {
+        return caracteres.length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return caracteres[index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new String(caracteres, start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        return new String(caracteres);
+    }
+}
@@ -0,0 +1,17 @@
+package br.edu.fesa.lexico;
+
+public enum TipoLiteral {
+    INTEIRO,
+    DECIMAL;
+
+    // Classifica um literal numérico pelo texto: fração ou expoente o tornam decimal
+    public static TipoLiteral of(CharSequence texto) {
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c == '.' || c == 'e' || c == 'E') {
+                return DECIMAL;
+            }
+        }
+        return INTEIRO;
+    }
+}
@@ -23,8 +23,10 @@ public enum TipoToken {
     LBRACE, RBRACE,
     LBRACKET, RBRACKET,
     SEMICOLON, COMMA, DOT,
+    QUESTION, COLON, ARROW, // ?: do operador condicional e => das lambdas
     
-    // Comentários
+    // Trivia (só no canal opcional do Lexer)
+    WHITESPACE,
     LINE_COMMENT,
     BLOCK_COMMENT,
     
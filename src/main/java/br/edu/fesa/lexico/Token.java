@@ -1,10 +1,30 @@
 package br.edu.fesa.lexico;
 
+import java.nio.CharBuffer;
+
 public class Token {
     public TipoToken type;
-    public String lexeme;
-    public int line;
-    public int column;
+    // Lexema, linha e coluna só pelos getters: num token que aponta para o
+    // fonte eles são resolvidos na primeira consulta
+    private String lexeme;
+    private int line;
+    private int column;
+    public int nameId = -1; // id no NamePool, apenas para identificadores
+    public int start = -1;  // trecho [start, end) do fonte, incluindo as aspas de strings
+    public int end = -1;
+
+    private CharSequence source;
+
+    // Com um LineMap, linha e coluna são resolvidas a partir de start quando pedidas
+    private LineMap linhas;
+
+    // Literal numérico: decodificado pelo lexer ou, em tokens criados à mão, na
+    // primeira consulta. valor guarda o inteiro ou os bits do double
+    private TipoLiteral literal;
+    private long valor;
+
+    // Código do operador; em tokens criados à mão vem do lexema na primeira consulta
+    private Operador operator;
 
     public Token(TipoToken type, String lexeme, int line, int column) {
         this.type = type;
@@ -13,6 +33,15 @@ public class Token {
         this.column = column;
     }
 
+    // Token cujo lexema é o trecho do fonte, criado apenas se alguém pedir por ele
+    public Token(TipoToken type, CharSequence source, int start, int end, LineMap linhas) {
+        this.type = type;
+        this.source = source;
+        this.start = start;
+        this.end = end;
+        this.linhas = linhas;
+    }
+
     public Token(TipoToken tipoToken, String lexeme) {
         this.type = tipoToken;
         this.lexeme = lexeme;
@@ -27,6 +56,9 @@ public class Token {
     }
 
     public String getLexeme() {
+        if (lexeme == null && source != null) {
+            lexeme = getText().toString();
+        }
         return lexeme;
     }
 
@@ -34,21 +66,119 @@ public class Token {
         this.lexeme = lexeme;
     }
 
+    // Lexema sem cópia: uma visão do fonte enquanto ele não foi materializado.
+    // O lexema de uma string é o conteúdo entre as aspas
+    public CharSequence getText() {
+        if (lexeme != null || source == null) {
+            return lexeme;
+        }
+        return type == TipoToken.STRING
+            ? CharBuffer.wrap(source, start + 1, end - 1)
+            : CharBuffer.wrap(source, start, end);
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
     public int getLine() {
+        fixarPosicao();
         return line;
     }
 
     public void setLine(int line) {
+        fixarPosicao();
         this.line = line;
     }
 
     public int getColumn() {
+        fixarPosicao();
         return column;
     }
 
     public void setColumn(int column) {
+        fixarPosicao();
         this.column = column;
     }
+
+    // Resolve linha e coluna no LineMap uma única vez, desligando o token dele
+    private void fixarPosicao() {
+        if (linhas != null) {
+            line = linhas.line(start);
+            column = linhas.column(start);
+            linhas = null;
+        }
+    }
+
+    // Tipo do literal numérico, ou null se o token não for um número.
+    // Lança NumberFormatException se o texto do número não couber no tipo
+    public TipoLiteral getLiteral() {
+        if (literal == null && type == TipoToken.NUMBER) {
+            decodificar();
+        }
+        return literal;
+    }
+
+    public long getLongValue() {
+        return TokenBuffer.comoLong(getLiteral(), valor);
+    }
+
+    public double getDoubleValue() {
+        return TokenBuffer.comoDouble(getLiteral(), valor);
+    }
+
+    void setLiteral(TipoLiteral literal, long valor) {
+        this.literal = literal;
+        this.valor = valor;
+    }
+
+    long valorBruto() {
+        getLiteral();
+        return valor;
+    }
+
+    private void decodificar() {
+        String texto = getLexeme();
+        TipoLiteral tipo = TipoLiteral.of(texto);
+        if (tipo == TipoLiteral.INTEIRO) {
+            valor = Long.parseLong(texto);
+        } else {
+            double decimal = Double.parseDouble(texto);
+            if (Double.isInfinite(decimal)) {
+                throw new NumberFormatException("Numero fora do intervalo: " + texto);
+            }
+            valor = Double.doubleToRawLongBits(decimal);
+        }
+        literal = tipo;
+    }
+
+    public Operador getOperator() {
+        if (operator == null && ehOperador(type)) {
+            operator = Operador.of(getText());
+        }
+        return operator;
+    }
+
+    void setOperator(Operador operator) {
+        this.operator = operator;
+    }
+
+    static boolean ehOperador(TipoToken tipo) {
+        return tipo == TipoToken.OP_ARITHMETIC || tipo == TipoToken.OP_RELATIONAL
+            || tipo == TipoToken.OP_LOGICAL || tipo == TipoToken.OP_ASSIGNMENT;
+    }
+
+    public int getNameId() {
+        return nameId;
+    }
+
+    public void setNameId(int nameId) {
+        this.nameId = nameId;
+    }
     
     
     
@@ -56,8 +186,8 @@ public class Token {
     public String toString() {
         return String.format("Token(%s, '%s', linha:%d, coluna:%d)",
             type,
-            lexeme.replace("\n", "\\n").replace("\t", "\\t"),
-            line,
-            column);
+            getLexeme().replace("\n", "\\n").replace("\t", "\\t"),
+            getLine(),
+            getColumn());
     }
 }
\ No newline at end of file
@@ -0,0 +1,487 @@
+package br.edu.fesa.lexico;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+// Sequência de tokens armazenada em arrays paralelos de primitivos.
+// O lexema é um trecho do fonte; apenas lexemas que não aparecem literalmente
+// no fonte (strings com escapes, mensagens de erro, EOF) são guardados à parte;
+// o lexema de uma string sem escapes é o trecho entre as aspas.
+public final class TokenBuffer {
+    private static final TipoToken[] TIPOS = TipoToken.values();
+    private static final TipoLiteral[] LITERAIS = TipoLiteral.values();
+    private static final Operador[] OPERADORES = Operador.values();
+    private static final int CAPACIDADE_MINIMA = 16;
+
+    private final CharSequence fonte;
+    private final NamePool nomes;
+    private byte[] tipos;
+    private int[] inicios;
+    private int[] comprimentos;
+    private int[] idsNomes;
+    private byte[] estados;      // estado do lexer no início da leitura de cada token
+    private byte[] operadores;   // código do operador + 1, zero para os demais tokens
+    private int tamanho = 0;
+
+    // Linha e coluna vêm do LineMap do fonte; só tokens sem posição no fonte
+    // (criados fora do Lexer) guardam os valores explícitos
+    private LineMap linhas;
+    private int[] linhasExplicitas;
+    private int[] colunasExplicitas;
+
+    // Valores dos literais numéricos, alocados no primeiro número: o inteiro ou
+    // os bits do double, e o tipo do literal + 1 (zero para os demais tokens)
+    private long[] valores;
+    private byte[] literais;
+
+    // Lexemas avulsos, ordenados pelo índice do token
+    private int[] indicesAvulsos = new int[0];
+    private String[] lexemasAvulsos = new String[0];
+    private int totalAvulsos = 0;
+
+    public TokenBuffer(CharSequence fonte) {
+        this(fonte, CAPACIDADE_MINIMA);
+    }
+
+    public TokenBuffer(CharSequence fonte, int capacidade) {
+        this(fonte, null, capacidade);
+    }
+
+    public TokenBuffer(CharSequence fonte, NamePool nomes, int capacidade) {
+        this(fonte, nomes, null, capacidade);
+    }
+
+    public TokenBuffer(CharSequence fonte, NamePool nomes, LineMap linhas, int capacidade) {
+        this.fonte = fonte;
+        this.nomes = nomes;
+        this.linhas = linhas;
+        capacidade = Math.max(CAPACIDADE_MINIMA, capacidade);
+        this.tipos = new byte[capacidade];
+        this.inicios = new int[capacidade];
+        this.comprimentos = new int[capacidade];
+        this.idsNomes = new int[capacidade];
+        this.estados = new byte[capacidade];
+        this.operadores = new byte[capacidade];
+    }
+
+    // Converte uma lista de tokens já criados; os lexemas ficam todos avulsos
+    public static TokenBuffer of(List<Token> tokens) {
+        TokenBuffer buffer = semFonte(null, tokens.size());
+        for (Token token : tokens) {
+            buffer.guardarAvulso(token.getLexeme());
+            buffer.acrescentar(token.type, -1, 0, token.nameId);
+            if (token.type == TipoToken.NUMBER) {
+                try {
+                    buffer.marcarLiteral(token.getLiteral(), token.valorBruto());
+                } catch (NumberFormatException e) {
+                    // fica sem valor; a análise semântica reporta o número inválido
+                }
+            }
+            if (token.getOperator() != null) {
+                buffer.setOperator(buffer.tamanho - 1, token.getOperator());
+            }
+            buffer.setPosition(buffer.tamanho - 1, token.getLine(), token.getColumn());
+        }
+        return buffer;
+    }
+
+    // Buffer cujos tokens guardam linha e coluna explícitas, fixadas por setPosition
+    static TokenBuffer semFonte(NamePool nomes, int capacidade) {
+        TokenBuffer buffer = new TokenBuffer(null, nomes, capacidade);
+        buffer.linhasExplicitas = new int[buffer.tipos.length];
+        buffer.colunasExplicitas = new int[buffer.tipos.length];
+        return buffer;
+    }
+
+    void setPosition(int i, int linha, int coluna) {
+        linhasExplicitas[i] = linha;
+        colunasExplicitas[i] = coluna;
+    }
+
+    public void add(TipoToken tipo, int inicio, int comprimento) {
+        acrescentar(tipo, inicio, comprimento, -1);
+    }
+
+    public void add(TipoToken tipo, int inicio, int comprimento, String lexema) {
+        guardarAvulso(lexema);
+        acrescentar(tipo, inicio, comprimento, -1);
+    }
+
+    // Número já decodificado; valor é o inteiro ou os bits do double
+    void addNumber(int inicio, int comprimento, TipoLiteral literal, long valor) {
+        acrescentar(TipoToken.NUMBER, inicio, comprimento, -1);
+        marcarLiteral(literal, valor);
+    }
+
+    void marcarLiteral(TipoLiteral literal, long valor) {
+        if (valores == null) {
+            valores = new long[tipos.length];
+            literais = new byte[tipos.length];
+        }
+        valores[tamanho - 1] = valor;
+        literais[tamanho - 1] = (byte) (literal.ordinal() + 1);
+    }
+
+    // Identificador cujo texto está internado no NamePool
+    public void addName(int nameId, int inicio, int comprimento) {
+        acrescentar(TipoToken.IDENTIFIER, inicio, comprimento, nameId);
+    }
+
+    private void acrescentar(TipoToken tipo, int inicio, int comprimento, int nameId) {
+        if (tamanho == tipos.length) {
+            crescer();
+        }
+        tipos[tamanho] = (byte) tipo.ordinal();
+        inicios[tamanho] = inicio;
+        comprimentos[tamanho] = comprimento;
+        if (literais != null) {
+            literais[tamanho] = 0;
+        }
+        idsNomes[tamanho] = nameId;
+        estados[tamanho] = 0;
+        operadores[tamanho] = 0;
+        tamanho++;
+    }
+
+    // Copia os tokens [de, ate) de outro buffer em bloco, deslocando sua
+    // posição no fonte
+    void copyRange(TokenBuffer origem, int de, int ate, int deltaInicio) {
+        int n = ate - de;
+        if (n <= 0) {
+            return;
+        }
+        while (tamanho + n > tipos.length) {
+            crescer();
+        }
+        System.arraycopy(origem.tipos, de, tipos, tamanho, n);
+        System.arraycopy(origem.inicios, de, inicios, tamanho, n);
+        if (deltaInicio != 0) {
+            for (int i = tamanho, fim = tamanho + n; i < fim; i++) {
+                inicios[i] += deltaInicio;
+            }
+        }
+        System.arraycopy(origem.comprimentos, de, comprimentos, tamanho, n);
+        System.arraycopy(origem.idsNomes, de, idsNomes, tamanho, n);
+        System.arraycopy(origem.estados, de, estados, tamanho, n);
+        System.arraycopy(origem.operadores, de, operadores, tamanho, n);
+        if (origem.valores != null) {
+            if (valores == null) {
+                valores = new long[tipos.length];
+                literais = new byte[tipos.length];
+            }
+            System.arraycopy(origem.valores, de, valores, tamanho, n);
+            System.arraycopy(origem.literais, de, literais, tamanho, n);
+        } else if (literais != null) {
+            Arrays.fill(literais, tamanho, tamanho + n, (byte) 0);
+        }
+        int avulso = Arrays.binarySearch(origem.indicesAvulsos, 0, origem.totalAvulsos, de);
+        for (avulso = avulso >= 0 ? avulso : -avulso - 1;
+             avulso < origem.totalAvulsos && origem.indicesAvulsos[avulso] < ate; avulso++) {
+            guardarAvulso(tamanho + origem.indicesAvulsos[avulso] - de, origem.lexemasAvulsos[avulso]);
+        }
+        tamanho += n;
+    }
+
+    private void guardarAvulso(String lexema) {
+        guardarAvulso(tamanho, lexema);
+    }
+
+    private void guardarAvulso(int indice, String lexema) {
+        if (totalAvulsos == indicesAvulsos.length) {
+            int capacidade = Math.max(4, totalAvulsos * 2);
+            indicesAvulsos = Arrays.copyOf(indicesAvulsos, capacidade);
+            lexemasAvulsos = Arrays.copyOf(lexemasAvulsos, capacidade);
+        }
+        indicesAvulsos[totalAvulsos] = indice;
+        lexemasAvulsos[totalAvulsos] = lexema;
+        totalAvulsos++;
+    }
+
+    private void crescer() {
+        int capacidade = tipos.length * 2;
+        tipos = Arrays.copyOf(tipos, capacidade);
+        inicios = Arrays.copyOf(inicios, capacidade);
+        comprimentos = Arrays.copyOf(comprimentos, capacidade);
+        if (valores != null) {
+            valores = Arrays.copyOf(valores, capacidade);
+            literais = Arrays.copyOf(literais, capacidade);
+        }
+        if (linhasExplicitas != null) {
+            linhasExplicitas = Arrays.copyOf(linhasExplicitas, capacidade);
+            colunasExplicitas = Arrays.copyOf(colunasExplicitas, capacidade);
+        }
+        idsNomes = Arrays.copyOf(idsNomes, capacidade);
+        estados = Arrays.copyOf(estados, capacidade);
+        operadores = Arrays.copyOf(operadores, capacidade);
+    }
+
+    public int size() {
+        return tamanho;
+    }
+
+    public CharSequence getSource() {
+        return fonte;
+    }
+
+    public NamePool getNamePool() {
+        return nomes;
+    }
+
+    // Construído na primeira consulta quando o buffer não recebeu um; null se
+    // os tokens não têm posição no fonte
+    public LineMap getLineMap() {
+        if (linhas == null && fonte != null && linhasExplicitas == null) {
+            linhas = LineMap.of(fonte);
+        }
+        return linhas;
+    }
+
+    public TipoToken type(int i) {
+        return TIPOS[tipos[i]];
+    }
+
+    public int start(int i) {
+        return inicios[i];
+    }
+
+    public int length(int i) {
+        return comprimentos[i];
+    }
+
+    public int line(int i) {
+        return linhasExplicitas != null ? linhasExplicitas[i] : getLineMap().line(inicios[i]);
+    }
+
+    public int column(int i) {
+        return colunasExplicitas != null ? colunasExplicitas[i] : getLineMap().column(inicios[i]);
+    }
+
+    // Ordinal de Lexer.State no início da leitura do token
+    int state(int i) {
+        return estados[i];
+    }
+
+    void setState(int i, int estado) {
+        estados[i] = (byte) estado;
+    }
+
+    // Código do operador; tokens acrescentados sem código o obtêm do lexema
+    public Operador operator(int i) {
+        if (operadores[i] == 0) {
+            if (!Token.ehOperador(TIPOS[tipos[i]])) {
+                return null;
+            }
+            Operador operador = Operador.of(lexeme(i));
+            if (operador == null) {
+                return null;
+            }
+            setOperator(i, operador);
+        }
+        return OPERADORES[operadores[i] - 1];
+    }
+
+    void setOperator(int i, Operador operador) {
+        operadores[i] = (byte) (operador.ordinal() + 1);
+    }
+
+    // Tipo do literal numérico decodificado pelo lexer, ou null
+    public TipoLiteral literal(int i) {
+        return literais != null && literais[i] != 0 ? LITERAIS[literais[i] - 1] : null;
+    }
+
+    public long longValue(int i) {
+        return comoLong(literal(i), valores != null ? valores[i] : 0);
+    }
+
+    public double doubleValue(int i) {
+        return comoDouble(literal(i), valores != null ? valores[i] : 0);
+    }
+
+    static long comoLong(TipoLiteral literal, long valor) {
+        return literal == TipoLiteral.DECIMAL ? (long) Double.longBitsToDouble(valor) : valor;
+    }
+
+    static double comoDouble(TipoLiteral literal, long valor) {
+        return literal == TipoLiteral.DECIMAL ? Double.longBitsToDouble(valor) : valor;
+    }
+
+    // Id do identificador no NamePool, ou -1
+    public int nameId(int i) {
+        return idsNomes[i];
+    }
+
+    public String lexeme(int i) {
+        if (idsNomes[i] >= 0 && nomes != null) {
+            return nomes.name(idsNomes[i]);
+        }
+        int avulso = buscarAvulso(i);
+        if (avulso >= 0) {
+            return lexemasAvulsos[avulso];
+        }
+        return fonte.subSequence(inicioLexema(i), fimLexema(i)).toString();
+    }
+
+    private int inicioLexema(int i) {
+        return tipos[i] == TipoToken.STRING.ordinal() ? inicios[i] + 1 : inicios[i];
+    }
+
+    private int fimLexema(int i) {
+        int fim = inicios[i] + comprimentos[i];
+        return tipos[i] == TipoToken.STRING.ordinal() ? fim - 1 : fim;
+    }
+
+    // Compara o lexema sem materializá-lo
+    public boolean lexemeEquals(int i, String texto) {
+        if (idsNomes[i] >= 0 && nomes != null && fonte == null) {
+            return nomes.name(idsNomes[i]).equals(texto);
+        }
+        int avulso = buscarAvulso(i);
+        if (avulso >= 0) {
+            return lexemasAvulsos[avulso].equals(texto);
+        }
+        int inicio = inicioLexema(i);
+        int comprimento = fimLexema(i) - inicio;
+        if (comprimento != texto.length()) {
+            return false;
+        }
+        for (int k = 0; k < comprimento; k++) {
+            if (fonte.charAt(inicio + k) != texto.charAt(k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int buscarAvulso(int i) {
+        if (totalAvulsos == 0) {
+            return -1;
+        }
+        int idx = Arrays.binarySearch(indicesAvulsos, 0, totalAvulsos, i);
+        return idx >= 0 ? idx : -1;
+    }
+
+    public Token token(int i) {
+        Token token;
+        if (linhasExplicitas != null) {
+            token = new Token(type(i), lexeme(i), linhasExplicitas[i], colunasExplicitas[i]);
+        } else {
+            token = new Token(type(i), fonte, inicios[i], inicios[i] + comprimentos[i], getLineMap());
+            if ((idsNomes[i] >= 0 && nomes != null) || buscarAvulso(i) >= 0) {
+                token.setLexeme(lexeme(i));
+            }
+        }
+        token.nameId = idsNomes[i];
+        if (literal(i) != null) {
+            token.setLiteral(literal(i), valores[i]);
+        }
+        token.setOperator(operator(i));
+        return token;
+    }
+
+    // Percorre o buffer como TokenSource, sem criar objetos Token
+    public TokenSource cursor() {
+        return new Cursor();
+    }
+
+    // Visão de compatibilidade: cada acesso cria o Token correspondente
+    public List<Token> asList() {
+        return new Visao();
+    }
+
+    private final class Visao extends AbstractList<Token> implements RandomAccess {
+        @Override
+        public Token get(int index) {
+            if (index < 0 || index >= tamanho) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return token(index);
+        }
+
+        @Override
+        public int size() {
+            return tamanho;
+        }
+    }
+
+    private final class Cursor implements TokenSource {
+        private int pos = 0;
+
+        @Override
+        public TipoToken type(int k) {
+            int i = pos + k;
+            return i < tamanho ? TIPOS[tipos[i]] : TipoToken.EOF;
+        }
+
+        @Override
+        public String lexeme(int k) {
+            int i = pos + k;
+            return i < tamanho ? TokenBuffer.this.lexeme(i) : "$";
+        }
+
+        @Override
+        public boolean lexemeEquals(int k, String texto) {
+            int i = pos + k;
+            return i < tamanho ? TokenBuffer.this.lexemeEquals(i, texto) : texto.equals("$");
+        }
+
+        @Override
+        public int line(int k) {
+            int i = pos + k;
+            return i < tamanho ? TokenBuffer.this.line(i) : -1;
+        }
+
+        @Override
+        public int column(int k) {
+            int i = pos + k;
+            return i < tamanho ? TokenBuffer.this.column(i) : -1;
+        }
+
+        @Override
+        public int offset(int k) {
+            int i = pos + k;
+            return i < tamanho ? inicios[i] : -1;
+        }
+
+        @Override
+        public LineMap lineMap() {
+            return getLineMap();
+        }
+
+        @Override
+        public TipoLiteral literal(int k) {
+            int i = pos + k;
+            return i < tamanho ? TokenBuffer.this.literal(i) : null;
+        }
+
+        @Override
+        public long longValue(int k) {
+            int i = pos + k;
+            return i < tamanho ? TokenBuffer.this.longValue(i) : 0;
+        }
+
+        @Override
+        public double doubleValue(int k) {
+            int i = pos + k;
+            return i < tamanho ? TokenBuffer.this.doubleValue(i) : 0;
+        }
+
+        @Override
+        public Operador operator(int k) {
+            int i = pos + k;
+            return i < tamanho ? TokenBuffer.this.operator(i) : null;
+        }
+
+        @Override
+        public int nameId(int k) {
+            int i = pos + k;
+            return i < tamanho ? idsNomes[i] : -1;
+        }
+
+        @Override
+        public void advance() {
+            pos++;
+        }
+    }
+}
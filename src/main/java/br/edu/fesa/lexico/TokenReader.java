@@ -0,0 +1,280 @@
+package br.edu.fesa.lexico;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+// Lê os tokens gravados por TokenWriter. Abrir o arquivo lê só o cabeçalho,
+// o LineMap e onde começa cada texto; tokenSource() decodifica os tokens à
+// medida que o Parser avança, e toTokenBuffer() materializa todos de uma vez.
+// Nomes são internados no NamePool informado na primeira vez que aparecem
+public final class TokenReader {
+    private static final TipoToken[] TIPOS = TipoToken.values();
+    private static final Operador[] OPERADORES = Operador.values();
+    private static final TipoLiteral[] LITERAIS = TipoLiteral.values();
+
+    private final BinaryReader leitor;
+    private final NamePool nomes;
+    private final LineMap linhas;
+    private final int total;
+    private final int inicioTokens;
+    private final int[] idsPorTexto; // nameId de cada texto, -1 até ser internado
+
+    public TokenReader(ByteBuffer bytes, NamePool nomes) {
+        this(new BinaryReader(bytes), nomes);
+    }
+
+    private TokenReader(BinaryReader leitor, NamePool nomes) {
+        this.leitor = leitor;
+        this.nomes = nomes;
+        if (leitor.readInt() != TokenWriter.ASSINATURA) {
+            throw new IllegalArgumentException("Arquivo nao contem tokens gravados por TokenWriter");
+        }
+        boolean explicitas = (leitor.readByte() & TokenWriter.POSICOES_EXPLICITAS) != 0;
+        total = leitor.readVarint();
+        linhas = explicitas ? null : leitor.readLineMap();
+        leitor.readTextTable();
+        inicioTokens = leitor.position();
+        idsPorTexto = new int[leitor.textCount()];
+        Arrays.fill(idsPorTexto, -1);
+    }
+
+    public static TokenReader open(Path arquivo) throws IOException {
+        return open(arquivo, new NamePool());
+    }
+
+    public static TokenReader open(Path arquivo, NamePool nomes) throws IOException {
+        return new TokenReader(BinaryReader.map(arquivo), nomes);
+    }
+
+    public int size() {
+        return total;
+    }
+
+    // null se os tokens foram gravados com linha e coluna explícitas
+    public LineMap getLineMap() {
+        return linhas;
+    }
+
+    public NamePool getNamePool() {
+        return nomes;
+    }
+
+    public TokenSource tokenSource() {
+        return new Cursor();
+    }
+
+    public TokenBuffer toTokenBuffer() {
+        TokenBuffer buffer = linhas != null
+            ? new TokenBuffer(null, nomes, linhas, total)
+            : TokenBuffer.semFonte(nomes, total);
+        Decodificado token = new Decodificado();
+        leitor.position(inicioTokens);
+        for (int i = 0; i < total; i++) {
+            token.ler();
+            if (token.nameId >= 0) {
+                buffer.addName(token.nameId, token.inicio, token.comprimento);
+            } else {
+                buffer.add(TIPOS[token.tipo], token.inicio, token.comprimento, leitor.text(token.texto));
+            }
+            if (token.literal >= 0) {
+                buffer.marcarLiteral(LITERAIS[token.literal], token.valor);
+            }
+            if (token.operador >= 0) {
+                buffer.setOperator(i, OPERADORES[token.operador]);
+            }
+            if (linhas == null) {
+                buffer.setPosition(i, token.linha, token.coluna);
+            }
+        }
+        return buffer;
+    }
+
+    private int internar(int texto) {
+        if (idsPorTexto[texto] < 0) {
+            idsPorTexto[texto] = nomes.intern(leitor.text(texto));
+        }
+        return idsPorTexto[texto];
+    }
+
+    // Campos de um token lido na posição atual do leitor; a posição no fonte
+    // é relativa ao token anterior, por isso a leitura é sempre em sequência
+    private final class Decodificado {
+        int tipo;
+        int inicio = -1;
+        int comprimento;
+        int linha = 1;
+        int coluna;
+        int texto;
+        int nameId;
+        int operador;
+        int literal;
+        long valor;
+        private int fimAnterior = 0;
+
+        void ler() {
+            int cabecalho = leitor.readByte();
+            tipo = cabecalho & TokenWriter.MASCARA_TIPO;
+            if (linhas != null) {
+                inicio = fimAnterior + leitor.readSignedVarint();
+                comprimento = leitor.readVarint();
+                fimAnterior = inicio + comprimento;
+            } else {
+                linha += leitor.readSignedVarint();
+                coluna = leitor.readVarint();
+            }
+            texto = leitor.readVarint();
+            nameId = (cabecalho & TokenWriter.COM_NOME) != 0 && nomes != null ? internar(texto) : -1;
+            operador = (cabecalho & TokenWriter.COM_OPERADOR) != 0 ? leitor.readByte() : -1;
+            literal = -1;
+            if ((cabecalho & TokenWriter.COM_LITERAL) != 0) {
+                literal = leitor.readByte();
+                valor = literal == TipoLiteral.DECIMAL.ordinal() ? leitor.readLong() : leitor.readSignedVarlong();
+            }
+        }
+
+        void copiar(Decodificado outro) {
+            tipo = outro.tipo;
+            inicio = outro.inicio;
+            comprimento = outro.comprimento;
+            linha = outro.linha;
+            coluna = outro.coluna;
+            texto = outro.texto;
+            nameId = outro.nameId;
+            operador = outro.operador;
+            literal = outro.literal;
+            valor = outro.valor;
+        }
+    }
+
+    // Decodifica os tokens sob demanda numa janela circular com o token atual
+    // e os já espiados à frente
+    private final class Cursor implements TokenSource {
+        private Decodificado[] janela = new Decodificado[4];
+        private final Decodificado proximo = new Decodificado(); // estado da leitura sequencial
+        private int posicaoLeitura = inicioTokens;
+        private int pos = 0;   // índice do token atual
+        private int lidos = 0; // tokens já decodificados
+
+        private Cursor() {
+            for (int j = 0; j < janela.length; j++) {
+                janela[j] = new Decodificado();
+            }
+        }
+
+        // Token pos + k decodificado, ou null depois do último
+        private Decodificado olhar(int k) {
+            int i = pos + k;
+            if (i >= total) {
+                return null;
+            }
+            if (k >= janela.length) {
+                ampliar(k + 1);
+            }
+            while (lidos <= i) {
+                int p = leitor.position();
+                leitor.position(posicaoLeitura);
+                proximo.ler();
+                posicaoLeitura = leitor.position();
+                leitor.position(p);
+                janela[lidos % janela.length].copiar(proximo);
+                lidos++;
+            }
+            return janela[i % janela.length];
+        }
+
+        private void ampliar(int minimo) {
+            int capacidade = Math.max(janela.length * 2, minimo);
+            Decodificado[] nova = new Decodificado[capacidade];
+            for (int i = 0; i < capacidade; i++) {
+                nova[i] = new Decodificado();
+            }
+            for (int i = pos; i < lidos; i++) {
+                nova[i % capacidade].copiar(janela[i % janela.length]);
+            }
+            janela = nova;
+        }
+
+        @Override
+        public TipoToken type(int k) {
+            Decodificado token = olhar(k);
+            return token != null ? TIPOS[token.tipo] : TipoToken.EOF;
+        }
+
+        @Override
+        public String lexeme(int k) {
+            Decodificado token = olhar(k);
+            return token != null ? leitor.text(token.texto) : "$";
+        }
+
+        @Override
+        public boolean lexemeEquals(int k, String texto) {
+            return lexeme(k).equals(texto);
+        }
+
+        @Override
+        public int line(int k) {
+            Decodificado token = olhar(k);
+            if (token == null) {
+                return -1;
+            }
+            return linhas != null ? linhas.line(token.inicio) : token.linha;
+        }
+
+        @Override
+        public int column(int k) {
+            Decodificado token = olhar(k);
+            if (token == null) {
+                return -1;
+            }
+            return linhas != null ? linhas.column(token.inicio) : token.coluna;
+        }
+
+        @Override
+        public int offset(int k) {
+            Decodificado token = olhar(k);
+            return token != null ? token.inicio : -1;
+        }
+
+        @Override
+        public LineMap lineMap() {
+            return linhas;
+        }
+
+        @Override
+        public int nameId(int k) {
+            Decodificado token = olhar(k);
+            return token != null ? token.nameId : -1;
+        }
+
+        @Override
+        public TipoLiteral literal(int k) {
+            Decodificado token = olhar(k);
+            return token != null && token.literal >= 0 ? LITERAIS[token.literal] : null;
+        }
+
+        @Override
+        public long longValue(int k) {
+            TipoLiteral literal = literal(k);
+            return literal != null ? TokenBuffer.comoLong(literal, olhar(k).valor) : 0;
+        }
+
+        @Override
+        public double doubleValue(int k) {
+            TipoLiteral literal = literal(k);
+            return literal != null ? TokenBuffer.comoDouble(literal, olhar(k).valor) : 0;
+        }
+
+        @Override
+        public Operador operator(int k) {
+            Decodificado token = olhar(k);
+            return token != null && token.operador >= 0 ? OPERADORES[token.operador] : null;
+        }
+
+        @Override
+        public void advance() {
+            pos++;
+        }
+    }
+}
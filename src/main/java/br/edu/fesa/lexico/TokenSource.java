@@ -0,0 +1,44 @@
+package br.edu.fesa.lexico;
+
+// Fonte de tokens consumida sob demanda pelo Parser. O parâmetro k indica quantos
+// tokens à frente do atual olhar (0 = atual); depois do último token toda
+// consulta se comporta como EOF.
+public interface TokenSource {
+
+    TipoToken type(int k);
+
+    String lexeme(int k);
+
+    boolean lexemeEquals(int k, String texto);
+
+    int line(int k);
+
+    int column(int k);
+
+    // Deslocamento do token no fonte, ou -1 se a fonte não tiver posições
+    int offset(int k);
+
+    // Mapa usado para resolver os deslocamentos em linha e coluna, ou null
+    LineMap lineMap();
+
+    int nameId(int k);
+
+    // Tipo do literal numérico já decodificado pelo lexer, ou null
+    TipoLiteral literal(int k);
+
+    long longValue(int k);
+
+    double doubleValue(int k);
+
+    // Código do operador atribuído pelo lexer, ou null se o token não for operador
+    Operador operator(int k);
+
+    void advance();
+
+    // Token atual como objeto, para mensagens de erro
+    default Token token() {
+        Token token = new Token(type(0), lexeme(0), line(0), column(0));
+        token.nameId = nameId(0);
+        return token;
+    }
+}
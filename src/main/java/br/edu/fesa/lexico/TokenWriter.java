@@ -0,0 +1,113 @@
+package br.edu.fesa.lexico;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Grava a saída do Lexer num formato binário compacto, lido por TokenReader
+// sem precisar do fonte:
+//
+//   int    'T' 'K' 'N' versão
+//   byte   POSICOES_EXPLICITAS se os tokens não têm deslocamento no fonte
+//   varint total de tokens
+//   LineMap (só com deslocamentos) e tabela de textos
+//   tokens: byte tipo | flags; posição; varint índice do lexema na tabela;
+//           [byte operador]; [byte literal + valor]
+//
+// A posição é a distância (zigzag) do fim do token anterior mais o
+// comprimento, ou, com posições explícitas, a diferença de linha e a coluna.
+// Lexemas repetidos (nomes, operadores) ocupam uma só entrada da tabela
+public final class TokenWriter {
+    // O último byte é a versão do formato: muda junto com ele e com qualquer
+    // mudança em TipoToken, Operador ou TipoLiteral, cujos ordinais são gravados
+    static final int ASSINATURA = 'T' << 24 | 'K' << 16 | 'N' << 8 | 2;
+    static final int POSICOES_EXPLICITAS = 1;
+
+    // Flags somadas ao ordinal do tipo, que cabe nos 5 bits baixos
+    static final int COM_OPERADOR = 0x20;
+    static final int COM_LITERAL = 0x40;
+    static final int COM_NOME = 0x80;
+    static final int MASCARA_TIPO = 0x1F;
+
+    // Um tipo novo que não caiba na máscara invadiria os bits das flags
+    static {
+        if (TipoToken.values().length > MASCARA_TIPO + 1
+                || Operador.values().length > 0xFF || TipoLiteral.values().length > 0xFF) {
+            throw new IllegalStateException("Ordinais não cabem no formato de TokenWriter");
+        }
+    }
+
+    private TokenWriter() {
+    }
+
+    public static byte[] encode(TokenBuffer buffer) {
+        return codificar(buffer).toByteArray();
+    }
+
+    public static void write(TokenBuffer buffer, Path arquivo) throws IOException {
+        codificar(buffer).writeTo(arquivo);
+    }
+
+    public static void write(List<Token> tokens, Path arquivo) throws IOException {
+        write(TokenBuffer.of(tokens), arquivo);
+    }
+
+    private static BinaryWriter codificar(TokenBuffer buffer) {
+        LineMap linhas = buffer.getLineMap();
+        List<String> textos = new ArrayList<>();
+        Map<String, Integer> indices = new HashMap<>();
+        // O corpo é gravado antes da tabela, que só fica completa no fim
+        BinaryWriter corpo = new BinaryWriter(buffer.size() * 4);
+        int fimAnterior = 0;
+        int linhaAnterior = 1;
+        for (int i = 0; i < buffer.size(); i++) {
+            Operador operador = buffer.operator(i);
+            TipoLiteral literal = buffer.literal(i);
+            boolean nome = buffer.nameId(i) >= 0 && buffer.getNamePool() != null;
+            corpo.writeByte(buffer.type(i).ordinal() | (operador != null ? COM_OPERADOR : 0)
+                          | (literal != null ? COM_LITERAL : 0) | (nome ? COM_NOME : 0));
+            if (linhas != null) {
+                corpo.writeSignedVarint(buffer.start(i) - fimAnterior);
+                corpo.writeVarint(buffer.length(i));
+                fimAnterior = buffer.start(i) + buffer.length(i);
+            } else {
+                corpo.writeSignedVarint(buffer.line(i) - linhaAnterior);
+                corpo.writeVarint(buffer.column(i));
+                linhaAnterior = buffer.line(i);
+            }
+            String lexema = buffer.lexeme(i);
+            Integer indice = indices.get(lexema);
+            if (indice == null) {
+                indice = textos.size();
+                indices.put(lexema, indice);
+                textos.add(lexema);
+            }
+            corpo.writeVarint(indice);
+            if (operador != null) {
+                corpo.writeByte(operador.ordinal());
+            }
+            if (literal != null) {
+                corpo.writeByte(literal.ordinal());
+                if (literal == TipoLiteral.DECIMAL) {
+                    corpo.writeLong(Double.doubleToRawLongBits(buffer.doubleValue(i)));
+                } else {
+                    corpo.writeSignedVarlong(buffer.longValue(i));
+                }
+            }
+        }
+
+        BinaryWriter saida = new BinaryWriter(corpo.size() + textos.size() * 8 + 64);
+        saida.writeInt(ASSINATURA);
+        saida.writeByte(linhas == null ? POSICOES_EXPLICITAS : 0);
+        saida.writeVarint(buffer.size());
+        if (linhas != null) {
+            saida.writeLineMap(linhas);
+        }
+        saida.writeTextTable(textos);
+        saida.write(corpo);
+        return saida;
+    }
+}
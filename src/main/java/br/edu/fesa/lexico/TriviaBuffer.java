@@ -0,0 +1,57 @@
+package br.edu.fesa.lexico;
+
+import java.util.Arrays;
+
+// Canal opcional com os trechos que o Lexer descarta: espaços em branco e
+// comentários. Cada trecho é só um intervalo [início, fim) do fonte; nenhum
+// Token é criado para eles.
+public final class TriviaBuffer {
+    private static final TipoToken[] TIPOS = TipoToken.values();
+
+    private final CharSequence fonte;
+    private byte[] tipos = new byte[16];
+    private int[] inicios = new int[16];
+    private int[] fins = new int[16];
+    private int tamanho = 0;
+
+    TriviaBuffer(CharSequence fonte) {
+        this.fonte = fonte;
+    }
+
+    void add(TipoToken tipo, int inicio, int fim) {
+        if (tamanho == tipos.length) {
+            tipos = Arrays.copyOf(tipos, tamanho * 2);
+            inicios = Arrays.copyOf(inicios, tamanho * 2);
+            fins = Arrays.copyOf(fins, tamanho * 2);
+        }
+        tipos[tamanho] = (byte) tipo.ordinal();
+        inicios[tamanho] = inicio;
+        fins[tamanho] = fim;
+        tamanho++;
+    }
+
+    public int size() {
+        return tamanho;
+    }
+
+    // WHITESPACE, LINE_COMMENT ou BLOCK_COMMENT
+    public TipoToken type(int i) {
+        return TIPOS[tipos[i]];
+    }
+
+    public int start(int i) {
+        return inicios[i];
+    }
+
+    public int end(int i) {
+        return fins[i];
+    }
+
+    // Texto do trecho; indisponível na leitura por janela, que não guarda o fonte
+    public CharSequence text(int i) {
+        if (fonte == null) {
+            throw new IllegalStateException("Fonte nao disponivel na leitura por janela");
+        }
+        return fonte.subSequence(inicios[i], fins[i]);
+    }
+}
@@ -1,26 +1,47 @@
 package br.edu.fesa.semantico;
 
+import br.edu.fesa.lexico.LineMap;
+
 public class MensagemErro {
+    private final int posicao;     // deslocamento no fonte, quando há LineMap
+    private final LineMap linhas;
     private final int linha;
     private final int coluna;
     private final String codigo;
     private final String mensagem;
     
     public MensagemErro(int linha, int coluna, String codigo, String mensagem) {
+        this(-1, null, linha, coluna, codigo, mensagem);
+    }
+    
+    // Linha e coluna só são calculadas quando a mensagem é exibida
+    public MensagemErro(int posicao, LineMap linhas, String codigo, String mensagem) {
+        this(posicao, linhas, 0, 0, codigo, mensagem);
+    }
+    
+    private MensagemErro(int posicao, LineMap linhas, int linha, int coluna, String codigo, String mensagem) {
+        this.posicao = posicao;
+        this.linhas = linhas;
         this.linha = linha;
         this.coluna = coluna;
         this.codigo = codigo;
         this.mensagem = mensagem;
     }
     
+    // Mesma posição, outro texto
+    public MensagemErro comMensagem(String mensagem) {
+        return new MensagemErro(posicao, linhas, linha, coluna, codigo, mensagem);
+    }
+    
     @Override
     public String toString() {
-        return String.format("[%d:%d] %s: %s", linha, coluna, codigo, mensagem);
+        return String.format("[%d:%d] %s: %s", getLinha(), getColuna(), codigo, mensagem);
     }
     
     // Getters
-    public int getLinha() { return linha; }
-    public int getColuna() { return coluna; }
+    public int getLinha() { return linhas != null ? linhas.line(posicao) : linha; }
+    public int getColuna() { return linhas != null ? linhas.column(posicao) : coluna; }
+    public int getPosicao() { return posicao; }
     public String getCodigo() { return codigo; }
     public String getMensagem() { return mensagem; }
-}
\ No newline at end of file
+}
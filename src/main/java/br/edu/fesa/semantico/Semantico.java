@@ -1,10 +1,15 @@
 package br.edu.fesa.semantico;
 
+import br.edu.fesa.lexico.NamePool;
+import br.edu.fesa.lexico.Operador;
+import br.edu.fesa.lexico.TipoLiteral;
 import br.edu.fesa.lexico.Token;
 import br.edu.fesa.semantico.Semantico.TipoDado;
 import br.edu.fesa.sintatico.ArvoreSintatica;
+import br.edu.fesa.sintatico.AstArena;
 import br.edu.fesa.sintatico.TipoNo;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -19,59 +24,77 @@ public class Semantico {
         INDEFINIDO
     }
 
+    // Tipos aceitos nos operandos, indexados pelo ordinal de TipoDado, e tipo do
+    // resultado (null quando é o tipo do operando esquerdo)
     private enum TipoOperador {
-        ARITMETICO(TipoDado.INTEIRO, TipoDado.DECIMAL),
-        RELACIONAL(TipoDado.INTEIRO, TipoDado.DECIMAL),
-        LOGICO(TipoDado.BOOLEANO),
-        COMPARACAO(null);
-
-        private final TipoDado[] tiposAceitos;
-
-        TipoOperador(TipoDado... tipos) {
-            this.tiposAceitos = tipos;
+        ARITMETICO(null, TipoDado.INTEIRO, TipoDado.DECIMAL),
+        RELACIONAL(TipoDado.BOOLEANO, TipoDado.INTEIRO, TipoDado.DECIMAL),
+        LOGICO(TipoDado.BOOLEANO, TipoDado.BOOLEANO),
+        COMPARACAO(TipoDado.BOOLEANO, TipoDado.values());
+
+        private final TipoDado retorno;
+        private final boolean[] aceitos = new boolean[TipoDado.values().length];
+
+        TipoOperador(TipoDado retorno, TipoDado... tipos) {
+            this.retorno = retorno;
+            for (TipoDado t : tipos) {
+                aceitos[t.ordinal()] = true;
+            }
         }
 
         public boolean aceitaTipo(TipoDado tipo) {
-            if (tiposAceitos == null) {
-                return true;
-            }
-            for (TipoDado t : tiposAceitos) {
-                if (t == tipo) {
-                    return true;
-                }
-            }
-            return false;
+            return aceitos[tipo.ordinal()];
+        }
+    }
+
+    // Categoria de cada operador, indexada pelo ordinal do Operador
+    private static final TipoOperador[] CATEGORIAS = new TipoOperador[Operador.values().length];
+
+    static {
+        for (Operador op : new Operador[] {
+            Operador.SOMA, Operador.SUBTRACAO, Operador.MULTIPLICACAO, Operador.DIVISAO,
+            Operador.RESTO }) {
+            CATEGORIAS[op.ordinal()] = TipoOperador.ARITMETICO;
+        }
+        for (Operador op : new Operador[] {
+            Operador.MENOR, Operador.MAIOR, Operador.MENOR_IGUAL, Operador.MAIOR_IGUAL }) {
+            CATEGORIAS[op.ordinal()] = TipoOperador.RELACIONAL;
         }
+        for (Operador op : new Operador[] { Operador.E_LOGICO, Operador.OU_LOGICO, Operador.NEGACAO }) {
+            CATEGORIAS[op.ordinal()] = TipoOperador.LOGICO;
+        }
+        CATEGORIAS[Operador.IGUAL.ordinal()] = TipoOperador.COMPARACAO;
+        CATEGORIAS[Operador.DIFERENTE.ordinal()] = TipoOperador.COMPARACAO;
     }
 
-    private final TabelaDeSimbolos tabelaSimbolos = new TabelaDeSimbolos();
+    private final TabelaDeSimbolos tabelaSimbolos;
+    private final boolean idsDaArvore; // ids dos nós vêm do mesmo NamePool da tabela
     private final List<MensagemErro> erros = new ArrayList<>();
-    private final ArvoreSintatica arvore;
+    private final AstArena arena;
     private final List<Token> tokens;
     private final Map<String, Funcao> funcoes = new HashMap<>();
-    private final Map<String, TipoOperador> operadores = new HashMap<>();
+    // Nós cuja subárvore já foi analisada sem erros: outra ocorrência de um nó
+    // compartilhado reaproveita o tipo. Com erros, cada ocorrência é analisada
+    // de novo para apontá-los na sua própria posição
+    private boolean[] limpos;
 
     public Semantico(ArvoreSintatica arvore, List<Token> tokens) {
-        this.arvore = arvore;
-        this.tokens = tokens;
-        inicializarOperadores();
-        inicializarFuncoesPredefinidas();
+        this(arvore, tokens, null);
     }
 
-    private void inicializarOperadores() {
-        operadores.put("+", TipoOperador.ARITMETICO);
-        operadores.put("-", TipoOperador.ARITMETICO);
-        operadores.put("*", TipoOperador.ARITMETICO);
-        operadores.put("/", TipoOperador.ARITMETICO);
-        operadores.put("<", TipoOperador.RELACIONAL);
-        operadores.put(">", TipoOperador.RELACIONAL);
-        operadores.put("<=", TipoOperador.RELACIONAL);
-        operadores.put(">=", TipoOperador.RELACIONAL);
-        operadores.put("&&", TipoOperador.LOGICO);
-        operadores.put("||", TipoOperador.LOGICO);
-        operadores.put("!", TipoOperador.LOGICO);
-        operadores.put("==", TipoOperador.COMPARACAO);
-        operadores.put("!=", TipoOperador.COMPARACAO);
+    // Usa o NamePool do Lexer, de modo que os nomes são resolvidos pelos ids dos nós.
+    // A árvore é copiada para uma arena; os tipos inferidos voltam para os nós
+    public Semantico(ArvoreSintatica arvore, List<Token> tokens, NamePool nomes) {
+        this(AstArena.of(arvore), tokens, nomes);
+    }
+
+    // Percorre direto a arena emitida pelo Parser, a partir de arena.root()
+    public Semantico(AstArena arena, List<Token> tokens, NamePool nomes) {
+        this.tabelaSimbolos = new TabelaDeSimbolos(nomes != null ? nomes : new NamePool());
+        this.idsDaArvore = nomes != null;
+        this.arena = arena;
+        this.tokens = tokens;
+        inicializarFuncoesPredefinidas();
     }
 
     private void inicializarFuncoesPredefinidas() {
@@ -85,8 +108,9 @@ public class Semantico {
 
     public ResultadoAnalise analisar() {
         try {
-            construirTabelaSimbolos(arvore);
-            analisarArvore(arvore);
+            construirTabelaSimbolos(arena.root());
+            limpos = new boolean[arena.size()];
+            analisarArvore(arena.root(), arena.root() != AstArena.NENHUM ? arena.offset(arena.root()) : -1);
             verificarVariaveisNaoUtilizadas();
 
             return new ResultadoAnalise(erros.isEmpty(), cleanErrors(erros), tabelaSimbolos);
@@ -100,16 +124,20 @@ public class Semantico {
     private List<MensagemErro> cleanErrors(List<MensagemErro> erros) {
         List<MensagemErro> cleaned = new ArrayList<>();
         for (MensagemErro erro : erros) {
-            cleaned.add(new MensagemErro(
-                    erro.getLinha(),
-                    erro.getColuna(),
-                    erro.getCodigo(),
-                    cleanMessage(erro.getMensagem())
-            ));
+            cleaned.add(erro.comMensagem(cleanMessage(erro.getMensagem())));
         }
         return cleaned;
     }
 
+    // Mensagem posicionada na ocorrência do nó que está em posicao; com LineMap
+    // a linha só é resolvida ao exibir
+    private MensagemErro erro(int no, int posicao, String codigo, String mensagem) {
+        if (arena.getLineMap() != null) {
+            return new MensagemErro(posicao, arena.getLineMap(), codigo, mensagem);
+        }
+        return new MensagemErro(arena.line(no), arena.column(no), codigo, mensagem);
+    }
+
     private String cleanMessage(String message) {
         return message.replace("�", "")
                 .replace("´", "")
@@ -128,198 +156,300 @@ public class Semantico {
                 .replace("ç", "c");
     }
 
-    private void construirTabelaSimbolos(ArvoreSintatica no) {
-        if (no == null) {
-            return;
+    // Pré-ordem com uma pilha explícita: a ordem das declarações é a da versão
+    // recursiva, e a profundidade da árvore não é limitada pela pilha de chamadas
+    private void construirTabelaSimbolos(int raiz) {
+        boolean[] visitados = new boolean[arena.size()];
+        int[] pilha = new int[16];
+        int topo = -1;
+        if (raiz != AstArena.NENHUM) {
+            pilha[++topo] = raiz;
         }
+        while (topo >= 0) {
+            int no = pilha[topo--];
+            if (visitados[no]) {
+                continue;
+            }
+            visitados[no] = true;
+
+            int esquerda = arena.left(no);
+            if (arena.type(no) == TipoNo.ATRIBUICAO && esquerda != AstArena.NENHUM
+                    && arena.type(esquerda) == TipoNo.IDENTIFICADOR) {
+
+                // A primeira atribuição declara a variável; as seguintes só a atualizam
+                int nomeVar = idNome(esquerda);
+                if (!tabelaSimbolos.existeNoEscopoAtual(nomeVar)) {
+                    TipoDado tipoVar = determinarTipoExpressao(arena.right(no));
+                    tabelaSimbolos.declarar(nomeVar, tipoVar,
+                            arena.line(esquerda), arena.column(esquerda));
+                }
+            }
 
-        if (no.getTipo() == TipoNo.ATRIBUICAO && no.getEsquerda() != null
-                && no.getEsquerda().getTipo() == TipoNo.IDENTIFICADOR) {
+            int filhos = 0;
+            for (int f = arena.firstChild(no); f != AstArena.NENHUM; f = arena.nextSibling(f)) {
+                filhos++;
+            }
+            if (topo + filhos + 3 >= pilha.length) {
+                pilha = Arrays.copyOf(pilha, Math.max(pilha.length * 2, topo + filhos + 3));
+            }
+            // Empilhados de trás para frente: a esquerda sai primeiro
+            int k = topo + filhos;
+            for (int f = arena.firstChild(no); f != AstArena.NENHUM; f = arena.nextSibling(f)) {
+                pilha[k--] = f;
+            }
+            topo += filhos;
+            if (arena.right(no) != AstArena.NENHUM) {
+                pilha[++topo] = arena.right(no);
+            }
+            if (esquerda != AstArena.NENHUM) {
+                pilha[++topo] = esquerda;
+            }
+        }
+    }
 
-            String nomeVar = no.getEsquerda().getValor();
-            TipoDado tipoVar = determinarTipoExpressao(no.getDireita());
+    private int idNome(int no) {
+        if (idsDaArvore && arena.nameId(no) >= 0) {
+            return arena.nameId(no);
+        }
+        return tabelaSimbolos.getNomes().intern(arena.value(no));
+    }
 
-            try {
-                tabelaSimbolos.declarar(nomeVar, tipoVar,
-                        no.getEsquerda().getLinha(), no.getEsquerda().getColuna());
-            } catch (RuntimeException e) {
-                erros.add(new MensagemErro(
-                        no.getEsquerda().getLinha(), no.getEsquerda().getColuna(),
-                        "VAR_DUPLICADA", cleanMessage(e.getMessage())));
+    // Versão iterativa da análise em pós-ordem. Cada quadro da pilha é um nó que
+    // espera o tipo de um filho: etapa conta as visitas ao quadro, e tipo é o
+    // resultado do filho que acabou de terminar
+    private TipoDado analisarArvore(int raiz, int posicaoRaiz) {
+        Quadros quadros = new Quadros();
+        List<TipoDado> argumentos = new ArrayList<>(); // tipos das chamadas abertas
+        TipoDado tipo = entrar(quadros, raiz, posicaoRaiz);
+        while (quadros.topo >= 0) {
+            int t = quadros.topo;
+            int no = quadros.nos[t];
+            int posicao = quadros.posicoes[t];
+            int etapa = quadros.etapas[t]++;
+            int proximo = AstArena.NENHUM;
+            int posicaoProximo = -1;
+            TipoDado resultado = null; // preenchido quando o nó termina
+
+            switch (arena.type(no)) {
+                case OPERADOR -> {
+                    if (etapa == 0) {
+                        proximo = arena.left(no);
+                        posicaoProximo = arena.leftOffset(no, posicao);
+                    } else if (etapa == 1 && arena.right(no) != AstArena.NENHUM) {
+                        quadros.esquerdos[t] = tipo;
+                        proximo = arena.right(no);
+                        posicaoProximo = arena.rightOffset(no, posicao);
+                    } else if (etapa == 1) {
+                        resultado = verificarOperacao(no, posicao, tipo, TipoDado.INDEFINIDO);
+                    } else {
+                        resultado = verificarOperacao(no, posicao, quadros.esquerdos[t], tipo);
+                    }
+                }
+                case ATRIBUICAO -> {
+                    if (etapa == 0) {
+                        proximo = arena.left(no);
+                        posicaoProximo = arena.leftOffset(no, posicao);
+                    } else if (etapa == 1) {
+                        quadros.esquerdos[t] = tipo;
+                        proximo = arena.right(no);
+                        posicaoProximo = arena.rightOffset(no, posicao);
+                    } else {
+                        resultado = verificarAtribuicao(no, posicao, quadros.esquerdos[t], tipo);
+                    }
+                }
+                case CHAMADA_FUNCAO -> {
+                    // Os argumentos seguem pela direita a partir da esquerda da chamada
+                    if (etapa == 0) {
+                        quadros.bases[t] = argumentos.size();
+                        quadros.filhos[t] = arena.left(no);
+                        quadros.posicoesFilhos[t] = arena.leftOffset(no, posicao);
+                    } else {
+                        argumentos.add(tipo);
+                        quadros.posicoesFilhos[t] = arena.rightOffset(quadros.filhos[t], quadros.posicoesFilhos[t]);
+                        quadros.filhos[t] = arena.right(quadros.filhos[t]);
+                    }
+                    if (quadros.filhos[t] != AstArena.NENHUM) {
+                        proximo = quadros.filhos[t];
+                        posicaoProximo = quadros.posicoesFilhos[t];
+                    } else {
+                        List<TipoDado> tiposArg = argumentos.subList(quadros.bases[t], argumentos.size());
+                        resultado = verificarChamadaFuncao(no, posicao, new ArrayList<>(tiposArg));
+                        tiposArg.clear();
+                    }
+                }
+                default -> {
+                    // PROGRAM: as instruções, uma de cada vez
+                    quadros.filhos[t] = etapa == 0 ? arena.firstChild(no) : arena.nextSibling(quadros.filhos[t]);
+                    if (quadros.filhos[t] != AstArena.NENHUM) {
+                        proximo = quadros.filhos[t];
+                        posicaoProximo = arena.offset(proximo);
+                    } else {
+                        resultado = TipoDado.INDEFINIDO;
+                    }
+                }
             }
-        }
 
-        construirTabelaSimbolos(no.getEsquerda());
-        construirTabelaSimbolos(no.getDireita());
-        no.getFilhos().forEach(this::construirTabelaSimbolos);
+            if (resultado == null) {
+                tipo = entrar(quadros, proximo, posicaoProximo);
+            } else {
+                quadros.desempilhar();
+                tipo = concluir(no, quadros.errosAntes[t], resultado);
+            }
+        }
+        return tipo;
     }
 
-    private TipoDado analisarArvore(ArvoreSintatica no) {
-        if (no == null) {
+    // Folhas, nós já analisados sem erros e nós rejeitados antes dos filhos
+    // terminam aqui mesmo; os demais ganham um quadro e devolvem null
+    private TipoDado entrar(Quadros quadros, int no, int posicao) {
+        if (no == AstArena.NENHUM) {
             return TipoDado.INDEFINIDO;
         }
+        if (limpos[no]) {
+            return arena.inferredType(no);
+        }
 
-        TipoDado tipo = switch (no.getTipo()) {
+        int errosAntes = erros.size();
+        TipoDado tipo = switch (arena.type(no)) {
             case IDENTIFICADOR ->
-                verificarIdentificador(no);
+                verificarIdentificador(no, posicao);
             case NUMERO ->
-                verificarNumero(no);
+                verificarNumero(no, posicao);
             case OPERADOR ->
-                verificarOperacao(no);
+                categoria(no) != null ? null : operadorDesconhecido(no, posicao);
             case CHAMADA_FUNCAO ->
-                verificarChamadaFuncao(no);
+                funcoes.containsKey(arena.value(no)) ? null : funcaoNaoDefinida(no, posicao);
             case ATRIBUICAO ->
-                verificarAtribuicao(no);
+                arena.type(arena.left(no)) == TipoNo.IDENTIFICADOR ? null : atribuicaoInvalida(no, posicao);
+            case PROGRAM ->
+                null;
             default ->
                 TipoDado.INDEFINIDO;
         };
 
-        no.setTipoInferido(tipo);
+        if (tipo == null) {
+            quadros.empilhar(no, posicao, errosAntes);
+            return null;
+        }
+        return concluir(no, errosAntes, tipo);
+    }
+
+    private TipoDado concluir(int no, int errosAntes, TipoDado tipo) {
+        arena.setInferredType(no, tipo);
+        limpos[no] = erros.size() == errosAntes;
         return tipo;
     }
 
-    private TipoDado verificarIdentificador(ArvoreSintatica no) {
-        Simbolo simbolo = tabelaSimbolos.buscar(no.getValor());
+    private TipoDado verificarIdentificador(int no, int posicao) {
+        Simbolo simbolo = tabelaSimbolos.buscar(idNome(no));
         if (simbolo == null) {
-            erros.add(new MensagemErro(
-                    no.getLinha(), no.getColuna(),
+            erros.add(erro(no, posicao,
                     "VAR_NAO_DECLARADA",
-                    cleanMessage("Variavel '" + no.getValor() + "' nao declarada")));
+                    cleanMessage("Variavel '" + arena.value(no) + "' nao declarada")));
             return TipoDado.INDEFINIDO;
         }
         simbolo.marcarComoUtilizada();
         return simbolo.getTipo();
     }
 
-    private TipoDado verificarNumero(ArvoreSintatica no) {
+    private TipoDado verificarNumero(int no, int posicao) {
         try {
-            return no.getValor().contains(".") ? TipoDado.DECIMAL : TipoDado.INTEIRO;
-        } catch (Exception e) {
-            erros.add(new MensagemErro(
-                    no.getLinha(), no.getColuna(),
+            return arena.literal(no) == TipoLiteral.DECIMAL ? TipoDado.DECIMAL : TipoDado.INTEIRO;
+        } catch (NumberFormatException e) {
+            erros.add(erro(no, posicao,
                     "NUMERO_INVALIDO",
-                    cleanMessage("Numero mal formado: '" + no.getValor() + "'")));
+                    cleanMessage("Numero mal formado: '" + arena.value(no) + "'")));
             return TipoDado.INDEFINIDO;
         }
     }
 
-    private TipoDado verificarOperacao(ArvoreSintatica no) {
-        TipoOperador tipoOp = operadores.get(no.getValor());
-        if (tipoOp == null) {
-            erros.add(new MensagemErro(
-                    no.getLinha(), no.getColuna(),
-                    "OPERADOR_DESCONHECIDO",
-                    cleanMessage("Operador desconhecido: '" + no.getValor() + "'")));
-            return TipoDado.INDEFINIDO;
-        }
-
-        TipoDado tipoEsq = analisarArvore(no.getEsquerda());
-        TipoDado tipoDir = no.getDireita() != null
-                ? analisarArvore(no.getDireita()) : TipoDado.INDEFINIDO;
+    private TipoDado operadorDesconhecido(int no, int posicao) {
+        erros.add(erro(no, posicao,
+                "OPERADOR_DESCONHECIDO",
+                cleanMessage("Operador desconhecido: '" + arena.value(no) + "'")));
+        return TipoDado.INDEFINIDO;
+    }
 
+    private TipoDado verificarOperacao(int no, int posicao, TipoDado tipoEsq, TipoDado tipoDir) {
+        TipoOperador tipoOp = categoria(no);
         if (!tipoOp.aceitaTipo(tipoEsq)) {
-            erros.add(new MensagemErro(
-                    no.getLinha(), no.getColuna(),
+            erros.add(erro(no, posicao,
                     "TIPO_OPERANDO",
                     cleanMessage("Tipo invalido para operando esquerdo do operador '"
-                            + no.getValor() + "': " + tipoEsq)));
+                            + arena.value(no) + "': " + tipoEsq)));
         }
 
-        if (no.getDireita() != null && !tipoOp.aceitaTipo(tipoDir)) {
-            erros.add(new MensagemErro(
-                    no.getLinha(), no.getColuna(),
+        if (arena.right(no) != AstArena.NENHUM && !tipoOp.aceitaTipo(tipoDir)) {
+            erros.add(erro(no, posicao,
                     "TIPO_OPERANDO",
                     cleanMessage("Tipo invalido para operando direito do operador '"
-                            + no.getValor() + "': " + tipoDir)));
+                            + arena.value(no) + "': " + tipoDir)));
         }
 
         if (tipoOp == TipoOperador.COMPARACAO && tipoEsq != tipoDir) {
-            erros.add(new MensagemErro(
-                    no.getLinha(), no.getColuna(),
+            erros.add(erro(no, posicao,
                     "TIPOS_INCOMPATIVEIS",
                     cleanMessage("Tipos incompatíveis para comparacao: " + tipoEsq + " e " + tipoDir)));
         }
 
-        return determinarTipoRetornoOperador(tipoOp, tipoEsq);
+        return tipoOp.retorno != null ? tipoOp.retorno : tipoEsq;
     }
 
-    private TipoDado determinarTipoRetornoOperador(TipoOperador tipoOp, TipoDado tipoEsq) {
-        return switch (tipoOp) {
-            case RELACIONAL, COMPARACAO, LOGICO ->
-                TipoDado.BOOLEANO;
-            default ->
-                tipoEsq;
-        };
+    private TipoOperador categoria(int no) {
+        Operador op = arena.operator(no);
+        return op != null ? CATEGORIAS[op.ordinal()] : null;
     }
 
-    private TipoDado verificarChamadaFuncao(ArvoreSintatica no) {
-        Funcao funcao = funcoes.get(no.getValor());
-        if (funcao == null) {
-            erros.add(new MensagemErro(
-                    no.getLinha(), no.getColuna(),
-                    "FUNCAO_NAO_DEFINIDA",
-                    "Função '" + no.getValor() + "' não definida"));
-            return TipoDado.INDEFINIDO;
-        }
+    private TipoDado funcaoNaoDefinida(int no, int posicao) {
+        erros.add(erro(no, posicao,
+                "FUNCAO_NAO_DEFINIDA",
+                "Função '" + arena.value(no) + "' não definida"));
+        return TipoDado.INDEFINIDO;
+    }
 
-        List<TipoDado> tiposArg = coletarTiposArgumentos(no.getEsquerda());
+    private TipoDado verificarChamadaFuncao(int no, int posicao, List<TipoDado> tiposArg) {
+        Funcao funcao = funcoes.get(arena.value(no));
         if (tiposArg.size() != funcao.getParametros().size()) {
-            erros.add(new MensagemErro(
-                    no.getLinha(), no.getColuna(),
+            erros.add(erro(no, posicao,
                     "ARGUMENTOS_INCORRETOS",
-                    "Número incorreto de argumentos para '" + no.getValor()
+                    "Número incorreto de argumentos para '" + arena.value(no)
                     + "'. Esperado: " + funcao.getParametros().size()
                     + ", encontrado: " + tiposArg.size()));
         } else {
-            verificarTiposArgumentos(no, funcao, tiposArg);
+            verificarTiposArgumentos(no, posicao, funcao, tiposArg);
         }
 
         return funcao.getTipoRetorno();
     }
 
-    private List<TipoDado> coletarTiposArgumentos(ArvoreSintatica args) {
-        List<TipoDado> tipos = new ArrayList<>();
-        while (args != null) {
-            tipos.add(analisarArvore(args));
-            args = args.getDireita();
-        }
-        return tipos;
-    }
-
-    private void verificarTiposArgumentos(ArvoreSintatica no, Funcao funcao, List<TipoDado> tiposArg) {
+    private void verificarTiposArgumentos(int no, int posicao, Funcao funcao, List<TipoDado> tiposArg) {
         for (int i = 0; i < tiposArg.size(); i++) {
             if (!tiposCompativeis(funcao.getParametros().get(i), tiposArg.get(i))) {
-                erros.add(new MensagemErro(
-                        no.getLinha(), no.getColuna(),
+                erros.add(erro(no, posicao,
                         "TIPO_ARGUMENTO",
                         "Tipo incorreto para argumento " + (i + 1) + " de '"
-                        + no.getValor() + "'. Esperado: " + funcao.getParametros().get(i)
+                        + arena.value(no) + "'. Esperado: " + funcao.getParametros().get(i)
                         + ", encontrado: " + tiposArg.get(i)));
             }
         }
     }
 
-    private TipoDado verificarAtribuicao(ArvoreSintatica no) {
-        if (no.getEsquerda().getTipo() != TipoNo.IDENTIFICADOR) {
-            erros.add(new MensagemErro(
-                    no.getLinha(), no.getColuna(),
-                    "ATRIBUICAO_INVALIDA",
-                    "Lado esquerdo da atribuição deve ser um identificador"));
-            return TipoDado.INDEFINIDO;
-        }
-
-        TipoDado tipoVar = analisarArvore(no.getEsquerda());
-        TipoDado tipoExpr = analisarArvore(no.getDireita());
+    private TipoDado atribuicaoInvalida(int no, int posicao) {
+        erros.add(erro(no, posicao,
+                "ATRIBUICAO_INVALIDA",
+                "Lado esquerdo da atribuição deve ser um identificador"));
+        return TipoDado.INDEFINIDO;
+    }
 
+    private TipoDado verificarAtribuicao(int no, int posicao, TipoDado tipoVar, TipoDado tipoExpr) {
         if (!tiposCompativeis(tipoVar, tipoExpr)) {
-            erros.add(new MensagemErro(
-                    no.getLinha(), no.getColuna(),
+            erros.add(erro(no, posicao,
                     "ATRIBUICAO_INCOMPATIVEL",
                     "Tipos incompatíveis na atribuição: " + tipoVar + " e " + tipoExpr));
         }
 
         // Marca variável como inicializada
-        Simbolo s = tabelaSimbolos.buscar(no.getEsquerda().getValor());
+        Simbolo s = tabelaSimbolos.buscar(idNome(arena.left(no)));
         if (s != null) {
             s.marcarComoInicializada();
         }
@@ -327,41 +457,47 @@ public class Semantico {
         return tipoVar;
     }
 
-    private TipoDado determinarTipoExpressao(ArvoreSintatica no) {
-        if (no == null) {
-            return TipoDado.INDEFINIDO;
-        }
-
-        return switch (no.getTipo()) {
-            case IDENTIFICADOR -> {
-                Simbolo s = tabelaSimbolos.buscar(no.getValor());
-                yield s != null ? s.getTipo() : TipoDado.INDEFINIDO;
-            }
-            case NUMERO ->
-                no.getValor().contains(".") ? TipoDado.DECIMAL : TipoDado.INTEIRO;
-            case OPERADOR ->
-                determinarTipoOperacao(no);
-            case CHAMADA_FUNCAO -> {
-                Funcao f = funcoes.get(no.getValor());
-                yield f != null ? f.getTipoRetorno() : TipoDado.INDEFINIDO;
+    // Desce só pela esquerda dos operadores que repetem o tipo do operando, por
+    // isso um laço basta
+    private TipoDado determinarTipoExpressao(int no) {
+        while (no != AstArena.NENHUM) {
+            switch (arena.type(no)) {
+                case IDENTIFICADOR -> {
+                    Simbolo s = tabelaSimbolos.buscar(idNome(no));
+                    return s != null ? s.getTipo() : TipoDado.INDEFINIDO;
+                }
+                case NUMERO -> {
+                    return tipoNumero(no);
+                }
+                case OPERADOR -> {
+                    TipoOperador tipoOp = categoria(no);
+                    if (tipoOp == null) {
+                        return TipoDado.INDEFINIDO;
+                    }
+                    if (tipoOp.retorno != null) {
+                        return tipoOp.retorno;
+                    }
+                    no = arena.left(no);
+                }
+                case CHAMADA_FUNCAO -> {
+                    Funcao f = funcoes.get(arena.value(no));
+                    return f != null ? f.getTipoRetorno() : TipoDado.INDEFINIDO;
+                }
+                default -> {
+                    return TipoDado.INDEFINIDO;
+                }
             }
-            default ->
-                TipoDado.INDEFINIDO;
-        };
+        }
+        return TipoDado.INDEFINIDO;
     }
 
-    private TipoDado determinarTipoOperacao(ArvoreSintatica no) {
-        TipoOperador tipoOp = operadores.get(no.getValor());
-        if (tipoOp == null) {
+    // Sem reportar erro: números inválidos são apontados por verificarNumero
+    private TipoDado tipoNumero(int no) {
+        try {
+            return arena.literal(no) == TipoLiteral.DECIMAL ? TipoDado.DECIMAL : TipoDado.INTEIRO;
+        } catch (NumberFormatException e) {
             return TipoDado.INDEFINIDO;
         }
-
-        TipoDado tipoEsq = determinarTipoExpressao(no.getEsquerda());
-        if (tipoOp == TipoOperador.LOGICO || tipoOp == TipoOperador.RELACIONAL
-                || tipoOp == TipoOperador.COMPARACAO) {
-            return TipoDado.BOOLEANO;
-        }
-        return tipoEsq;
     }
 
     private boolean tiposCompativeis(TipoDado esperado, TipoDado encontrado) {
@@ -382,6 +518,40 @@ public class Semantico {
                 "VAR_NAO_UTILIZADA",
                 "Variavel '" + s.getNome() + "' declarada mas nao utilizada")));
     }
+
+    // Pilha de quadros de analisarArvore, em arrays paralelos
+    private static final class Quadros {
+        private int[] nos = new int[16];
+        private int[] posicoes = new int[16];
+        private int[] errosAntes = new int[16];
+        private int[] etapas = new int[16];
+        private TipoDado[] esquerdos = new TipoDado[16]; // tipo do primeiro operando
+        private int[] filhos = new int[16];              // instrução ou argumento atual
+        private int[] posicoesFilhos = new int[16];
+        private int[] bases = new int[16];               // início dos tipos da chamada
+        private int topo = -1;
+
+        private void empilhar(int no, int posicao, int errosAntesDoNo) {
+            if (++topo == nos.length) {
+                nos = Arrays.copyOf(nos, topo * 2);
+                posicoes = Arrays.copyOf(posicoes, topo * 2);
+                errosAntes = Arrays.copyOf(errosAntes, topo * 2);
+                etapas = Arrays.copyOf(etapas, topo * 2);
+                esquerdos = Arrays.copyOf(esquerdos, topo * 2);
+                filhos = Arrays.copyOf(filhos, topo * 2);
+                posicoesFilhos = Arrays.copyOf(posicoesFilhos, topo * 2);
+                bases = Arrays.copyOf(bases, topo * 2);
+            }
+            nos[topo] = no;
+            posicoes[topo] = posicao;
+            errosAntes[topo] = errosAntesDoNo;
+            etapas[topo] = 0;
+        }
+
+        private void desempilhar() {
+            topo--;
+        }
+    }
 }
 
 class Funcao {
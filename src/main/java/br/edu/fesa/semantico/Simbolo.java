@@ -10,6 +10,11 @@ public class Simbolo {
     private boolean utilizada = false;
     private boolean inicializada = false;
     
+    // Encadeamento usado pela TabelaDeSimbolos
+    int idNome = -1;
+    int nivelEscopo;
+    Simbolo sombreado; // declaração de mesmo nome em escopo externo
+    
     public Simbolo(String nome, TipoDado tipo, int linha, int coluna) {
         this.nome = nome;
         this.tipo = tipo;
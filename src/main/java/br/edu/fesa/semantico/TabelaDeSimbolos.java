@@ -1,52 +1,84 @@
 package br.edu.fesa.semantico;
 
+import br.edu.fesa.lexico.NamePool;
 import br.edu.fesa.semantico.Semantico.TipoDado;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Stack;
-import java.util.List;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
+// Os nomes são resolvidos por id do NamePool: cada id aponta direto para a
+// declaração visível, e declarações sombreadas ficam encadeadas nela.
 public class TabelaDeSimbolos {
-    private final Stack<Map<String, Simbolo>> escopos = new Stack<>();
+    private final NamePool nomes;
+    private final List<List<Simbolo>> escopos = new ArrayList<>();
+    private Simbolo[] visiveis = new Simbolo[64];
     
     public TabelaDeSimbolos() {
+        this(new NamePool());
+    }
+    
+    public TabelaDeSimbolos(NamePool nomes) {
+        this.nomes = nomes;
         entrarEscopo(); // Escopo global
     }
     
+    public NamePool getNomes() {
+        return nomes;
+    }
+    
     public void entrarEscopo() {
-        escopos.push(new HashMap<>());
+        escopos.add(new ArrayList<>());
     }
     
     public void sairEscopo() {
         if (escopos.size() > 1) {
-            escopos.pop();
+            for (Simbolo simbolo : escopos.remove(escopos.size() - 1)) {
+                visiveis[simbolo.idNome] = simbolo.sombreado;
+            }
         }
     }
     
     public void declarar(String nome, TipoDado tipo, int linha, int coluna) {
-        if (existeNoEscopoAtual(nome)) {
-            throw new RuntimeException("Variável '" + nome + "' já declarada neste escopo");
+        declarar(nomes.intern(nome), tipo, linha, coluna);
+    }
+    
+    public void declarar(int idNome, TipoDado tipo, int linha, int coluna) {
+        if (existeNoEscopoAtual(idNome)) {
+            throw new RuntimeException("Variável '" + nomes.name(idNome) + "' já declarada neste escopo");
+        }
+        if (idNome >= visiveis.length) {
+            visiveis = Arrays.copyOf(visiveis, Math.max(visiveis.length * 2, idNome + 1));
         }
-        escopos.peek().put(nome, new Simbolo(nome, tipo, linha, coluna));
+        Simbolo simbolo = new Simbolo(nomes.name(idNome), tipo, linha, coluna);
+        simbolo.idNome = idNome;
+        simbolo.nivelEscopo = escopos.size() - 1;
+        simbolo.sombreado = visiveis[idNome];
+        visiveis[idNome] = simbolo;
+        escopos.get(escopos.size() - 1).add(simbolo);
     }
     
     public boolean existeNoEscopoAtual(String nome) {
-        return escopos.peek().containsKey(nome);
+        int idNome = nomes.find(nome);
+        return idNome >= 0 && existeNoEscopoAtual(idNome);
+    }
+    
+    public boolean existeNoEscopoAtual(int idNome) {
+        Simbolo simbolo = buscar(idNome);
+        return simbolo != null && simbolo.nivelEscopo == escopos.size() - 1;
     }
     
     public Simbolo buscar(String nome) {
-        for (int i = escopos.size() - 1; i >= 0; i--) {
-            if (escopos.get(i).containsKey(nome)) {
-                return escopos.get(i).get(nome);
-            }
-        }
-        return null;
+        int idNome = nomes.find(nome);
+        return idNome >= 0 ? buscar(idNome) : null;
+    }
+    
+    public Simbolo buscar(int idNome) {
+        return idNome < visiveis.length ? visiveis[idNome] : null;
     }
     
     public List<Simbolo> getTodosSimbolos() {
         List<Simbolo> simbolos = new ArrayList<>();
-        escopos.forEach(escopo -> simbolos.addAll(escopo.values()));
+        escopos.forEach(simbolos::addAll);
         return simbolos;
     }
     
@@ -56,14 +88,13 @@ public class TabelaDeSimbolos {
         sb.append("=== TABELA DE SIMBOLOS ===\n");
         
         int escopoNum = escopos.size();
-        for (Map<String, Simbolo> escopo : escopos) {
+        for (List<Simbolo> escopo : escopos) {
             sb.append("\nEscopo #").append(escopoNum--).append(":\n");
             
             if (escopo.isEmpty()) {
                 sb.append("  (vazio)\n");
             } else {
-                for (Map.Entry<String, Simbolo> entry : escopo.entrySet()) {
-                    Simbolo simbolo = entry.getValue();
+                for (Simbolo simbolo : escopo) {
                     sb.append("  ")
                       .append(simbolo.getNome())
                       .append(": ")
@@ -81,4 +112,4 @@ public class TabelaDeSimbolos {
         
         return sb.toString();
     }
-}
\ No newline at end of file
+}
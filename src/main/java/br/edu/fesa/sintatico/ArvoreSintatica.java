@@ -1,15 +1,26 @@
 package br.edu.fesa.sintatico;
 
+import br.edu.fesa.lexico.LineMap;
+import br.edu.fesa.lexico.Operador;
+import br.edu.fesa.lexico.TipoLiteral;
 import br.edu.fesa.semantico.Semantico.TipoDado;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class ArvoreSintatica {
 
     private String valor;
+    private int idNome = -1; // id do nome no NamePool, para identificadores e chamadas
     private TipoNo tipo;
+    private int posicao = -1; // deslocamento no fonte, resolvido pelo LineMap
+    private LineMap linhas;
     private int linha;
     private int coluna;
+    private TipoLiteral literal; // números: tipo e valor decodificados
+    private long valorInteiro;
+    private double valorDecimal;
+    private Operador operador; // nós OPERADOR: código vindo do token
     private ArvoreSintatica esquerda;
     private ArvoreSintatica direita;
     private List<ArvoreSintatica> filhos = new ArrayList<>();
@@ -23,6 +34,14 @@ public class ArvoreSintatica {
         this.coluna = coluna;
     }
 
+    // Nó que guarda só o deslocamento; linha e coluna são resolvidas quando pedidas
+    public ArvoreSintatica(String valor, TipoNo tipo, int posicao, LineMap linhas) {
+        this.valor = valor;
+        this.tipo = tipo;
+        this.posicao = posicao;
+        this.linhas = linhas;
+    }
+
     public ArvoreSintatica(String valor, TipoNo tipo, ArvoreSintatica esquerda, ArvoreSintatica direita, int linha, int coluna) {
         this(valor, tipo, linha, coluna);
         this.esquerda = esquerda;
@@ -37,6 +56,14 @@ public class ArvoreSintatica {
         this.valor = valor;
     }
 
+    public int getIdNome() {
+        return idNome;
+    }
+
+    public void setIdNome(int idNome) {
+        this.idNome = idNome;
+    }
+
     public TipoNo getTipo() {
         return tipo;
     }
@@ -45,22 +72,89 @@ public class ArvoreSintatica {
         this.tipo = tipo;
     }
 
+    public int getPosicao() {
+        return posicao;
+    }
+
+    public LineMap getLineMap() {
+        return linhas;
+    }
+
     public int getLinha() {
-        return linha;
+        return linhas != null ? linhas.line(posicao) : linha;
     }
 
     public void setLinha(int linha) {
+        fixarPosicao();
         this.linha = linha;
     }
 
     public int getColuna() {
-        return coluna;
+        return linhas != null ? linhas.column(posicao) : coluna;
     }
 
     public void setColuna(int coluna) {
+        fixarPosicao();
         this.coluna = coluna;
     }
 
+    // Passa a guardar linha e coluna explícitas, desligando o nó do LineMap
+    private void fixarPosicao() {
+        if (linhas != null) {
+            linha = linhas.line(posicao);
+            coluna = linhas.column(posicao);
+            linhas = null;
+        }
+    }
+
+    // Tipo do literal de um nó NUMERO; sem valor vindo do lexer, o texto é
+    // decodificado na primeira consulta (NumberFormatException se não couber)
+    public TipoLiteral getLiteral() {
+        if (literal == null && tipo == TipoNo.NUMERO) {
+            TipoLiteral tipoTexto = TipoLiteral.of(valor);
+            if (tipoTexto == TipoLiteral.INTEIRO) {
+                setValorInteiro(Long.parseLong(valor));
+            } else {
+                double decimal = Double.parseDouble(valor);
+                if (Double.isInfinite(decimal)) {
+                    throw new NumberFormatException("Numero fora do intervalo: " + valor);
+                }
+                setValorDecimal(decimal);
+            }
+        }
+        return literal;
+    }
+
+    public long getValorInteiro() {
+        return getLiteral() == TipoLiteral.DECIMAL ? (long) valorDecimal : valorInteiro;
+    }
+
+    public double getValorDecimal() {
+        return getLiteral() == TipoLiteral.DECIMAL ? valorDecimal : valorInteiro;
+    }
+
+    public void setValorInteiro(long valorInteiro) {
+        this.literal = TipoLiteral.INTEIRO;
+        this.valorInteiro = valorInteiro;
+    }
+
+    public void setValorDecimal(double valorDecimal) {
+        this.literal = TipoLiteral.DECIMAL;
+        this.valorDecimal = valorDecimal;
+    }
+
+    // Código do operador de um nó OPERADOR; nós criados sem ele o obtêm do valor
+    public Operador getOperador() {
+        if (operador == null && tipo == TipoNo.OPERADOR) {
+            operador = Operador.of(valor);
+        }
+        return operador;
+    }
+
+    public void setOperador(Operador operador) {
+        this.operador = operador;
+    }
+
     public ArvoreSintatica getEsquerda() {
         return esquerda;
     }
@@ -96,34 +190,56 @@ public class ArvoreSintatica {
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
-        buildTreeString(sb, 0);
+        buildTreeString(sb);
         return sb.toString();
     }
 
-    private void buildTreeString(StringBuilder sb, int depth) {
-        // Indentação conforme o nível de profundidade
-        for (int i = 0; i < depth; i++) {
-            sb.append("  ");
-        }
-        
-        // Mostra o tipo e valor do nó
-        sb.append("[").append(tipo).append(": ").append(valor);
-        
-        // Mostra o tipo inferido se existir
-        if (tipoInferido != null) {
-            sb.append(" (").append(tipoInferido).append(")");
-        }
-        sb.append("]\n");
-        
-        // Processa os filhos recursivamente
-        if (esquerda != null) {
-            esquerda.buildTreeString(sb, depth + 1);
-        }
-        if (direita != null) {
-            direita.buildTreeString(sb, depth + 1);
-        }
-        for (ArvoreSintatica filho : filhos) {
-            filho.buildTreeString(sb, depth + 1);
+    // Percorre a árvore em pré-ordem com uma pilha explícita, de modo que a
+    // profundidade da árvore não é limitada pela pilha de chamadas
+    private void buildTreeString(StringBuilder sb) {
+        ArvoreSintatica[] pilha = new ArvoreSintatica[16];
+        int[] profundidades = new int[16];
+        pilha[0] = this;
+        int topo = 0;
+
+        while (topo >= 0) {
+            ArvoreSintatica no = pilha[topo];
+            int depth = profundidades[topo];
+            topo--;
+
+            // Indentação conforme o nível de profundidade
+            for (int i = 0; i < depth; i++) {
+                sb.append("  ");
+            }
+
+            // Mostra o tipo e valor do nó
+            sb.append("[").append(no.tipo).append(": ").append(no.valor);
+
+            // Mostra o tipo inferido se existir
+            if (no.tipoInferido != null) {
+                sb.append(" (").append(no.tipoInferido).append(")");
+            }
+            sb.append("]\n");
+
+            // Empilha os filhos em ordem inversa para visitá-los na ordem original
+            int novos = (no.esquerda != null ? 1 : 0) + (no.direita != null ? 1 : 0) + no.filhos.size();
+            if (topo + novos >= pilha.length) {
+                int capacidade = Math.max(pilha.length * 2, topo + novos + 1);
+                pilha = Arrays.copyOf(pilha, capacidade);
+                profundidades = Arrays.copyOf(profundidades, capacidade);
+            }
+            for (int i = no.filhos.size() - 1; i >= 0; i--) {
+                pilha[++topo] = no.filhos.get(i);
+                profundidades[topo] = depth + 1;
+            }
+            if (no.direita != null) {
+                pilha[++topo] = no.direita;
+                profundidades[topo] = depth + 1;
+            }
+            if (no.esquerda != null) {
+                pilha[++topo] = no.esquerda;
+                profundidades[topo] = depth + 1;
+            }
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,977 @@
+package br.edu.fesa.sintatico;
+
+import br.edu.fesa.lexico.LineMap;
+import br.edu.fesa.lexico.Operador;
+import br.edu.fesa.lexico.TipoLiteral;
+import br.edu.fesa.semantico.Semantico.TipoDado;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Árvore sintática em arrays paralelos de primitivos. Cada nó é um índice;
+// filhos ausentes valem NENHUM. O valor do nó é um índice numa tabela de textos
+// compartilhada: identificadores com o mesmo id de nome e operadores iguais
+// apontam para a mesma entrada. Filhos além de esquerda/direita (lista de
+// filhos) usam primeiro filho / próximo irmão, alocados só quando usados.
+public final class AstArena {
+    public static final int NENHUM = -1;
+
+    private static final TipoNo[] TIPOS = TipoNo.values();
+    private static final Operador[] OPERADORES = Operador.values();
+    private static final TipoLiteral[] LITERAIS = TipoLiteral.values();
+    private static final TipoDado[] TIPOS_DADO = TipoDado.values();
+    private static final int CAPACIDADE_MINIMA = 16;
+
+    private byte[] tipos;
+    private int[] valores;
+    private int[] esquerdas;
+    private int[] direitas;
+    private int[] posicoes;
+    private int[] idsNomes;
+    private byte[] operadores;     // ordinal + 1, zero para os demais nós
+    private byte[] tiposInferidos; // ordinal + 1, zero enquanto não analisado
+    private int tamanho = 0;
+
+    // Lista de filhos, alocada no primeiro nó que a usa
+    private int[] primeirosFilhos;
+    private int[] proximosIrmaos;
+
+    // Literais numéricos: tipo + 1 e o inteiro ou os bits do double
+    private byte[] literais;
+    private long[] numeros;
+
+    // Linha e coluna vêm do LineMap; sem ele ficam explícitas por nó
+    private LineMap linhas;
+    private int[] linhasExplicitas;
+    private int[] colunasExplicitas;
+
+    // Tabela de textos e atalhos para reaproveitar entradas
+    private String[] textos = new String[CAPACIDADE_MINIMA];
+    private int totalTextos = 0;
+    private int[] textoPorNome = new int[0];
+    private final int[] textoPorOperador = new int[OPERADORES.length];
+
+    // Nós de origem quando a arena foi montada a partir de objetos
+    private ArvoreSintatica[] origens;
+    private int raiz = NENHUM;
+
+    // Hash-consing: tabela aberta com um nó canônico por estrutura (NENHUM =
+    // posição livre); null enquanto o compartilhamento estiver desligado
+    private int[] canonicos;
+    private int totalCanonicos;
+
+    // Com compartilhamento, a posição de cada ocorrência fica na aresta: o
+    // deslocamento da ocorrência do filho em relação à do pai. Faz parte da
+    // identidade do nó, então subárvores iguais têm o mesmo leiaute interno
+    private int[] deslocamentosEsquerda;
+    private int[] deslocamentosDireita;
+    // Último nó devolvido por intern e a posição da ocorrência que o pediu,
+    // consumidos pela aresta que o pendura no pai
+    private int ultimoInterno = NENHUM;
+    private int posicaoUltimoInterno;
+
+    // Edições pendentes da reanálise incremental: um nó criado antes da edição
+    // e posicionado a partir do limiar anda delta caracteres. Aplicadas na
+    // leitura da posição e consolidadas quando se acumulam
+    private static final int MAXIMO_EDICOES = 32;
+    private final int[] limitesEdicoes = new int[MAXIMO_EDICOES];
+    private final int[] limiaresEdicoes = new int[MAXIMO_EDICOES];
+    private final int[] deltasEdicoes = new int[MAXIMO_EDICOES];
+    private int totalEdicoes;
+
+    // Nós que a reanálise deixou sem ligação com a raiz (instruções trocadas)
+    private int inalcancaveis;
+
+    public AstArena(LineMap linhas, int capacidade) {
+        this.linhas = linhas;
+        capacidade = Math.max(CAPACIDADE_MINIMA, capacidade);
+        tipos = new byte[capacidade];
+        valores = new int[capacidade];
+        esquerdas = new int[capacidade];
+        direitas = new int[capacidade];
+        posicoes = new int[capacidade];
+        idsNomes = new int[capacidade];
+        operadores = new byte[capacidade];
+        tiposInferidos = new byte[capacidade];
+        if (linhas == null) {
+            linhasExplicitas = new int[capacidade];
+            colunasExplicitas = new int[capacidade];
+        }
+        Arrays.fill(textoPorOperador, -1);
+    }
+
+    // Copia uma árvore de objetos; tipos inferidos gravados na arena são
+    // repassados aos nós de origem
+    public static AstArena of(ArvoreSintatica raiz) {
+        AstArena arena = new AstArena(null, CAPACIDADE_MINIMA);
+        arena.origens = new ArvoreSintatica[arena.tipos.length];
+        if (raiz == null) {
+            return arena;
+        }
+        arena.raiz = 0;
+
+        // Pré-ordem com pilha explícita: cada entrada é o nó de origem e o
+        // índice do pai + o lado onde o novo nó é pendurado
+        List<ArvoreSintatica> pendentes = new ArrayList<>();
+        int[] pais = new int[16];
+        byte[] lados = new byte[16];
+        pendentes.add(raiz);
+        pais[0] = NENHUM;
+        int[] ultimoFilho = new int[16];
+        while (!pendentes.isEmpty()) {
+            int topo = pendentes.size() - 1;
+            ArvoreSintatica no = pendentes.remove(topo);
+            int pai = pais[topo];
+            byte lado = lados[topo];
+
+            int i = arena.copiar(no);
+            if (ultimoFilho.length < arena.tipos.length) {
+                ultimoFilho = Arrays.copyOf(ultimoFilho, arena.tipos.length);
+            }
+            ultimoFilho[i] = NENHUM;
+            if (pai != NENHUM) {
+                if (lado == 0) {
+                    arena.esquerdas[pai] = i;
+                } else if (lado == 1) {
+                    arena.direitas[pai] = i;
+                } else {
+                    arena.acrescentarFilho(pai, i, ultimoFilho[pai]);
+                    ultimoFilho[pai] = i;
+                }
+            }
+
+            int novos = (no.getEsquerda() != null ? 1 : 0) + (no.getDireita() != null ? 1 : 0)
+                      + no.getFilhos().size();
+            if (pendentes.size() + novos > pais.length) {
+                int capacidade = Math.max(pais.length * 2, pendentes.size() + novos);
+                pais = Arrays.copyOf(pais, capacidade);
+                lados = Arrays.copyOf(lados, capacidade);
+            }
+            for (int f = no.getFilhos().size() - 1; f >= 0; f--) {
+                empilhar(pendentes, pais, lados, no.getFilhos().get(f), i, (byte) 2);
+            }
+            if (no.getDireita() != null) {
+                empilhar(pendentes, pais, lados, no.getDireita(), i, (byte) 1);
+            }
+            if (no.getEsquerda() != null) {
+                empilhar(pendentes, pais, lados, no.getEsquerda(), i, (byte) 0);
+            }
+        }
+        return arena;
+    }
+
+    private static void empilhar(List<ArvoreSintatica> pendentes, int[] pais, byte[] lados,
+                                 ArvoreSintatica no, int pai, byte lado) {
+        pais[pendentes.size()] = pai;
+        lados[pendentes.size()] = lado;
+        pendentes.add(no);
+    }
+
+    private int copiar(ArvoreSintatica no) {
+        int i = novo(no.getTipo(), guardarTexto(no.getValor()), 0);
+        linhasExplicitas[i] = no.getLinha();
+        colunasExplicitas[i] = no.getColuna();
+        idsNomes[i] = no.getIdNome();
+        if (no.getOperador() != null) {
+            operadores[i] = (byte) (no.getOperador().ordinal() + 1);
+        }
+        if (no.getTipo() == TipoNo.NUMERO) {
+            try {
+                TipoLiteral literal = no.getLiteral();
+                marcarNumero(i, literal, literal == TipoLiteral.DECIMAL
+                        ? Double.doubleToRawLongBits(no.getValorDecimal()) : no.getValorInteiro());
+            } catch (NumberFormatException e) {
+                // fica sem valor; literal(i) volta a lançar a exceção
+            }
+        }
+        if (no.getTipoInferido() != null) {
+            tiposInferidos[i] = (byte) (no.getTipoInferido().ordinal() + 1);
+        }
+        origens[i] = no;
+        return i;
+    }
+
+    // Nó posicionado pelo deslocamento no fonte (ou, sem LineMap, com posição
+    // fixada depois por setPosition)
+    int add(TipoNo tipo, String valor, int posicao) {
+        return novo(tipo, guardarTexto(valor), posicao);
+    }
+
+    // Identificador ou chamada; nomes com o mesmo id reaproveitam o texto
+    int addName(TipoNo tipo, String valor, int nameId, int posicao) {
+        int texto;
+        if (nameId < 0) {
+            texto = guardarTexto(valor);
+        } else {
+            if (nameId >= textoPorNome.length) {
+                int anterior = textoPorNome.length;
+                textoPorNome = Arrays.copyOf(textoPorNome, Math.max(16, nameId * 2));
+                Arrays.fill(textoPorNome, anterior, textoPorNome.length, -1);
+            }
+            if (textoPorNome[nameId] < 0) {
+                textoPorNome[nameId] = guardarTexto(valor);
+            }
+            texto = textoPorNome[nameId];
+        }
+        int i = novo(tipo, texto, posicao);
+        idsNomes[i] = nameId;
+        return i;
+    }
+
+    int addOperator(Operador operador, int posicao) {
+        int o = operador.ordinal();
+        if (textoPorOperador[o] < 0) {
+            textoPorOperador[o] = guardarTexto(operador.getTexto());
+        }
+        int i = novo(TipoNo.OPERADOR, textoPorOperador[o], posicao);
+        operadores[i] = (byte) (o + 1);
+        return i;
+    }
+
+    // Número já decodificado pelo lexer; literal null deixa a decodificação
+    // para a primeira consulta
+    int addNumber(String valor, TipoLiteral literal, long bits, int posicao) {
+        int i = novo(TipoNo.NUMERO, guardarTexto(valor), posicao);
+        if (literal != null) {
+            marcarNumero(i, literal, bits);
+        }
+        return i;
+    }
+
+    private int novo(TipoNo tipo, int texto, int posicao) {
+        if (tamanho == tipos.length) {
+            crescer();
+        }
+        int i = tamanho++;
+        tipos[i] = (byte) tipo.ordinal();
+        valores[i] = texto;
+        esquerdas[i] = NENHUM;
+        direitas[i] = NENHUM;
+        posicoes[i] = posicao;
+        idsNomes[i] = -1;
+        if (deslocamentosEsquerda != null) {
+            deslocamentosEsquerda[i] = 0;
+            deslocamentosDireita[i] = 0;
+        }
+        return i;
+    }
+
+    private int guardarTexto(String texto) {
+        if (totalTextos == textos.length) {
+            textos = Arrays.copyOf(textos, totalTextos * 2);
+        }
+        textos[totalTextos] = texto;
+        return totalTextos++;
+    }
+
+    private void marcarNumero(int i, TipoLiteral literal, long bits) {
+        if (literais == null) {
+            literais = new byte[tipos.length];
+            numeros = new long[tipos.length];
+        }
+        literais[i] = (byte) (literal.ordinal() + 1);
+        numeros[i] = bits;
+    }
+
+    private void crescer() {
+        int capacidade = tipos.length * 2;
+        tipos = Arrays.copyOf(tipos, capacidade);
+        valores = Arrays.copyOf(valores, capacidade);
+        esquerdas = Arrays.copyOf(esquerdas, capacidade);
+        direitas = Arrays.copyOf(direitas, capacidade);
+        posicoes = Arrays.copyOf(posicoes, capacidade);
+        idsNomes = Arrays.copyOf(idsNomes, capacidade);
+        operadores = Arrays.copyOf(operadores, capacidade);
+        tiposInferidos = Arrays.copyOf(tiposInferidos, capacidade);
+        if (primeirosFilhos != null) {
+            int anterior = primeirosFilhos.length;
+            primeirosFilhos = Arrays.copyOf(primeirosFilhos, capacidade);
+            proximosIrmaos = Arrays.copyOf(proximosIrmaos, capacidade);
+            Arrays.fill(primeirosFilhos, anterior, capacidade, NENHUM);
+            Arrays.fill(proximosIrmaos, anterior, capacidade, NENHUM);
+        }
+        if (literais != null) {
+            literais = Arrays.copyOf(literais, capacidade);
+            numeros = Arrays.copyOf(numeros, capacidade);
+        }
+        if (linhasExplicitas != null) {
+            linhasExplicitas = Arrays.copyOf(linhasExplicitas, capacidade);
+            colunasExplicitas = Arrays.copyOf(colunasExplicitas, capacidade);
+        }
+        if (origens != null) {
+            origens = Arrays.copyOf(origens, capacidade);
+        }
+        if (deslocamentosEsquerda != null) {
+            deslocamentosEsquerda = Arrays.copyOf(deslocamentosEsquerda, capacidade);
+            deslocamentosDireita = Arrays.copyOf(deslocamentosDireita, capacidade);
+        }
+    }
+
+    // Liga o compartilhamento de subárvores iguais; ver intern
+    void share() {
+        canonicos = new int[64];
+        Arrays.fill(canonicos, NENHUM);
+        deslocamentosEsquerda = new int[tipos.length];
+        deslocamentosDireita = new int[tipos.length];
+    }
+
+    // Com compartilhamento, a árvore é um DAG: uma subexpressão repetida é um
+    // único nó. offset(i) é a posição da primeira ocorrência; a de cada uma
+    // vem de leftOffset/rightOffset a partir da raiz, como fazem o Cursor e
+    // toArvore. Sem LineMap só nós na mesma posição seriam iguais, e nada é
+    // compartilhado
+    public boolean isShared() {
+        return canonicos != null;
+    }
+
+    // Nó canônico estruturalmente igual a i, cujos filhos já são canônicos. Se
+    // ele já existe, i é descartado: como os filhos de i foram descartados
+    // antes dele, i é o último nó criado e o seu espaço volta para a arena.
+    // Depois de canonizado, o nó não deve mais ser alterado
+    int intern(int i) {
+        if (canonicos == null) {
+            return i;
+        }
+        ultimoInterno = internar(i);
+        return ultimoInterno;
+    }
+
+    private int internar(int i) {
+        posicaoUltimoInterno = posicoes[i];
+        if (totalCanonicos * 2 >= canonicos.length) {
+            redistribuir();
+        }
+        int mascara = canonicos.length - 1;
+        for (int h = hash(i) & mascara; ; h = (h + 1) & mascara) {
+            int c = canonicos[h];
+            if (c == NENHUM) {
+                canonicos[h] = i;
+                totalCanonicos++;
+                return i;
+            }
+            if (iguais(c, i)) {
+                descartar(i, c);
+                return c;
+            }
+        }
+    }
+
+    private int hash(int i) {
+        int h = tipos[i];
+        h = h * 31 + operadores[i];
+        h = h * 31 + esquerdas[i];
+        h = h * 31 + direitas[i];
+        h = h * 31 + deslocamentosEsquerda[i];
+        h = h * 31 + deslocamentosDireita[i];
+        h = h * 31 + value(i).hashCode();
+        if (literais != null && literais[i] != 0) {
+            h = h * 31 + Long.hashCode(numeros[i]);
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private boolean iguais(int a, int b) {
+        if (tipos[a] != tipos[b] || operadores[a] != operadores[b] || idsNomes[a] != idsNomes[b]
+                || esquerdas[a] != esquerdas[b] || direitas[a] != direitas[b]
+                || deslocamentosEsquerda[a] != deslocamentosEsquerda[b]
+                || deslocamentosDireita[a] != deslocamentosDireita[b]) {
+            return false;
+        }
+        if (linhasExplicitas != null
+                && (linhasExplicitas[a] != linhasExplicitas[b] || colunasExplicitas[a] != colunasExplicitas[b])) {
+            return false;
+        }
+        if (literais != null && (literais[a] != literais[b] || numeros[a] != numeros[b])) {
+            return false;
+        }
+        return valores[a] == valores[b] || value(a).equals(value(b));
+    }
+
+    private void redistribuir() {
+        int[] anteriores = canonicos;
+        canonicos = new int[anteriores.length * 2];
+        Arrays.fill(canonicos, NENHUM);
+        int mascara = canonicos.length - 1;
+        for (int c : anteriores) {
+            if (c != NENHUM) {
+                int h = hash(c) & mascara;
+                while (canonicos[h] != NENHUM) {
+                    h = (h + 1) & mascara;
+                }
+                canonicos[h] = c;
+            }
+        }
+    }
+
+    // Libera i (cópia de c) se ele for o último nó; o texto só é liberado se
+    // for próprio de i
+    private void descartar(int i, int c) {
+        if (i != tamanho - 1) {
+            return;
+        }
+        if (valores[i] != valores[c] && valores[i] == totalTextos - 1) {
+            textos[--totalTextos] = null;
+        }
+        operadores[i] = 0;
+        tiposInferidos[i] = 0;
+        if (literais != null) {
+            literais[i] = 0;
+        }
+        tamanho--;
+    }
+
+    // Cópia não canônica de i, com os mesmos filhos; recebida logo depois de
+    // intern, fica com a posição da ocorrência que o pediu
+    int duplicar(int i) {
+        int copia = novo(type(i), valores[i], posicaoOcorrencia(i));
+        esquerdas[copia] = esquerdas[i];
+        direitas[copia] = direitas[i];
+        if (deslocamentosEsquerda != null) {
+            deslocamentosEsquerda[copia] = deslocamentosEsquerda[i];
+            deslocamentosDireita[copia] = deslocamentosDireita[i];
+        }
+        idsNomes[copia] = idsNomes[i];
+        operadores[copia] = operadores[i];
+        if (literais != null) {
+            literais[copia] = literais[i];
+            numeros[copia] = numeros[i];
+        }
+        if (linhasExplicitas != null) {
+            linhasExplicitas[copia] = linhasExplicitas[i];
+            colunasExplicitas[copia] = colunasExplicitas[i];
+        }
+        return copia;
+    }
+
+    void setPosition(int i, int linha, int coluna) {
+        linhasExplicitas[i] = linha;
+        colunasExplicitas[i] = coluna;
+    }
+
+    void setType(int i, TipoNo tipo) {
+        tipos[i] = (byte) tipo.ordinal();
+    }
+
+    void setOperator(int i, Operador operador) {
+        operadores[i] = (byte) (operador.ordinal() + 1);
+    }
+
+    void setLeft(int i, int filho) {
+        esquerdas[i] = filho;
+        if (deslocamentosEsquerda != null && filho != NENHUM) {
+            deslocamentosEsquerda[i] = posicaoOcorrencia(filho) - posicoes[i];
+        }
+    }
+
+    void setRight(int i, int filho) {
+        direitas[i] = filho;
+        if (deslocamentosDireita != null && filho != NENHUM) {
+            deslocamentosDireita[i] = posicaoOcorrencia(filho) - posicoes[i];
+        }
+    }
+
+    // Posição da ocorrência de i: a do último intern se i veio dele, senão a
+    // do próprio nó, ainda não compartilhado
+    private int posicaoOcorrencia(int i) {
+        return i == ultimoInterno ? posicaoUltimoInterno : posicao(i);
+    }
+
+    // Acrescenta filho ao fim da lista de filhos de pai; ultimo é o filho
+    // acrescentado antes (NENHUM se for o primeiro)
+    void acrescentarFilho(int pai, int filho, int ultimo) {
+        if (primeirosFilhos == null) {
+            primeirosFilhos = new int[tipos.length];
+            proximosIrmaos = new int[tipos.length];
+            Arrays.fill(primeirosFilhos, NENHUM);
+            Arrays.fill(proximosIrmaos, NENHUM);
+        }
+        if (ultimo == NENHUM) {
+            primeirosFilhos[pai] = filho;
+        } else {
+            proximosIrmaos[ultimo] = filho;
+        }
+    }
+
+    // Encerra a lista de filhos de pai em ultimo (NENHUM: lista vazia)
+    void encerrarFilhos(int pai, int ultimo) {
+        if (primeirosFilhos == null) {
+            return;
+        }
+        if (ultimo == NENHUM) {
+            primeirosFilhos[pai] = NENHUM;
+        } else {
+            proximosIrmaos[ultimo] = NENHUM;
+        }
+    }
+
+    // O texto foi editado: os nós existentes que começam em limiar ou depois
+    // passam a começar delta caracteres adiante, resolvidos por linhas. Nada é
+    // percorrido agora; posicao(i) aplica as edições pendentes
+    void deslocar(int limiar, int delta, LineMap linhas) {
+        this.linhas = linhas;
+        if (delta == 0) {
+            return;
+        }
+        if (totalEdicoes == MAXIMO_EDICOES) {
+            for (int i = 0; i < tamanho; i++) {
+                posicoes[i] = posicao(i);
+            }
+            totalEdicoes = 0;
+        }
+        limitesEdicoes[totalEdicoes] = tamanho;
+        limiaresEdicoes[totalEdicoes] = limiar;
+        deltasEdicoes[totalEdicoes] = delta;
+        totalEdicoes++;
+    }
+
+    // Posição do nó no texto atual
+    private int posicao(int i) {
+        int posicao = posicoes[i];
+        for (int e = 0; e < totalEdicoes; e++) {
+            if (i < limitesEdicoes[e] && posicao >= limiaresEdicoes[e]) {
+                posicao += deltasEdicoes[e];
+            }
+        }
+        return posicao;
+    }
+
+    // Subárvores que a reanálise desligou da árvore; compactar as remove
+    void abandonar(int nos) {
+        inalcancaveis += nos;
+    }
+
+    int unreachableCount() {
+        return inalcancaveis;
+    }
+
+    // Total de nós alcançáveis a partir de no, sem percorrer o resto da arena;
+    // um nó compartilhado conta uma vez por ocorrência
+    int subtreeSize(int no) {
+        return preOrdem(no, null);
+    }
+
+    // Arena só com os nós alcançáveis da raiz, renumerados em pré-ordem e com
+    // as edições pendentes já aplicadas às posições. mapa (do tamanho desta
+    // arena) recebe o novo índice de cada nó, NENHUM para os descartados. O
+    // compartilhamento de subárvores não é levado para a nova arena
+    AstArena compactar(int[] mapa) {
+        int[] ordem = new int[tamanho];
+        int vivos = raiz != NENHUM ? preOrdem(raiz, ordem) : 0;
+        Arrays.fill(mapa, NENHUM);
+        for (int n = 0; n < vivos; n++) {
+            mapa[ordem[n]] = n;
+        }
+
+        AstArena nova = new AstArena(linhas, vivos);
+        if (origens != null) {
+            nova.origens = new ArvoreSintatica[nova.tipos.length];
+        }
+        int[] textosNovos = new int[totalTextos];
+        Arrays.fill(textosNovos, -1);
+        for (int n = 0; n < vivos; n++) {
+            int i = ordem[n];
+            if (textosNovos[valores[i]] < 0) {
+                textosNovos[valores[i]] = nova.guardarTexto(textos[valores[i]]);
+            }
+            int j = nova.novo(type(i), textosNovos[valores[i]], posicao(i));
+            nova.esquerdas[j] = esquerdas[i] != NENHUM ? mapa[esquerdas[i]] : NENHUM;
+            nova.direitas[j] = direitas[i] != NENHUM ? mapa[direitas[i]] : NENHUM;
+            nova.idsNomes[j] = idsNomes[i];
+            nova.operadores[j] = operadores[i];
+            nova.tiposInferidos[j] = tiposInferidos[i];
+            if (literais != null && literais[i] != 0) {
+                nova.marcarNumero(j, LITERAIS[literais[i] - 1], numeros[i]);
+            }
+            if (linhasExplicitas != null) {
+                nova.linhasExplicitas[j] = linhasExplicitas[i];
+                nova.colunasExplicitas[j] = colunasExplicitas[i];
+            }
+            if (origens != null) {
+                nova.origens[j] = origens[i];
+            }
+            int ultimo = NENHUM;
+            for (int f = firstChild(i); f != NENHUM; f = nextSibling(f)) {
+                nova.acrescentarFilho(j, mapa[f], ultimo);
+                ultimo = mapa[f];
+            }
+        }
+
+        nova.textoPorNome = new int[textoPorNome.length];
+        for (int id = 0; id < textoPorNome.length; id++) {
+            nova.textoPorNome[id] = textoPorNome[id] >= 0 ? textosNovos[textoPorNome[id]] : -1;
+        }
+        for (int o = 0; o < textoPorOperador.length; o++) {
+            nova.textoPorOperador[o] = textoPorOperador[o] >= 0 ? textosNovos[textoPorOperador[o]] : -1;
+        }
+        nova.raiz = raiz != NENHUM ? mapa[raiz] : NENHUM;
+        return nova;
+    }
+
+    // Nós alcançáveis a partir de no, em pré-ordem (esquerda, direita e a
+    // lista de filhos); ordem pode ser null quando só o total interessa. Com
+    // ordem, um nó compartilhado entra uma única vez
+    private int preOrdem(int no, int[] ordem) {
+        boolean[] visitados = ordem != null ? new boolean[tamanho] : null;
+        int[] pilha = new int[16];
+        int topo = 0;
+        pilha[0] = no;
+        int total = 0;
+        while (topo >= 0) {
+            int i = pilha[topo--];
+            if (visitados != null) {
+                if (visitados[i]) {
+                    continue;
+                }
+                visitados[i] = true;
+                ordem[total] = i;
+            }
+            total++;
+
+            int filhos = 0;
+            for (int f = firstChild(i); f != NENHUM; f = nextSibling(f)) {
+                filhos++;
+            }
+            if (topo + filhos + 3 >= pilha.length) {
+                pilha = Arrays.copyOf(pilha, Math.max(pilha.length * 2, topo + filhos + 3));
+            }
+            // Empilhados de trás para frente: a esquerda sai primeiro
+            int f = firstChild(i);
+            for (int k = topo + filhos; k > topo; k--) {
+                pilha[k] = f;
+                f = nextSibling(f);
+            }
+            topo += filhos;
+            if (direitas[i] != NENHUM) {
+                pilha[++topo] = direitas[i];
+            }
+            if (esquerdas[i] != NENHUM) {
+                pilha[++topo] = esquerdas[i];
+            }
+        }
+        return total;
+    }
+
+    public int size() {
+        return tamanho;
+    }
+
+    public LineMap getLineMap() {
+        return linhas;
+    }
+
+    public TipoNo type(int i) {
+        return TIPOS[tipos[i]];
+    }
+
+    public String value(int i) {
+        return textos[valores[i]];
+    }
+
+    // Índice do valor na tabela de textos; nós com o mesmo índice têm o mesmo texto
+    public int valueIndex(int i) {
+        return valores[i];
+    }
+
+    public int left(int i) {
+        return esquerdas[i];
+    }
+
+    public int right(int i) {
+        return direitas[i];
+    }
+
+    public int firstChild(int i) {
+        return primeirosFilhos != null && i < primeirosFilhos.length ? primeirosFilhos[i] : NENHUM;
+    }
+
+    public int nextSibling(int i) {
+        return proximosIrmaos != null && i < proximosIrmaos.length ? proximosIrmaos[i] : NENHUM;
+    }
+
+    // Deslocamento no fonte, ou -1 se a arena não tem LineMap
+    public int offset(int i) {
+        return linhas != null ? posicao(i) : -1;
+    }
+
+    // Deslocamento no fonte do filho esquerdo (ou direito) na ocorrência de i
+    // que está em offset; sem compartilhamento é o próprio offset do filho.
+    // -1 se a arena não tem LineMap ou o filho não existe
+    public int leftOffset(int i, int offset) {
+        if (esquerdas[i] == NENHUM) {
+            return -1;
+        }
+        if (linhas == null || deslocamentosEsquerda == null) {
+            return offset(esquerdas[i]);
+        }
+        return offset + deslocamentosEsquerda[i];
+    }
+
+    public int rightOffset(int i, int offset) {
+        if (direitas[i] == NENHUM) {
+            return -1;
+        }
+        if (linhas == null || deslocamentosDireita == null) {
+            return offset(direitas[i]);
+        }
+        return offset + deslocamentosDireita[i];
+    }
+
+    public int line(int i) {
+        return linhas != null ? linhas.line(posicao(i)) : linhasExplicitas[i];
+    }
+
+    public int column(int i) {
+        return linhas != null ? linhas.column(posicao(i)) : colunasExplicitas[i];
+    }
+
+    public int nameId(int i) {
+        return idsNomes[i];
+    }
+
+    public Operador operator(int i) {
+        if (operadores[i] == 0) {
+            return tipos[i] == TipoNo.OPERADOR.ordinal() ? Operador.of(value(i)) : null;
+        }
+        return OPERADORES[operadores[i] - 1];
+    }
+
+    // Tipo do literal de um nó NUMERO; sem valor vindo do lexer, o texto é
+    // decodificado na primeira consulta (NumberFormatException se não couber)
+    public TipoLiteral literal(int i) {
+        if (tipos[i] != TipoNo.NUMERO.ordinal()) {
+            return null;
+        }
+        if (literais == null || literais[i] == 0) {
+            String texto = value(i);
+            TipoLiteral literal = TipoLiteral.of(texto);
+            if (literal == TipoLiteral.INTEIRO) {
+                marcarNumero(i, literal, Long.parseLong(texto));
+            } else {
+                double decimal = Double.parseDouble(texto);
+                if (Double.isInfinite(decimal)) {
+                    throw new NumberFormatException("Numero fora do intervalo: " + texto);
+                }
+                marcarNumero(i, literal, Double.doubleToRawLongBits(decimal));
+            }
+        }
+        return LITERAIS[literais[i] - 1];
+    }
+
+    public long longValue(int i) {
+        return literal(i) == TipoLiteral.DECIMAL ? (long) Double.longBitsToDouble(numeros[i]) : numeros[i];
+    }
+
+    public double doubleValue(int i) {
+        return literal(i) == TipoLiteral.DECIMAL ? Double.longBitsToDouble(numeros[i]) : numeros[i];
+    }
+
+    public TipoDado inferredType(int i) {
+        return tiposInferidos[i] != 0 ? TIPOS_DADO[tiposInferidos[i] - 1] : null;
+    }
+
+    public void setInferredType(int i, TipoDado tipo) {
+        tiposInferidos[i] = (byte) (tipo.ordinal() + 1);
+        if (origens != null) {
+            origens[i].setTipoInferido(tipo);
+        }
+    }
+
+    // Nó raiz da árvore; NENHUM se vazia
+    public int root() {
+        return raiz;
+    }
+
+    void setRoot(int raiz) {
+        this.raiz = raiz;
+    }
+
+    // Reconstrói a subárvore de objetos a partir do nó i. Cada ocorrência de um
+    // nó compartilhado vira um objeto próprio, com a posição dessa ocorrência
+    public ArvoreSintatica toArvore(int raiz) {
+        if (raiz == NENHUM) {
+            return null;
+        }
+        // Pilha de ocorrências: nó, posição, objeto pai e o lado onde pendurar
+        int[] pilha = new int[16];
+        int[] posicoesPilha = new int[16];
+        ArvoreSintatica[] pais = new ArvoreSintatica[16];
+        byte[] lados = new byte[16];
+        int topo = 0;
+        pilha[0] = raiz;
+        posicoesPilha[0] = posicao(raiz);
+        ArvoreSintatica resultado = null;
+        while (topo >= 0) {
+            int i = pilha[topo];
+            int posicao = posicoesPilha[topo];
+            ArvoreSintatica pai = pais[topo];
+            byte lado = lados[topo--];
+            ArvoreSintatica no = criar(i, posicao);
+            if (pai == null) {
+                resultado = no;
+            } else if (lado == 0) {
+                pai.setEsquerda(no);
+            } else if (lado == 1) {
+                pai.setDireita(no);
+            } else {
+                pai.getFilhos().add(no);
+            }
+
+            int filhos = 0;
+            for (int f = firstChild(i); f != NENHUM; f = nextSibling(f)) {
+                filhos++;
+            }
+            if (topo + filhos + 3 >= pilha.length) {
+                int capacidade = Math.max(pilha.length * 2, topo + filhos + 3);
+                pilha = Arrays.copyOf(pilha, capacidade);
+                posicoesPilha = Arrays.copyOf(posicoesPilha, capacidade);
+                pais = Arrays.copyOf(pais, capacidade);
+                lados = Arrays.copyOf(lados, capacidade);
+            }
+            // Empilhados de trás para frente: saem na ordem da lista
+            int f = firstChild(i);
+            for (int k = topo + filhos; k > topo; k--) {
+                pilha[k] = f;
+                posicoesPilha[k] = posicao(f);
+                pais[k] = no;
+                lados[k] = 2;
+                f = nextSibling(f);
+            }
+            topo += filhos;
+            if (direitas[i] != NENHUM) {
+                pilha[++topo] = direitas[i];
+                posicoesPilha[topo] = linhas != null ? rightOffset(i, posicao) : 0;
+                pais[topo] = no;
+                lados[topo] = 1;
+            }
+            if (esquerdas[i] != NENHUM) {
+                pilha[++topo] = esquerdas[i];
+                posicoesPilha[topo] = linhas != null ? leftOffset(i, posicao) : 0;
+                pais[topo] = no;
+                lados[topo] = 0;
+            }
+        }
+        return resultado;
+    }
+
+    private ArvoreSintatica criar(int i, int posicao) {
+        ArvoreSintatica no = linhas != null
+            ? new ArvoreSintatica(value(i), type(i), posicao, linhas)
+            : new ArvoreSintatica(value(i), type(i), linhasExplicitas[i], colunasExplicitas[i]);
+        no.setIdNome(idsNomes[i]);
+        if (operadores[i] != 0) {
+            no.setOperador(OPERADORES[operadores[i] - 1]);
+        }
+        if (literais != null && literais[i] != 0) {
+            if (literais[i] - 1 == TipoLiteral.DECIMAL.ordinal()) {
+                no.setValorDecimal(Double.longBitsToDouble(numeros[i]));
+            } else {
+                no.setValorInteiro(numeros[i]);
+            }
+        }
+        if (tiposInferidos[i] != 0) {
+            no.setTipoInferido(TIPOS_DADO[tiposInferidos[i] - 1]);
+        }
+        return no;
+    }
+
+    // Percorre a arena a partir de um nó, guardando o caminho para poder subir
+    public Cursor cursor(int raiz) {
+        return new Cursor(raiz);
+    }
+
+    public final class Cursor {
+        private int no;
+        private int posicao; // da ocorrência atual, que num nó compartilhado depende do caminho
+        private int[] caminho = new int[16];
+        private int[] posicoesCaminho = new int[16];
+        private int profundidade = 0;
+
+        private Cursor(int raiz) {
+            this.no = raiz;
+            this.posicao = raiz != NENHUM ? posicao(raiz) : 0;
+        }
+
+        public int node() {
+            return no;
+        }
+
+        // Deslocamento no fonte desta ocorrência, ou -1 se a arena não tem LineMap
+        public int offset() {
+            return linhas != null ? posicao : -1;
+        }
+
+        public int line() {
+            return linhas != null ? linhas.line(posicao) : linhasExplicitas[no];
+        }
+
+        public int column() {
+            return linhas != null ? linhas.column(posicao) : colunasExplicitas[no];
+        }
+
+        public TipoNo type() {
+            return AstArena.this.type(no);
+        }
+
+        public String value() {
+            return AstArena.this.value(no);
+        }
+
+        public Operador operator() {
+            return AstArena.this.operator(no);
+        }
+
+        public boolean hasLeft() {
+            return esquerdas[no] != NENHUM;
+        }
+
+        public boolean hasRight() {
+            return direitas[no] != NENHUM;
+        }
+
+        public void toLeft() {
+            descer(esquerdas[no], esquerdas[no] != NENHUM ? leftOffset(no, posicao) : 0);
+        }
+
+        public void toRight() {
+            descer(direitas[no], direitas[no] != NENHUM ? rightOffset(no, posicao) : 0);
+        }
+
+        public void toFirstChild() {
+            int filho = firstChild(no);
+            descer(filho, filho != NENHUM ? posicao(filho) : 0);
+        }
+
+        // Passa ao próximo irmão sem alterar o caminho até o pai
+        public void toNextSibling() {
+            int irmao = nextSibling(no);
+            if (irmao == NENHUM) {
+                throw new IllegalStateException("No sem proximo irmao");
+            }
+            no = irmao;
+            posicao = posicao(irmao);
+        }
+
+        public boolean toParent() {
+            if (profundidade == 0) {
+                return false;
+            }
+            no = caminho[--profundidade];
+            posicao = posicoesCaminho[profundidade];
+            return true;
+        }
+
+        private void descer(int filho, int posicaoFilho) {
+            if (filho == NENHUM) {
+                throw new IllegalStateException("No sem esse filho");
+            }
+            if (profundidade == caminho.length) {
+                caminho = Arrays.copyOf(caminho, profundidade * 2);
+                posicoesCaminho = Arrays.copyOf(posicoesCaminho, profundidade * 2);
+            }
+            posicoesCaminho[profundidade] = posicao;
+            caminho[profundidade++] = no;
+            no = filho;
+            posicao = posicaoFilho;
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package br.edu.fesa.sintatico;
+
+import br.edu.fesa.lexico.BinaryReader;
+import br.edu.fesa.lexico.LineMap;
+import br.edu.fesa.lexico.NamePool;
+import br.edu.fesa.lexico.Operador;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+// Lê as árvores gravadas por AstWriter. Abrir o arquivo lê só o cabeçalho, o
+// LineMap e onde começa cada texto; cursor() decodifica apenas os nós por onde
+// passa, saltando subárvores inteiras pelo tamanho gravado em cada nó, e
+// toArena() reconstrói a arena numa única passada sequencial
+public final class AstReader {
+    private static final TipoNo[] TIPOS = TipoNo.values();
+    private static final Operador[] OPERADORES = Operador.values();
+
+    private final BinaryReader leitor;
+    private final LineMap linhas;
+    private final int total;
+    private final int inicioRaiz;
+
+    public AstReader(ByteBuffer bytes) {
+        this(new BinaryReader(bytes));
+    }
+
+    private AstReader(BinaryReader leitor) {
+        this.leitor = leitor;
+        if (leitor.readInt() != AstWriter.ASSINATURA) {
+            throw new IllegalArgumentException("Arquivo nao contem uma arvore gravada por AstWriter");
+        }
+        boolean explicitas = (leitor.readByte() & AstWriter.POSICOES_EXPLICITAS) != 0;
+        total = leitor.readVarint();
+        linhas = explicitas ? null : leitor.readLineMap();
+        leitor.readTextTable();
+        inicioRaiz = leitor.position();
+    }
+
+    public static AstReader open(Path arquivo) throws IOException {
+        return new AstReader(BinaryReader.map(arquivo));
+    }
+
+    // Total de nós gravados
+    public int size() {
+        return total;
+    }
+
+    // null se os nós foram gravados com linha e coluna explícitas
+    public LineMap getLineMap() {
+        return linhas;
+    }
+
+    // Cursor posicionado na raiz
+    public Cursor cursor() {
+        if (total == 0) {
+            throw new IllegalStateException("Arvore vazia");
+        }
+        return new Cursor();
+    }
+
+    public AstArena toArena() {
+        return toArena(new NamePool());
+    }
+
+    // Identificadores recebem ids de nomes; o mesmo pool do TokenReader mantém
+    // os ids coerentes com os dos tokens
+    public AstArena toArena(NamePool nomes) {
+        AstArena arena = new AstArena(linhas, total);
+        if (total == 0) {
+            return arena;
+        }
+        int[] idsPorTexto = new int[leitor.textCount()];
+        Arrays.fill(idsPorTexto, -1);
+
+        // Pilha dos nós abertos: índice na arena, fim da subárvore no arquivo,
+        // lados ainda por preencher, último filho da lista e posição absoluta
+        int[] nos = new int[16];
+        int[] fins = new int[16];
+        int[] pendentes = new int[16];
+        int[] ultimos = new int[16];
+        int[] posicoes = new int[16];
+        int[] colunas = new int[16];
+        int topo = -1;
+        Registro registro = new Registro();
+        leitor.position(inicioRaiz);
+        while (true) {
+            int pai = topo >= 0 ? nos[topo] : AstArena.NENHUM;
+            registro.ler(topo >= 0 ? posicoes[topo] : (linhas != null ? 0 : 1), topo >= 0 ? colunas[topo] : 1);
+            int i = criar(arena, registro, nomes, idsPorTexto);
+            if (pai == AstArena.NENHUM) {
+                arena.setRoot(i);
+            } else if ((pendentes[topo] & AstWriter.COM_ESQUERDA) != 0) {
+                arena.setLeft(pai, i);
+                pendentes[topo] &= ~AstWriter.COM_ESQUERDA;
+            } else if ((pendentes[topo] & AstWriter.COM_DIREITA) != 0) {
+                arena.setRight(pai, i);
+                pendentes[topo] &= ~AstWriter.COM_DIREITA;
+            } else {
+                arena.acrescentarFilho(pai, i, ultimos[topo]);
+                ultimos[topo] = i;
+            }
+
+            if (++topo == nos.length) {
+                int capacidade = topo * 2;
+                nos = Arrays.copyOf(nos, capacidade);
+                fins = Arrays.copyOf(fins, capacidade);
+                pendentes = Arrays.copyOf(pendentes, capacidade);
+                ultimos = Arrays.copyOf(ultimos, capacidade);
+                posicoes = Arrays.copyOf(posicoes, capacidade);
+                colunas = Arrays.copyOf(colunas, capacidade);
+            }
+            nos[topo] = i;
+            fins[topo] = registro.fim;
+            pendentes[topo] = registro.cabecalho & (AstWriter.COM_ESQUERDA | AstWriter.COM_DIREITA);
+            ultimos[topo] = AstArena.NENHUM;
+            posicoes[topo] = registro.posicao;
+            colunas[topo] = registro.coluna;
+
+            // Fecha as subárvores que terminam aqui
+            while (topo >= 0 && leitor.position() == fins[topo]) {
+                topo--;
+            }
+            if (topo < 0) {
+                return arena;
+            }
+        }
+    }
+
+    public ArvoreSintatica toArvore() {
+        AstArena arena = toArena();
+        return arena.toArvore(arena.root());
+    }
+
+    private int criar(AstArena arena, Registro registro, NamePool nomes, int[] idsPorTexto) {
+        TipoNo tipo = TIPOS[registro.cabecalho & AstWriter.MASCARA_TIPO];
+        String valor = leitor.text(registro.texto);
+        int posicao = linhas != null ? registro.posicao : 0;
+        int i;
+        if ((registro.cabecalho & AstWriter.COM_NOME) != 0) {
+            if (idsPorTexto[registro.texto] < 0) {
+                idsPorTexto[registro.texto] = nomes.intern(valor);
+            }
+            i = arena.addName(tipo, valor, idsPorTexto[registro.texto], posicao);
+        } else if (registro.operador >= 0 && OPERADORES[registro.operador].getTexto().equals(valor)) {
+            i = arena.addOperator(OPERADORES[registro.operador], posicao);
+            arena.setType(i, tipo);
+        } else {
+            i = arena.add(tipo, valor, posicao);
+        }
+        if (registro.operador >= 0) {
+            arena.setOperator(i, OPERADORES[registro.operador]);
+        }
+        if (linhas == null) {
+            arena.setPosition(i, registro.posicao, registro.coluna);
+        }
+        return i;
+    }
+
+    // Campos de um nó lidos na posição atual do leitor. Sem LineMap, posicao é
+    // a linha; a base é a posição absoluta do pai
+    private final class Registro {
+        int fim;       // fim da subárvore no arquivo
+        int cabecalho;
+        int texto;
+        int posicao;
+        int coluna;
+        int operador;
+
+        void ler(int basePosicao, int baseColuna) {
+            int tamanho = leitor.readVarint();
+            fim = leitor.position() + tamanho;
+            cabecalho = leitor.readByte();
+            texto = leitor.readVarint();
+            posicao = basePosicao + leitor.readSignedVarint();
+            coluna = linhas != null ? 0 : baseColuna + leitor.readSignedVarint();
+            operador = (cabecalho & AstWriter.COM_OPERADOR) != 0 ? leitor.readByte() : -1;
+        }
+    }
+
+    // Percorre o arquivo como AstArena.Cursor percorre a arena: só os nós
+    // visitados são decodificados. O caminho guarda, para cada ancestral, onde
+    // ele começa, onde começa sua lista de filhos, onde termina e sua posição,
+    // para subir e passar ao irmão sem reler o arquivo desde a raiz
+    public final class Cursor {
+        private final Registro no = new Registro();
+        private int inicio; // início do nó atual (no tamanho da subárvore)
+        private int corpo;  // início da primeira subárvore filha
+        private int[] inicios = new int[16];
+        private int[] listas = new int[16];
+        private int[] fins = new int[16];
+        private int[] posicoes = new int[16];
+        private int[] colunas = new int[16];
+        private int profundidade = 0;
+
+        private Cursor() {
+            carregar(inicioRaiz, linhas != null ? 0 : 1, 1);
+        }
+
+        private void carregar(int inicio, int basePosicao, int baseColuna) {
+            this.inicio = inicio;
+            leitor.position(inicio);
+            no.ler(basePosicao, baseColuna);
+            corpo = leitor.position();
+        }
+
+        public TipoNo type() {
+            return TIPOS[no.cabecalho & AstWriter.MASCARA_TIPO];
+        }
+
+        public String value() {
+            return leitor.text(no.texto);
+        }
+
+        public Operador operator() {
+            return no.operador >= 0 ? OPERADORES[no.operador] : null;
+        }
+
+        // Deslocamento no fonte, ou -1 se os nós têm posição explícita
+        public int offset() {
+            return linhas != null ? no.posicao : -1;
+        }
+
+        public int line() {
+            return linhas != null ? linhas.line(no.posicao) : no.posicao;
+        }
+
+        public int column() {
+            return linhas != null ? linhas.column(no.posicao) : no.coluna;
+        }
+
+        public boolean hasLeft() {
+            return (no.cabecalho & AstWriter.COM_ESQUERDA) != 0;
+        }
+
+        public boolean hasRight() {
+            return (no.cabecalho & AstWriter.COM_DIREITA) != 0;
+        }
+
+        public boolean hasFirstChild() {
+            return inicioLista() < no.fim;
+        }
+
+        // Só itens da lista de filhos têm irmãos; esquerda e direita não
+        public boolean hasNextSibling() {
+            int p = profundidade - 1;
+            return p >= 0 && inicio >= listas[p] && no.fim < fins[p];
+        }
+
+        public void toLeft() {
+            if (!hasLeft()) {
+                throw new IllegalStateException("No sem esse filho");
+            }
+            descer(corpo);
+        }
+
+        public void toRight() {
+            if (!hasRight()) {
+                throw new IllegalStateException("No sem esse filho");
+            }
+            descer(hasLeft() ? saltar(corpo) : corpo);
+        }
+
+        public void toFirstChild() {
+            if (!hasFirstChild()) {
+                throw new IllegalStateException("No sem esse filho");
+            }
+            descer(inicioLista());
+        }
+
+        // Passa ao próximo irmão sem alterar o caminho até o pai
+        public void toNextSibling() {
+            if (!hasNextSibling()) {
+                throw new IllegalStateException("No sem proximo irmao");
+            }
+            int p = profundidade - 1;
+            carregar(no.fim, posicoes[p], colunas[p]);
+        }
+
+        public boolean toParent() {
+            if (profundidade == 0) {
+                return false;
+            }
+            int p = --profundidade;
+            carregar(inicios[p], p > 0 ? posicoes[p - 1] : (linhas != null ? 0 : 1), p > 0 ? colunas[p - 1] : 1);
+            return true;
+        }
+
+        private void descer(int filho) {
+            if (profundidade == inicios.length) {
+                int capacidade = profundidade * 2;
+                inicios = Arrays.copyOf(inicios, capacidade);
+                listas = Arrays.copyOf(listas, capacidade);
+                fins = Arrays.copyOf(fins, capacidade);
+                posicoes = Arrays.copyOf(posicoes, capacidade);
+                colunas = Arrays.copyOf(colunas, capacidade);
+            }
+            inicios[profundidade] = inicio;
+            listas[profundidade] = inicioLista();
+            fins[profundidade] = no.fim;
+            posicoes[profundidade] = no.posicao;
+            colunas[profundidade] = no.coluna;
+            profundidade++;
+            carregar(filho, no.posicao, no.coluna);
+        }
+
+        // Fim da subárvore que começa em inicio, lido só do tamanho gravado
+        private int saltar(int inicio) {
+            leitor.position(inicio);
+            int tamanho = leitor.readVarint();
+            return leitor.position() + tamanho;
+        }
+
+        // Início da lista de filhos, depois das subárvores esquerda e direita
+        private int inicioLista() {
+            int p = corpo;
+            if (hasLeft()) {
+                p = saltar(p);
+            }
+            if (hasRight()) {
+                p = saltar(p);
+            }
+            return p;
+        }
+    }
+}
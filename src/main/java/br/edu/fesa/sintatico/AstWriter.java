@@ -0,0 +1,190 @@
+package br.edu.fesa.sintatico;
+
+import br.edu.fesa.lexico.BinaryWriter;
+import br.edu.fesa.lexico.LineMap;
+import br.edu.fesa.lexico.Operador;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Grava uma árvore num formato binário compacto, lido por AstReader:
+//
+//   int    'A' 'S' 'T' versão
+//   byte   POSICOES_EXPLICITAS se os nós não têm deslocamento no fonte
+//   varint total de nós
+//   LineMap (só com deslocamentos) e tabela de textos
+//   nós em pré-ordem: esquerda, direita e depois a lista de filhos
+//
+// Cada nó começa pelo tamanho em bytes de toda a sua subárvore, o que permite
+// ao leitor saltar uma subárvore sem decodificá-la. Seguem byte tipo | flags,
+// varint índice do valor na tabela, a posição como diferença
+// (zigzag) para a do pai e [byte operador]. Os filhos da lista vão até o fim
+// da subárvore do pai. Números não levam o valor decodificado: a arena lida o
+// obtém do texto na primeira consulta, como faz com árvores de objetos. Nós
+// compartilhados pelo hash-consing são gravados uma vez em cada lugar onde
+// aparecem, cada vez com a posição daquela ocorrência
+public final class AstWriter {
+    // O último byte é a versão do formato: muda junto com ele e com qualquer
+    // mudança em TipoNo ou Operador, cujos ordinais são gravados
+    static final int ASSINATURA = 'A' << 24 | 'S' << 16 | 'T' << 8 | 2;
+    static final int POSICOES_EXPLICITAS = 1;
+
+    // Flags somadas ao ordinal do tipo, que cabe nos 4 bits baixos
+    static final int COM_ESQUERDA = 0x10;
+    static final int COM_DIREITA = 0x20;
+    static final int COM_OPERADOR = 0x40;
+    static final int COM_NOME = 0x80;
+    static final int MASCARA_TIPO = 0x0F;
+
+    // Um tipo novo que não caiba na máscara invadiria os bits das flags
+    static {
+        if (TipoNo.values().length > MASCARA_TIPO + 1 || Operador.values().length > 0xFF) {
+            throw new IllegalStateException("Ordinais não cabem no formato de AstWriter");
+        }
+    }
+
+    private AstWriter() {
+    }
+
+    public static byte[] encode(AstArena arena) {
+        return codificar(arena, arena.root()).toByteArray();
+    }
+
+    public static void write(AstArena arena, Path arquivo) throws IOException {
+        codificar(arena, arena.root()).writeTo(arquivo);
+    }
+
+    public static void write(ArvoreSintatica raiz, Path arquivo) throws IOException {
+        write(AstArena.of(raiz), arquivo);
+    }
+
+    private static BinaryWriter codificar(AstArena arena, int raiz) {
+        // Pré-ordem expandida: cada ocorrência guarda o nó, a ocorrência do pai
+        // e a sua posição no fonte
+        int[] nos = new int[Math.max(16, arena.size())];
+        int[] pais = new int[nos.length];
+        int[] posicoes = new int[nos.length];
+        int total = 0;
+        int[] pilha = new int[16];
+        int[] paisPilha = new int[16];
+        int[] posicoesPilha = new int[16];
+        int topo = -1;
+        if (raiz != AstArena.NENHUM) {
+            pilha[++topo] = raiz;
+            paisPilha[topo] = -1;
+            posicoesPilha[topo] = arena.offset(raiz);
+        }
+        while (topo >= 0) {
+            int i = pilha[topo];
+            int pai = paisPilha[topo];
+            int posicao = posicoesPilha[topo--];
+            if (total == nos.length) {
+                nos = Arrays.copyOf(nos, total * 2);
+                pais = Arrays.copyOf(pais, total * 2);
+                posicoes = Arrays.copyOf(posicoes, total * 2);
+            }
+            nos[total] = i;
+            pais[total] = pai;
+            posicoes[total] = posicao;
+            int ocorrencia = total++;
+
+            int filhos = 0;
+            for (int f = arena.firstChild(i); f != AstArena.NENHUM; f = arena.nextSibling(f)) {
+                filhos++;
+            }
+            if (topo + filhos + 3 >= pilha.length) {
+                pilha = Arrays.copyOf(pilha, Math.max(pilha.length * 2, topo + filhos + 3));
+                paisPilha = Arrays.copyOf(paisPilha, pilha.length);
+                posicoesPilha = Arrays.copyOf(posicoesPilha, pilha.length);
+            }
+            // Empilhados de trás para frente: a esquerda sai primeiro
+            int f = arena.firstChild(i);
+            for (int k = topo + filhos; k > topo; k--) {
+                pilha[k] = f;
+                paisPilha[k] = ocorrencia;
+                posicoesPilha[k] = arena.offset(f);
+                f = arena.nextSibling(f);
+            }
+            topo += filhos;
+            if (arena.right(i) != AstArena.NENHUM) {
+                pilha[++topo] = arena.right(i);
+                paisPilha[topo] = ocorrencia;
+                posicoesPilha[topo] = arena.rightOffset(i, posicao);
+            }
+            if (arena.left(i) != AstArena.NENHUM) {
+                pilha[++topo] = arena.left(i);
+                paisPilha[topo] = ocorrencia;
+                posicoesPilha[topo] = arena.leftOffset(i, posicao);
+            }
+        }
+
+        // Registros sem o tamanho, na mesma ordem; o tamanho de cada subárvore
+        // é acumulado de trás para frente, já que os descendentes vêm depois
+        LineMap linhas = arena.getLineMap();
+        List<String> textos = new ArrayList<>();
+        Map<String, Integer> indices = new HashMap<>();
+        BinaryWriter registros = new BinaryWriter(total * 4);
+        int[] inicios = new int[total + 1];
+        for (int o = 0; o < total; o++) {
+            inicios[o] = registros.size();
+            gravarRegistro(registros, arena, nos[o], pais[o] < 0 ? AstArena.NENHUM : nos[pais[o]],
+                           posicoes[o] - (pais[o] < 0 ? 0 : posicoes[pais[o]]), linhas, textos, indices);
+        }
+        inicios[total] = registros.size();
+        int[] tamanhos = new int[total];
+        for (int o = total - 1; o >= 0; o--) {
+            tamanhos[o] += inicios[o + 1] - inicios[o];
+            if (pais[o] >= 0) {
+                tamanhos[pais[o]] += BinaryWriter.varintSize(tamanhos[o]) + tamanhos[o];
+            }
+        }
+
+        BinaryWriter saida = new BinaryWriter(registros.size() + total * 2 + textos.size() * 8 + 64);
+        saida.writeInt(ASSINATURA);
+        saida.writeByte(linhas == null ? POSICOES_EXPLICITAS : 0);
+        saida.writeVarint(total);
+        if (linhas != null) {
+            saida.writeLineMap(linhas);
+        }
+        saida.writeTextTable(textos);
+        for (int o = 0; o < total; o++) {
+            saida.writeVarint(tamanhos[o]);
+            saida.write(registros, inicios[o], inicios[o + 1]);
+        }
+        return saida;
+    }
+
+    // deslocamento é a posição desta ocorrência menos a da ocorrência do pai
+    private static void gravarRegistro(BinaryWriter destino, AstArena arena, int i, int pai, int deslocamento,
+                                       LineMap linhas, List<String> textos, Map<String, Integer> indices) {
+        Operador operador = arena.operator(i);
+        destino.writeByte(arena.type(i).ordinal()
+                          | (arena.left(i) != AstArena.NENHUM ? COM_ESQUERDA : 0)
+                          | (arena.right(i) != AstArena.NENHUM ? COM_DIREITA : 0)
+                          | (operador != null ? COM_OPERADOR : 0)
+                          | (arena.nameId(i) >= 0 ? COM_NOME : 0));
+
+        String valor = arena.value(i);
+        Integer indice = indices.get(valor);
+        if (indice == null) {
+            indice = textos.size();
+            indices.put(valor, indice);
+            textos.add(valor);
+        }
+        destino.writeVarint(indice);
+
+        if (linhas != null) {
+            destino.writeSignedVarint(deslocamento);
+        } else {
+            destino.writeSignedVarint(arena.line(i) - (pai != AstArena.NENHUM ? arena.line(pai) : 1));
+            destino.writeSignedVarint(arena.column(i) - (pai != AstArena.NENHUM ? arena.column(pai) : 1));
+        }
+        if (operador != null) {
+            destino.writeByte(operador.ordinal());
+        }
+    }
+}
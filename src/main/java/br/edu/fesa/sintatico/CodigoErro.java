@@ -0,0 +1,10 @@
+package br.edu.fesa.sintatico;
+
+// Código do diagnóstico registrado em ErroSintatico
+public enum CodigoErro {
+    TOKEN_ESPERADO,
+    EXPRESSAO_ESPERADA,
+    TOKEN_INESPERADO,
+    FIM_ESPERADO,
+    PROFUNDIDADE_EXCEDIDA
+}
@@ -0,0 +1,52 @@
+package br.edu.fesa.sintatico;
+
+import br.edu.fesa.lexico.LineMap;
+import br.edu.fesa.lexico.TipoToken;
+
+// Diagnóstico registrado pelo Parser ao recuperar-se de um erro. Guarda o
+// token onde o erro foi detectado; linha e coluna vêm do LineMap, quando há
+public final class ErroSintatico {
+    private final CodigoErro codigo;
+    private final TipoToken esperado;   // só em TOKEN_ESPERADO
+    private final TipoToken encontrado;
+    private final String lexema;
+    private final String mensagem;
+    private final int posicao;
+    private final LineMap linhas;
+    private final int linha;
+    private final int coluna;
+
+    ErroSintatico(CodigoErro codigo, TipoToken esperado, TipoToken encontrado, String lexema, String mensagem,
+                  int posicao, LineMap linhas, int linha, int coluna) {
+        this.codigo = codigo;
+        this.esperado = esperado;
+        this.encontrado = encontrado;
+        this.lexema = lexema;
+        this.mensagem = mensagem;
+        this.posicao = posicao;
+        this.linhas = linhas;
+        this.linha = linha;
+        this.coluna = coluna;
+    }
+
+    // Mesmo erro num texto editado: posições a partir de limiar andam delta
+    ErroSintatico deslocado(int limiar, int delta, LineMap novas) {
+        return new ErroSintatico(codigo, esperado, encontrado, lexema, mensagem,
+            posicao >= limiar ? posicao + delta : posicao, novas, linha, coluna);
+    }
+
+    @Override
+    public String toString() {
+        return "[" + getLinha() + ":" + getColuna() + "] " + codigo + ": " + mensagem;
+    }
+
+    // Getters
+    public CodigoErro getCodigo() { return codigo; }
+    public TipoToken getEsperado() { return esperado; }
+    public TipoToken getEncontrado() { return encontrado; }
+    public String getLexema() { return lexema; }
+    public String getMensagem() { return mensagem; }
+    public int getPosicao() { return posicao; }
+    public int getLinha() { return linhas != null ? linhas.line(posicao) : linha; }
+    public int getColuna() { return linhas != null ? linhas.column(posicao) : coluna; }
+}
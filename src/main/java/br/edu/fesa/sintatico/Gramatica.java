@@ -0,0 +1,340 @@
+package br.edu.fesa.sintatico;
+
+import br.edu.fesa.lexico.Operador;
+import br.edu.fesa.lexico.TipoToken;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Gramática LL(1) lida de um arquivo de descrição, com os conjuntos First e
+// Follow e a tabela de análise calculados na carga. Cada símbolo é um int:
+// terminais são os ordinais de TipoToken seguidos dos ordinais de Operador,
+// depois vêm os não terminais e, por fim, as ações (#nome).
+//
+// Formato: "A -> x y | z" define as alternativas de A; uma linha começando
+// com '|' acrescenta alternativas ao último não terminal; ε é a alternativa
+// vazia e "//" inicia um comentário. Terminais são nomes de TipoToken ou o
+// texto de um operador entre aspas simples.
+public final class Gramatica {
+    private static final TipoToken[] TIPOS = TipoToken.values();
+    private static final Operador[] OPERADORES = Operador.values();
+    static final int TOTAL_TERMINAIS = TIPOS.length + OPERADORES.length;
+    static final int NENHUMA = -1;
+
+    private final String[] naoTerminais;
+    private final String[] acoes;
+    private final int[] cabecas;   // não terminal de cada produção
+    private final int[] inicios;   // produção p ocupa simbolos[inicios[p]..inicios[p + 1])
+    private final int[] simbolos;
+    private final boolean[] anulaveis;
+    private final BitSet[] primeiros;
+    private final BitSet[] seguintes;
+    private final int[] tabela;    // [não terminal * TOTAL_TERMINAIS + terminal] -> produção
+
+    private Gramatica(String[] naoTerminais, String[] acoes, int[] cabecas, int[] inicios, int[] simbolos) {
+        this.naoTerminais = naoTerminais;
+        this.acoes = acoes;
+        this.cabecas = cabecas;
+        this.inicios = inicios;
+        this.simbolos = simbolos;
+        this.anulaveis = new boolean[naoTerminais.length];
+        this.primeiros = new BitSet[naoTerminais.length];
+        this.seguintes = new BitSet[naoTerminais.length];
+        for (int n = 0; n < naoTerminais.length; n++) {
+            primeiros[n] = new BitSet(TOTAL_TERMINAIS);
+            seguintes[n] = new BitSet(TOTAL_TERMINAIS);
+        }
+        calcularPrimeiros();
+        calcularSeguintes();
+        this.tabela = montarTabela();
+    }
+
+    // Gramática das expressões usada pelo LL1Parser, carregada uma única vez
+    public static Gramatica padrao() {
+        return Padrao.GRAMATICA;
+    }
+
+    private static final class Padrao {
+        private static final Gramatica GRAMATICA = carregar("expressoes.gramatica");
+    }
+
+    private static Gramatica carregar(String recurso) {
+        try (InputStream in = Gramatica.class.getResourceAsStream(recurso)) {
+            if (in == null) {
+                throw new IllegalStateException("Gramatica nao encontrada: " + recurso);
+            }
+            return of(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Lê a descrição; IllegalArgumentException se houver símbolo desconhecido
+    // ou se a gramática não for LL(1)
+    public static Gramatica of(String descricao) {
+        Map<String, List<String[]>> regras = new LinkedHashMap<>();
+        List<String[]> atual = null;
+        for (String linha : descricao.split("\r?\n")) {
+            int comentario = linha.indexOf("//");
+            if (comentario >= 0) {
+                linha = linha.substring(0, comentario);
+            }
+            linha = linha.trim();
+            if (linha.isEmpty()) {
+                continue;
+            }
+            String corpo;
+            int seta = linha.indexOf("->");
+            if (seta >= 0) {
+                String cabeca = linha.substring(0, seta).trim();
+                atual = regras.computeIfAbsent(cabeca, c -> new ArrayList<>());
+                corpo = linha.substring(seta + 2);
+            } else if (linha.startsWith("|") && atual != null) {
+                corpo = linha.substring(1);
+            } else {
+                throw new IllegalArgumentException("Linha invalida na gramatica: " + linha);
+            }
+            List<String> alternativa = new ArrayList<>();
+            for (String simbolo : corpo.trim().split("\\s+")) {
+                if (simbolo.equals("|")) {
+                    atual.add(alternativa.toArray(new String[0]));
+                    alternativa.clear();
+                } else if (!simbolo.isEmpty() && !simbolo.equals("ε")) {
+                    alternativa.add(simbolo);
+                }
+            }
+            atual.add(alternativa.toArray(new String[0]));
+        }
+        if (regras.isEmpty()) {
+            throw new IllegalArgumentException("Gramatica vazia");
+        }
+
+        String[] naoTerminais = regras.keySet().toArray(new String[0]);
+        List<String> acoes = new ArrayList<>();
+        List<Integer> cabecas = new ArrayList<>();
+        int[] inicios = new int[16];
+        int[] simbolos = new int[64];
+        int total = 0;
+        int producao = 0;
+        for (int n = 0; n < naoTerminais.length; n++) {
+            for (String[] alternativa : regras.get(naoTerminais[n])) {
+                if (producao + 2 > inicios.length) {
+                    inicios = Arrays.copyOf(inicios, inicios.length * 2);
+                }
+                inicios[producao++] = total;
+                cabecas.add(n);
+                for (String simbolo : alternativa) {
+                    if (total == simbolos.length) {
+                        simbolos = Arrays.copyOf(simbolos, total * 2);
+                    }
+                    simbolos[total++] = codificar(simbolo, naoTerminais, acoes);
+                }
+            }
+        }
+        inicios[producao] = total;
+
+        // Ações são numeradas depois dos não terminais
+        int primeiraAcao = TOTAL_TERMINAIS + naoTerminais.length;
+        for (int i = 0; i < total; i++) {
+            if (simbolos[i] < 0) {
+                simbolos[i] = primeiraAcao + (-simbolos[i] - 1);
+            }
+        }
+        return new Gramatica(naoTerminais, acoes.toArray(new String[0]),
+                cabecas.stream().mapToInt(Integer::intValue).toArray(),
+                Arrays.copyOf(inicios, producao + 1), Arrays.copyOf(simbolos, total));
+    }
+
+    // Ações saem negativas (-1 - índice) até se saber o total de não terminais
+    private static int codificar(String simbolo, String[] naoTerminais, List<String> acoes) {
+        if (simbolo.startsWith("#")) {
+            String nome = simbolo.substring(1);
+            int acao = acoes.indexOf(nome);
+            if (acao < 0) {
+                acao = acoes.size();
+                acoes.add(nome);
+            }
+            return -1 - acao;
+        }
+        if (simbolo.length() > 2 && simbolo.startsWith("'") && simbolo.endsWith("'")) {
+            Operador operador = Operador.of(simbolo.substring(1, simbolo.length() - 1));
+            if (operador == null) {
+                throw new IllegalArgumentException("Operador desconhecido na gramatica: " + simbolo);
+            }
+            return TIPOS.length + operador.ordinal();
+        }
+        for (int n = 0; n < naoTerminais.length; n++) {
+            if (naoTerminais[n].equals(simbolo)) {
+                return TOTAL_TERMINAIS + n;
+            }
+        }
+        for (TipoToken tipo : TIPOS) {
+            if (tipo.name().equals(simbolo)) {
+                return tipo.ordinal();
+            }
+        }
+        throw new IllegalArgumentException("Simbolo desconhecido na gramatica: " + simbolo);
+    }
+
+    private void calcularPrimeiros() {
+        boolean mudou = true;
+        while (mudou) {
+            mudou = false;
+            for (int p = 0; p < cabecas.length; p++) {
+                int cabeca = cabecas[p];
+                BitSet destino = primeiros[cabeca];
+                int antes = destino.cardinality();
+                if (primeirosDaSequencia(inicios[p], inicios[p + 1], destino) && !anulaveis[cabeca]) {
+                    anulaveis[cabeca] = true;
+                    mudou = true;
+                }
+                mudou |= destino.cardinality() != antes;
+            }
+        }
+    }
+
+    // Acrescenta a destino o First de simbolos[de..ate); true se a sequência é anulável
+    private boolean primeirosDaSequencia(int de, int ate, BitSet destino) {
+        for (int i = de; i < ate; i++) {
+            int simbolo = simbolos[i];
+            if (isTerminal(simbolo)) {
+                destino.set(simbolo);
+                return false;
+            }
+            if (isNaoTerminal(simbolo)) {
+                destino.or(primeiros[simbolo - TOTAL_TERMINAIS]);
+                if (!anulaveis[simbolo - TOTAL_TERMINAIS]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void calcularSeguintes() {
+        seguintes[0].set(TipoToken.EOF.ordinal());
+        boolean mudou = true;
+        while (mudou) {
+            mudou = false;
+            for (int p = 0; p < cabecas.length; p++) {
+                for (int i = inicios[p]; i < inicios[p + 1]; i++) {
+                    if (!isNaoTerminal(simbolos[i])) {
+                        continue;
+                    }
+                    BitSet destino = seguintes[simbolos[i] - TOTAL_TERMINAIS];
+                    int antes = destino.cardinality();
+                    if (primeirosDaSequencia(i + 1, inicios[p + 1], destino)) {
+                        destino.or(seguintes[cabecas[p]]);
+                    }
+                    mudou |= destino.cardinality() != antes;
+                }
+            }
+        }
+    }
+
+    private int[] montarTabela() {
+        int[] entradas = new int[naoTerminais.length * TOTAL_TERMINAIS];
+        Arrays.fill(entradas, NENHUMA);
+        for (int p = 0; p < cabecas.length; p++) {
+            BitSet terminais = new BitSet(TOTAL_TERMINAIS);
+            if (primeirosDaSequencia(inicios[p], inicios[p + 1], terminais)) {
+                terminais.or(seguintes[cabecas[p]]);
+            }
+            for (int t = terminais.nextSetBit(0); t >= 0; t = terminais.nextSetBit(t + 1)) {
+                int entrada = cabecas[p] * TOTAL_TERMINAIS + t;
+                if (entradas[entrada] != NENHUMA && entradas[entrada] != p) {
+                    throw new IllegalArgumentException("Gramatica nao e LL(1): conflito em "
+                            + naoTerminais[cabecas[p]] + " com " + nomeTerminal(t));
+                }
+                entradas[entrada] = p;
+            }
+        }
+        // Não terminal anulável sem entrada para o token usa a produção vazia:
+        // o erro é detectado no próximo terminal esperado, com mensagem mais
+        // precisa, e ainda antes de consumir o token errado
+        for (int p = 0; p < cabecas.length; p++) {
+            if (inicios[p] == inicios[p + 1]) {
+                int linha = cabecas[p] * TOTAL_TERMINAIS;
+                for (int t = 0; t < TOTAL_TERMINAIS; t++) {
+                    if (entradas[linha + t] == NENHUMA) {
+                        entradas[linha + t] = p;
+                    }
+                }
+            }
+        }
+        return entradas;
+    }
+
+    public Set<String> first(String naoTerminal) {
+        return nomes(primeiros[indice(naoTerminal)]);
+    }
+
+    public Set<String> follow(String naoTerminal) {
+        return nomes(seguintes[indice(naoTerminal)]);
+    }
+
+    private int indice(String naoTerminal) {
+        for (int n = 0; n < naoTerminais.length; n++) {
+            if (naoTerminais[n].equals(naoTerminal)) {
+                return n;
+            }
+        }
+        throw new IllegalArgumentException("Nao terminal desconhecido: " + naoTerminal);
+    }
+
+    private static Set<String> nomes(BitSet terminais) {
+        Set<String> nomes = new LinkedHashSet<>();
+        for (int t = terminais.nextSetBit(0); t >= 0; t = terminais.nextSetBit(t + 1)) {
+            nomes.add(nomeTerminal(t));
+        }
+        return nomes;
+    }
+
+    static String nomeTerminal(int terminal) {
+        return terminal < TIPOS.length
+            ? TIPOS[terminal].name() : "'" + OPERADORES[terminal - TIPOS.length].getTexto() + "'";
+    }
+
+    // Acesso do motor LL(1)
+
+    int simboloInicial() {
+        return TOTAL_TERMINAIS;
+    }
+
+    boolean isTerminal(int simbolo) {
+        return simbolo < TOTAL_TERMINAIS;
+    }
+
+    boolean isNaoTerminal(int simbolo) {
+        return simbolo >= TOTAL_TERMINAIS && simbolo < TOTAL_TERMINAIS + naoTerminais.length;
+    }
+
+    int primeiraAcao() {
+        return TOTAL_TERMINAIS + naoTerminais.length;
+    }
+
+    String[] acoes() {
+        return acoes.clone();
+    }
+
+    int[] tabela() {
+        return tabela;
+    }
+
+    int[] inicios() {
+        return inicios;
+    }
+
+    int[] simbolos() {
+        return simbolos;
+    }
+}
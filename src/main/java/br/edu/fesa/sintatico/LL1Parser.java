@@ -0,0 +1,226 @@
+package br.edu.fesa.sintatico;
+
+import br.edu.fesa.lexico.LineMap;
+import br.edu.fesa.lexico.Operador;
+import br.edu.fesa.lexico.TipoLiteral;
+import br.edu.fesa.lexico.TipoToken;
+import br.edu.fesa.lexico.Token;
+import br.edu.fesa.lexico.TokenBuffer;
+import br.edu.fesa.lexico.TokenSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Motor LL(1) dirigido pela tabela de uma Gramatica: uma pilha explícita de
+// símbolos e outra de nós. O token atual vira um índice de terminal (ordinal
+// do operador ou do tipo), que indexa a tabela sem comparar textos. Produz a
+// mesma árvore que Parser.parseProgram(), mas para no primeiro erro
+public final class LL1Parser {
+    // Ações conhecidas pelo motor, referidas na gramática como #nome
+    private static final String[] NOMES_ACOES = {
+        "programa", "instrucao", "id", "num", "op", "binario", "prefixo", "chamada", "atribuicao"
+    };
+    private static final byte PROGRAMA = 0;
+    private static final byte INSTRUCAO = 1;
+    private static final byte ID = 2;
+    private static final byte NUM = 3;
+    private static final byte OP = 4;
+    private static final byte BINARIO = 5;
+    private static final byte PREFIXO = 6;
+    private static final byte CHAMADA = 7;
+    private static final byte ATRIBUICAO = 8;
+
+    private static final int TOTAL_TIPOS = TipoToken.values().length;
+
+    private final Gramatica gramatica;
+    private final byte[] codigosAcoes; // ação da gramática -> código do motor
+    private final TokenSource fonte;
+    private final List<Token> tokens;
+
+    private AstArena arena;
+    private int[] nos = new int[16]; // pilha de nós já montados
+    private int topoNos;
+    private int programa;
+    private int ultimaInstrucao;
+
+    public LL1Parser(List<Token> tokens) {
+        this(Gramatica.padrao(), TokenBuffer.of(tokens).cursor(), tokens);
+    }
+
+    public LL1Parser(TokenBuffer buffer) {
+        this(Gramatica.padrao(), buffer.cursor(), buffer.asList());
+    }
+
+    public LL1Parser(Gramatica gramatica, TokenSource fonte) {
+        this(gramatica, fonte, null);
+    }
+
+    private LL1Parser(Gramatica gramatica, TokenSource fonte, List<Token> tokens) {
+        this.gramatica = gramatica;
+        this.fonte = fonte;
+        this.tokens = tokens;
+        String[] acoes = gramatica.acoes();
+        codigosAcoes = new byte[acoes.length];
+        for (int a = 0; a < acoes.length; a++) {
+            int codigo = Arrays.asList(NOMES_ACOES).indexOf(acoes[a]);
+            if (codigo < 0) {
+                throw new IllegalArgumentException("Acao desconhecida na gramatica: #" + acoes[a]);
+            }
+            codigosAcoes[a] = (byte) codigo;
+        }
+    }
+
+    public RetornoParser parse() {
+        arena = new AstArena(fonte.lineMap(), tokens != null ? tokens.size() : 0);
+        topoNos = -1;
+        programa = AstArena.NENHUM;
+        ultimaInstrucao = AstArena.NENHUM;
+
+        int[] tabela = gramatica.tabela();
+        int[] inicios = gramatica.inicios();
+        int[] simbolos = gramatica.simbolos();
+        int primeiraAcao = gramatica.primeiraAcao();
+
+        int[] pilha = new int[64];
+        int topo = 0;
+        pilha[0] = gramatica.simboloInicial();
+        int terminal = terminalAtual();
+        while (topo >= 0) {
+            int simbolo = pilha[topo--];
+            if (simbolo < Gramatica.TOTAL_TERMINAIS) {
+                if (simbolo != terminal) {
+                    return falha(CodigoErro.TOKEN_ESPERADO, simbolo, AstArena.NENHUM);
+                }
+                fonte.advance();
+                terminal = terminalAtual();
+            } else if (simbolo < primeiraAcao) {
+                int naoTerminal = simbolo - Gramatica.TOTAL_TERMINAIS;
+                int producao = tabela[naoTerminal * Gramatica.TOTAL_TERMINAIS + terminal];
+                if (producao == Gramatica.NENHUMA) {
+                    return falha(CodigoErro.TOKEN_INESPERADO, AstArena.NENHUM, naoTerminal);
+                }
+                int inicio = inicios[producao];
+                int fim = inicios[producao + 1];
+                if (topo + fim - inicio >= pilha.length) {
+                    pilha = Arrays.copyOf(pilha, Math.max(pilha.length * 2, topo + fim - inicio + 1));
+                }
+                // Empilha a produção de trás para frente
+                for (int i = fim - 1; i >= inicio; i--) {
+                    pilha[++topo] = simbolos[i];
+                }
+            } else {
+                executar(codigosAcoes[simbolo - primeiraAcao]);
+            }
+        }
+        arena.setRoot(programa);
+        return new RetornoParser(tokens, arena, List.of());
+    }
+
+    // Índice do token atual entre os terminais da gramática
+    private int terminalAtual() {
+        Operador operador = fonte.operator(0);
+        return operador != null ? TOTAL_TIPOS + operador.ordinal() : fonte.type(0).ordinal();
+    }
+
+    private void executar(byte acao) {
+        switch (acao) {
+            case PROGRAMA:
+                programa = arena.add(TipoNo.PROGRAM, "programa", fonte.offset(0));
+                posicionar(programa);
+                break;
+            case INSTRUCAO: {
+                int instrucao = nos[topoNos--];
+                arena.acrescentarFilho(programa, instrucao, ultimaInstrucao);
+                ultimaInstrucao = instrucao;
+                break;
+            }
+            case ID:
+                empilhar(arena.addName(TipoNo.IDENTIFICADOR, fonte.lexeme(0), fonte.nameId(0), fonte.offset(0)));
+                break;
+            case NUM: {
+                TipoLiteral literal = fonte.literal(0);
+                long bits = literal == TipoLiteral.DECIMAL
+                    ? Double.doubleToRawLongBits(fonte.doubleValue(0)) : fonte.longValue(0);
+                empilhar(arena.addNumber(fonte.lexeme(0), literal, bits, fonte.offset(0)));
+                break;
+            }
+            case OP:
+                empilhar(arena.addOperator(fonte.operator(0), fonte.offset(0)));
+                break;
+            case BINARIO: {
+                int direita = nos[topoNos--];
+                int operador = nos[topoNos--];
+                arena.setLeft(operador, nos[topoNos]);
+                arena.setRight(operador, direita);
+                nos[topoNos] = operador;
+                break;
+            }
+            case PREFIXO: {
+                int operando = nos[topoNos--];
+                arena.setLeft(nos[topoNos], operando);
+                break;
+            }
+            case CHAMADA: {
+                int argumento = nos[topoNos--];
+                arena.setType(nos[topoNos], TipoNo.CHAMADA_FUNCAO);
+                arena.setLeft(nos[topoNos], argumento);
+                break;
+            }
+            case ATRIBUICAO: {
+                int valor = nos[topoNos--];
+                int operador = nos[topoNos--];
+                arena.setType(operador, TipoNo.ATRIBUICAO);
+                arena.setLeft(operador, nos[topoNos]);
+                arena.setRight(operador, valor);
+                nos[topoNos] = operador;
+                break;
+            }
+            default:
+                throw new IllegalStateException("Acao sem implementacao: " + acao);
+        }
+    }
+
+    // Nó criado a partir do token atual
+    private void empilhar(int no) {
+        posicionar(no);
+        if (++topoNos == nos.length) {
+            nos = Arrays.copyOf(nos, nos.length * 2);
+        }
+        nos[topoNos] = no;
+    }
+
+    // Com LineMap o nó guarda apenas o deslocamento; sem ele, linha e coluna
+    private void posicionar(int no) {
+        if (arena.getLineMap() == null) {
+            arena.setPosition(no, fonte.line(0), fonte.column(0));
+        }
+    }
+
+    // Terminal esperado no topo da pilha, ou não terminal sem entrada para o
+    // token atual: a mensagem lista os terminais aceitos naquela linha da tabela
+    private RetornoParser falha(CodigoErro codigo, int esperado, int naoTerminal) {
+        String mensagem;
+        TipoToken tipoEsperado = null;
+        if (esperado != AstArena.NENHUM) {
+            if (esperado < TOTAL_TIPOS) {
+                tipoEsperado = TipoToken.values()[esperado];
+            }
+            mensagem = "Esperado " + Gramatica.nomeTerminal(esperado)
+                + ", encontrado " + fonte.type(0) + " '" + fonte.lexeme(0) + "'";
+        } else {
+            StringBuilder aceitos = new StringBuilder();
+            int[] tabela = gramatica.tabela();
+            for (int t = 0; t < Gramatica.TOTAL_TERMINAIS; t++) {
+                if (tabela[naoTerminal * Gramatica.TOTAL_TERMINAIS + t] != Gramatica.NENHUMA) {
+                    aceitos.append(aceitos.length() > 0 ? ", " : "").append(Gramatica.nomeTerminal(t));
+                }
+            }
+            mensagem = "Token inesperado '" + fonte.lexeme(0) + "'; esperado: " + aceitos;
+        }
+        LineMap linhas = fonte.lineMap();
+        List<ErroSintatico> erros = new ArrayList<>(1);
+        erros.add(new ErroSintatico(codigo, tipoEsperado, fonte.type(0), fonte.lexeme(0), mensagem,
+            fonte.offset(0), linhas, linhas == null ? fonte.line(0) : 0, linhas == null ? fonte.column(0) : 0));
+        return new RetornoParser(tokens, arena, erros);
+    }
+}
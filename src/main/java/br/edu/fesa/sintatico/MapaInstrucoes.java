@@ -0,0 +1,29 @@
+package br.edu.fesa.sintatico;
+
+import java.util.Arrays;
+
+// Instruções de um programa, na ordem: o nó de cada uma, o intervalo de
+// tokens [inicio, fim) que ela consumiu (incluindo o ';') e quantos erros
+// sintáticos haviam sido registrados ao fim dela. Usado pela reanálise
+// incremental para decidir o que reaproveitar
+final class MapaInstrucoes {
+    int[] nos = new int[16];
+    int[] inicios = new int[16];
+    int[] fins = new int[16];
+    int[] errosAte = new int[16];
+    int total;
+
+    void acrescentar(int no, int inicio, int fim, int erros) {
+        if (total == nos.length) {
+            nos = Arrays.copyOf(nos, total * 2);
+            inicios = Arrays.copyOf(inicios, total * 2);
+            fins = Arrays.copyOf(fins, total * 2);
+            errosAte = Arrays.copyOf(errosAte, total * 2);
+        }
+        nos[total] = no;
+        inicios[total] = inicio;
+        fins[total] = fim;
+        errosAte[total] = erros;
+        total++;
+    }
+}
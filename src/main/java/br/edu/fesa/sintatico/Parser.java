@@ -1,171 +1,607 @@
 package br.edu.fesa.sintatico;
 
+import br.edu.fesa.lexico.LineMap;
+import br.edu.fesa.lexico.Operador;
+import br.edu.fesa.lexico.TipoLiteral;
 import br.edu.fesa.lexico.TipoToken;
+import br.edu.fesa.lexico.TokenBuffer;
+import br.edu.fesa.lexico.TokenSource;
 import br.edu.fesa.lexico.Token;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class Parser {
+    // Tabela de operadores, indexada pelo ordinal do Operador. Um operador novo
+    // só precisa de uma linha aqui; 0 indica que o operador não é infixo (ou
+    // prefixo) na gramática
+    private static final int[] POTENCIA_INFIXO = new int[Operador.values().length];
+    private static final boolean[] ASSOCIA_A_DIREITA = new boolean[Operador.values().length];
+    private static final int[] POTENCIA_PREFIXO = new int[Operador.values().length];
+
+    static {
+        infixo(1, false, Operador.OU_LOGICO);
+        infixo(2, false, Operador.E_LOGICO);
+        infixo(3, false, Operador.IGUAL, Operador.DIFERENTE);
+        infixo(4, false, Operador.MENOR, Operador.MAIOR, Operador.MENOR_IGUAL, Operador.MAIOR_IGUAL);
+        infixo(5, false, Operador.SOMA, Operador.SUBTRACAO);
+        infixo(6, false, Operador.MULTIPLICACAO, Operador.DIVISAO, Operador.RESTO);
+        POTENCIA_PREFIXO[Operador.NEGACAO.ordinal()] = 7;
+        POTENCIA_PREFIXO[Operador.SUBTRACAO.ordinal()] = 7;
+    }
+
+    private static void infixo(int potencia, boolean direita, Operador... operadores) {
+        for (Operador operador : operadores) {
+            POTENCIA_INFIXO[operador.ordinal()] = potencia;
+            ASSOCIA_A_DIREITA[operador.ordinal()] = direita;
+        }
+    }
+
+    // Continuação de cada quadro da análise iterativa: o que fazer com o
+    // resultado quando a expressão do quadro termina
+    private static final byte RAIZ = 0;
+    private static final byte OPERANDO_DIREITO = 1; // direita do operador infixo
+    private static final byte OPERANDO_PREFIXO = 2; // esquerda do operador unário
+    private static final byte ARGUMENTO = 3;        // esquerda da chamada, depois ')'
+    private static final byte PARENTESES = 4;       // o próprio valor, depois ')'
+
+    private static final int PROFUNDIDADE_PADRAO = 1_000_000;
+
     private final List<Token> tokens;
-    private int pos = 0;
-    private Token currentToken;
+    private final TokenSource fonte;
+    private AstArena arena; // recebe os nós da análise em andamento
+    private int profundidadeMaxima; // 0: expressões analisadas recursivamente
+    private boolean compartilhar;
+    private List<ErroSintatico> erros;
+    private MapaInstrucoes instrucoes; // só ao analisar programas
+    private int consumidos;          // tokens consumidos até aqui
+    private int consumidosNoErro;    // valor de consumidos no último erro registrado
 
     public Parser(List<Token> tokens) {
+        this(TokenBuffer.of(tokens).cursor(), tokens);
+    }
+
+    // Consome os arrays do TokenBuffer diretamente, sem objetos Token
+    public Parser(TokenBuffer buffer) {
+        this(buffer.cursor(), buffer.asList());
+    }
+
+    // Análise intercalada com o lexer: os tokens não são materializados em lista
+    public Parser(TokenSource fonte) {
+        this(fonte, null);
+    }
+
+    private Parser(TokenSource fonte, List<Token> tokens) {
+        this.fonte = fonte;
         this.tokens = tokens;
-        if (!tokens.isEmpty()) {
-            this.currentToken = tokens.get(0);
-        }
     }
 
+    // Uma única instrução (expressão ou atribuição), opcionalmente seguida de ';'
     public RetornoParser parse() {
-        try {
-            ArvoreSintatica arvore = parseE();
-            
-            // Verifica se chegou ao final ou tem ponto e vírgula
-            if (currentToken.type != TipoToken.EOF && 
-                currentToken.type != TipoToken.SEMICOLON) {
-                throw new SyntaxException("Esperado fim de expressao ou ';'", currentToken);
+        return analisar(0, false);
+    }
+
+    public RetornoParser parseIterative() {
+        return parseIterative(PROFUNDIDADE_PADRAO);
+    }
+
+    // Mesma gramática e mesmas árvores de parse(), mas com as chamadas pendentes
+    // numa pilha no heap: o aninhamento é limitado apenas por profundidadeMaxima
+    public RetornoParser parseIterative(int profundidadeMaxima) {
+        return analisar(profundidadeMaxima, false);
+    }
+
+    // Programa inteiro: instruções terminadas em ';' (a última pode omiti-lo),
+    // filhas de um único nó PROGRAM
+    public RetornoParser parseProgram() {
+        return analisar(0, true);
+    }
+
+    public RetornoParser parseProgramIterative(int profundidadeMaxima) {
+        return analisar(profundidadeMaxima, true);
+    }
+
+    // Subexpressões estruturalmente iguais passam a ser um único nó da arena
+    // (hash-consing), de modo que a memória cresce com as expressões
+    // distintas e não com o tamanho do texto
+    public Parser shareSubtrees() {
+        compartilhar = true;
+        return this;
+    }
+
+    // A árvore de objetos só é montada se alguém pedir por ela. Erros não
+    // interrompem a análise: cada um é registrado e o Parser se ressincroniza
+    // (modo pânico) em ';', ')' ou no fim do texto
+    private RetornoParser analisar(int profundidadeMaxima, boolean programa) {
+        this.profundidadeMaxima = profundidadeMaxima;
+        arena = new AstArena(fonte.lineMap(), tokens != null ? tokens.size() : 0);
+        if (compartilhar) {
+            arena.share();
+        }
+        erros = new ArrayList<>();
+        consumidos = 0;
+        consumidosNoErro = -1;
+        int raiz;
+        if (programa) {
+            raiz = arena.add(TipoNo.PROGRAM, "programa", fonte.offset(0));
+            posicionar(raiz);
+            instrucoes = new MapaInstrucoes();
+            parseInstrucoes(raiz, AstArena.NENHUM, null);
+        } else {
+            raiz = parseInstrucao();
+            terminarInstrucao();
+        }
+        arena.setRoot(raiz);
+        return new RetornoParser(tokens, arena, erros, instrucoes);
+    }
+
+    // Reanálise depois de uma edição. Este Parser lê o TokenBuffer novo;
+    // anterior é o resultado de parseProgram() (ou de reparse) sobre antigos,
+    // e os tokens antigos [inicio, fimAntigo) foram trocados pelos novos
+    // [inicio, fimNovo) - o intervalo informado pelo IncrementalLexer.
+    // Instruções que terminam antes da edição e as que começam depois dela
+    // são reaproveitadas como estão; só as do meio são analisadas de novo. A
+    // arena de anterior passa a ser a do novo resultado: os nós novos são
+    // acrescentados a ela e as posições dos nós antigos são deslocadas só ao
+    // serem lidas. Por isso anterior fica invalidado e não deve mais ser
+    // consultado. Quando os nós das instruções trocadas passam de metade da
+    // arena, o resultado recebe uma arena nova só com os nós alcançáveis
+    public RetornoParser reparse(RetornoParser anterior, TokenBuffer antigos,
+                                 int inicio, int fimAntigo, int fimNovo) {
+        MapaInstrucoes velhas = anterior.getInstrucoes();
+        AstArena reaproveitada = anterior.getArena();
+        if (velhas == null || reaproveitada == null || fonte.lineMap() == null
+                || antigos.getLineMap() == null) {
+            throw new IllegalArgumentException(
+                "Reanalise exige um programa analisado de um TokenBuffer com LineMap");
+        }
+        if (reaproveitada.isShared()) {
+            throw new IllegalArgumentException("Reanalise incremental nao suporta subarvores compartilhadas");
+        }
+
+        // Tokens a partir de fimAntigo não mudaram: andam dt posições no buffer
+        // e delta caracteres no texto
+        int dt = fimNovo - fimAntigo;
+        int limiar = fimAntigo < antigos.size() ? antigos.start(fimAntigo) : Integer.MAX_VALUE;
+        int delta = fimAntigo < antigos.size() ? fonte.offset(fimNovo) - limiar : 0;
+        reaproveitada.deslocar(limiar, delta, fonte.lineMap());
+
+        arena = reaproveitada;
+        profundidadeMaxima = 0;
+        erros = new ArrayList<>();
+        instrucoes = new MapaInstrucoes();
+        consumidosNoErro = -1;
+
+        // Prefixo: instruções cuja leitura (inclusive o token que a encerrou)
+        // não chegou à edição
+        int programa = arena.add(TipoNo.PROGRAM, "programa", fonte.offset(0));
+        int ultima = AstArena.NENHUM;
+        int k = 0;
+        while (k < velhas.total && velhas.fins[k] < inicio) {
+            instrucoes.acrescentar(velhas.nos[k], velhas.inicios[k], velhas.fins[k], velhas.errosAte[k]);
+            arena.acrescentarFilho(programa, velhas.nos[k], ultima);
+            ultima = velhas.nos[k];
+            k++;
+        }
+        if (k > 0) {
+            erros.addAll(anterior.getErros().subList(0, velhas.errosAte[k - 1]));
+        }
+
+        // O cursor só avança o índice até o fim do prefixo; nada é analisado
+        int reinicio = k > 0 ? velhas.fins[k - 1] : 0;
+        consumidos = 0;
+        while (consumidos < reinicio) {
+            advance();
+        }
+        Edicao edicao = new Edicao(anterior, k, fimAntigo, dt, limiar, delta);
+        parseInstrucoes(programa, ultima, edicao);
+        arena.setRoot(programa);
+
+        // Instruções antigas trocadas e o nó do programa anterior
+        int descartados = 1;
+        for (int i = k, fim = edicao.sincronizada ? edicao.proxima : velhas.total; i < fim; i++) {
+            descartados += arena.subtreeSize(velhas.nos[i]);
+        }
+        arena.abandonar(descartados);
+        if (arena.unreachableCount() * 2 > arena.size()) {
+            compactarArena();
+        }
+        return new RetornoParser(tokens, arena, erros, instrucoes);
+    }
+
+    private void compactarArena() {
+        int[] mapa = new int[arena.size()];
+        arena = arena.compactar(mapa);
+        for (int i = 0; i < instrucoes.total; i++) {
+            instrucoes.nos[i] = mapa[instrucoes.nos[i]];
+        }
+    }
+
+    // Lê instruções até o fim do texto. Na reanálise, para assim que o token
+    // atual for o início (deslocado) de uma instrução antiga posterior à
+    // edição: dali em diante as instruções antigas são reaproveitadas
+    private void parseInstrucoes(int programa, int ultima, Edicao edicao) {
+        while (tipoAtual() != TipoToken.EOF) {
+            if (tipoAtual() == TipoToken.SEMICOLON) {
+                advance(); // instrução vazia
+                continue;
             }
-            
-            // Consome o ponto e vírgula se existir
-            if (currentToken.type == TipoToken.SEMICOLON) {
-                advance();
+            if (edicao != null && edicao.sincronizou(consumidos)) {
+                reaproveitarSufixo(programa, ultima, edicao);
+                return;
             }
-            
-            return new RetornoParser(true, null, tokens, arvore);
-        } catch (SyntaxException e) {
-            return new RetornoParser(false, e.getMessage(), tokens, null);
+            int inicioInstrucao = consumidos;
+            int instrucao = parseInstrucao();
+            terminarInstrucao();
+            arena.acrescentarFilho(programa, instrucao, ultima);
+            ultima = instrucao;
+            instrucoes.acrescentar(instrucao, inicioInstrucao, consumidos, erros.size());
         }
+        arena.encerrarFilhos(programa, ultima);
     }
 
-    private ArvoreSintatica parseE() throws SyntaxException {
-        ArvoreSintatica left = parseT();
+    // Instruções antigas a partir da sincronização, com os seus erros deslocados
+    private void reaproveitarSufixo(int programa, int ultima, Edicao edicao) {
+        edicao.sincronizada = true;
+        MapaInstrucoes velhas = edicao.velhas;
+        List<ErroSintatico> errosAntigos = edicao.anterior.getErros();
+        for (int i = edicao.proxima; i < velhas.total; i++) {
+            for (int e = i > 0 ? velhas.errosAte[i - 1] : 0; e < velhas.errosAte[i]; e++) {
+                erros.add(errosAntigos.get(e).deslocado(edicao.limiar, edicao.delta, fonte.lineMap()));
+            }
+            arena.acrescentarFilho(programa, velhas.nos[i], ultima);
+            ultima = velhas.nos[i];
+            instrucoes.acrescentar(ultima, velhas.inicios[i] + edicao.dt, velhas.fins[i] + edicao.dt, erros.size());
+        }
+        arena.encerrarFilhos(programa, ultima);
+    }
 
-        while (currentToken.type == TipoToken.OP_ARITHMETIC && 
-               (currentToken.lexeme.equals("+") || currentToken.lexeme.equals("-"))) {
-            Token op = currentToken;
+    // id '=' expressão | expressão
+    private int parseInstrucao() {
+        if (tipoAtual() == TipoToken.IDENTIFIER && fonte.operator(1) == Operador.ATRIBUICAO) {
+            int alvo = noIdentificadorAtual();
+            int atribuicao = noOperadorAtual();
+            arena.setType(atribuicao, TipoNo.ATRIBUICAO);
             advance();
-            ArvoreSintatica right = parseT();
-            left = new ArvoreSintatica(
-                op.lexeme, 
-                TipoNo.OPERADOR, 
-                left, 
-                right, 
-                op.line, 
-                op.column
-            );
+            arena.setLeft(atribuicao, alvo);
+            arena.setRight(atribuicao, parseExpressaoRaiz());
+            return atribuicao;
         }
+        int expressao = parseExpressaoRaiz();
+        // Com compartilhamento a instrução ganha um nó próprio, com a posição
+        // desta ocorrência e um lugar só seu na lista do programa
+        return compartilhar ? arena.duplicar(expressao) : expressao;
+    }
 
-        return left;
+    private int parseExpressaoRaiz() {
+        return profundidadeMaxima > 0 ? parseExpressaoIterativa(profundidadeMaxima) : parseExpressao(1);
     }
 
-    private ArvoreSintatica parseT() throws SyntaxException {
-        ArvoreSintatica left = parseF();
+    // A instrução termina no fim do texto ou em ';', que é consumido
+    private void terminarInstrucao() {
+        // Verifica se chegou ao final ou tem ponto e vírgula
+        if (tipoAtual() != TipoToken.EOF && 
+            tipoAtual() != TipoToken.SEMICOLON) {
+            registrarErro(CodigoErro.FIM_ESPERADO, null, "Esperado fim de expressao ou ';'");
+            // Descarta o resto da instrução, inclusive ')' sem par
+            while (true) {
+                sincronizar();
+                if (tipoAtual() != TipoToken.RPAREN) {
+                    break;
+                }
+                advance();
+            }
+        }
+        
+        // Consome o ponto e vírgula se existir
+        if (tipoAtual() == TipoToken.SEMICOLON) {
+            advance();
+        }
+    }
+
+    // Precedence climbing: consome operadores enquanto a potência do operador
+    // atual for pelo menos potenciaMinima; o operando direito é lido com a
+    // potência seguinte (ou a mesma, se o operador associa à direita)
+    private int parseExpressao(int potenciaMinima) {
+        int left = parsePrimario();
 
-        while (currentToken.type == TipoToken.OP_ARITHMETIC && 
-               (currentToken.lexeme.equals("*") || currentToken.lexeme.equals("/"))) {
-            Token op = currentToken;
+        while (true) {
+            Operador op = fonte.operator(0);
+            int potencia = op != null ? POTENCIA_INFIXO[op.ordinal()] : 0;
+            if (potencia == 0 || potencia < potenciaMinima) {
+                break;
+            }
+            int operador = noOperadorAtual();
             advance();
-            ArvoreSintatica right = parseF();
-            left = new ArvoreSintatica(
-                op.lexeme, 
-                TipoNo.OPERADOR, 
-                left, 
-                right, 
-                op.line, 
-                op.column
-            );
+            arena.setLeft(operador, left);
+            arena.setRight(operador, parseExpressao(ASSOCIA_A_DIREITA[op.ordinal()] ? potencia : potencia + 1));
+            left = arena.intern(operador);
         }
 
         return left;
     }
 
-    private ArvoreSintatica parseF() throws SyntaxException {
-        if (currentToken.type == TipoToken.IDENTIFIER) {
-            Token id = currentToken;
+    private int parsePrimario() {
+        Operador prefixo = fonte.operator(0);
+        if (prefixo != null && POTENCIA_PREFIXO[prefixo.ordinal()] > 0) {
+            // Operador unário: o operando fica à esquerda
+            int operador = noOperadorAtual();
             advance();
+            arena.setLeft(operador, parseExpressao(POTENCIA_PREFIXO[prefixo.ordinal()]));
+            return arena.intern(operador);
+        } else if (tipoAtual() == TipoToken.IDENTIFIER) {
+            int no = noIdentificadorAtual();
 
-            if (currentToken.type == TipoToken.LPAREN) {
-                // Chamada de função: id ( E )
+            if (tipoAtual() == TipoToken.LPAREN) {
+                // Chamada de função: id ( expressão )
                 advance();
-                ArvoreSintatica args = parseE();
-                consume(TipoToken.RPAREN);
-                return new ArvoreSintatica(
-                    id.lexeme,
-                    TipoNo.CHAMADA_FUNCAO,
-                    args,
-                    null,
-                    id.line,
-                    id.column
-                );
-            } else {
-                // Identificador simples
-                return new ArvoreSintatica(
-                    id.lexeme, 
-                    TipoNo.IDENTIFICADOR, 
-                    id.line, 
-                    id.column
-                );
+                arena.setType(no, TipoNo.CHAMADA_FUNCAO);
+                arena.setLeft(no, parseExpressao(1));
+                esperar(TipoToken.RPAREN);
             }
-        } else if (currentToken.type == TipoToken.LPAREN) {
-            // ( E )
+            return arena.intern(no);
+        } else if (tipoAtual() == TipoToken.LPAREN) {
+            // ( expressão )
             advance();
-            ArvoreSintatica expr = parseE();
-            consume(TipoToken.RPAREN);
+            int expr = parseExpressao(1);
+            esperar(TipoToken.RPAREN);
             return expr;
-        } else if (currentToken.type == TipoToken.NUMBER) {
-            Token num = currentToken;
-            advance();
-            return new ArvoreSintatica(
-                num.lexeme, 
-                TipoNo.NUMERO, 
-                num.line, 
-                num.column
-            );
+        } else if (tipoAtual() == TipoToken.NUMBER) {
+            return noNumeroAtual();
         } else {
-            throw new SyntaxException(
-                "Esperado identificador, numero ou '(', encontrado: " + currentToken.lexeme, 
-                currentToken
-            );
+            return erroPrimario();
+        }
+    }
+
+    // Versão iterativa de parseExpressao/parsePrimario. Cada quadro da pilha
+    // corresponde a uma chamada pendente de parseExpressao: guarda a potência
+    // mínima e o nó que recebe o resultado quando a expressão do quadro termina
+    private int parseExpressaoIterativa(int profundidadeMaxima) {
+        Quadros quadros = new Quadros();
+        quadros.empilhar(1, RAIZ, AstArena.NENHUM);
+
+        int valor = AstArena.NENHUM; // operando pronto para o quadro do topo
+        while (true) {
+            if (valor == AstArena.NENHUM) {
+                // Primário: ou produz um operando, ou abre um quadro novo
+                Operador prefixo = fonte.operator(0);
+                if (prefixo != null && POTENCIA_PREFIXO[prefixo.ordinal()] > 0) {
+                    int operador = noOperadorAtual();
+                    advance();
+                    valor = abrir(quadros, profundidadeMaxima, POTENCIA_PREFIXO[prefixo.ordinal()],
+                                  OPERANDO_PREFIXO, operador);
+                } else if (tipoAtual() == TipoToken.IDENTIFIER) {
+                    valor = noIdentificadorAtual();
+                    if (tipoAtual() == TipoToken.LPAREN) {
+                        advance();
+                        arena.setType(valor, TipoNo.CHAMADA_FUNCAO);
+                        valor = abrir(quadros, profundidadeMaxima, 1, ARGUMENTO, valor);
+                    } else {
+                        valor = arena.intern(valor);
+                    }
+                } else if (tipoAtual() == TipoToken.LPAREN) {
+                    advance();
+                    valor = abrir(quadros, profundidadeMaxima, 1, PARENTESES, AstArena.NENHUM);
+                } else if (tipoAtual() == TipoToken.NUMBER) {
+                    valor = noNumeroAtual();
+                } else {
+                    valor = erroPrimario();
+                }
+                continue;
+            }
+
+            // Operador infixo que ainda pertence ao quadro do topo
+            Operador op = fonte.operator(0);
+            int potencia = op != null ? POTENCIA_INFIXO[op.ordinal()] : 0;
+            if (potencia != 0 && potencia >= quadros.minimos[quadros.topo]) {
+                int operador = noOperadorAtual();
+                advance();
+                arena.setLeft(operador, valor);
+                valor = abrir(quadros, profundidadeMaxima,
+                              ASSOCIA_A_DIREITA[op.ordinal()] ? potencia : potencia + 1,
+                              OPERANDO_DIREITO, operador);
+                continue;
+            }
+
+            // A expressão do quadro terminou: entrega o resultado ao quadro de baixo
+            int no = quadros.nos[quadros.topo];
+            byte continuacao = quadros.continuacoes[quadros.topo];
+            quadros.desempilhar();
+            switch (continuacao) {
+                case OPERANDO_DIREITO:
+                    arena.setRight(no, valor);
+                    valor = arena.intern(no);
+                    break;
+                case OPERANDO_PREFIXO:
+                    arena.setLeft(no, valor);
+                    valor = arena.intern(no);
+                    break;
+                case ARGUMENTO:
+                    arena.setLeft(no, valor);
+                    esperar(TipoToken.RPAREN);
+                    valor = arena.intern(no);
+                    break;
+                case PARENTESES:
+                    esperar(TipoToken.RPAREN);
+                    break;
+                default:
+                    return valor;
+            }
+        }
+    }
+
+    // Abre o quadro e devolve NENHUM (o primário ainda será lido). Além do
+    // limite de profundidade, o quadro recebe direto um nó ERRO
+    private int abrir(Quadros quadros, int profundidadeMaxima, int minimo, byte continuacao, int no) {
+        quadros.empilhar(minimo, continuacao, no);
+        if (quadros.topo >= profundidadeMaxima) {
+            int erro = noErroAtual();
+            registrarErro(CodigoErro.PROFUNDIDADE_EXCEDIDA, null,
+                "Profundidade maxima de aninhamento excedida (" + profundidadeMaxima + ")");
+            sincronizar();
+            return arena.intern(erro);
+        }
+        return AstArena.NENHUM;
+    }
+
+    private int noIdentificadorAtual() {
+        int no = arena.addName(TipoNo.IDENTIFICADOR, fonte.lexeme(0), fonte.nameId(0), fonte.offset(0));
+        posicionar(no);
+        advance();
+        return no;
+    }
+
+    private int noNumeroAtual() {
+        TipoLiteral literal = fonte.literal(0);
+        long bits = literal == TipoLiteral.DECIMAL
+            ? Double.doubleToRawLongBits(fonte.doubleValue(0)) : fonte.longValue(0);
+        int num = arena.addNumber(fonte.lexeme(0), literal, bits, fonte.offset(0));
+        posicionar(num);
+        advance();
+        return arena.intern(num);
+    }
+
+    // Nenhum primário começa no token atual: o trecho até o ponto de
+    // sincronização vira um nó ERRO
+    private int erroPrimario() {
+        int erro = noErroAtual();
+        registrarErro(CodigoErro.EXPRESSAO_ESPERADA, null,
+            "Esperado identificador, numero ou '(', encontrado: " + fonte.lexeme(0));
+        sincronizar();
+        return arena.intern(erro);
+    }
+
+    private int noErroAtual() {
+        int no = arena.add(TipoNo.ERRO, fonte.lexeme(0), fonte.offset(0));
+        posicionar(no);
+        return no;
+    }
+
+    private int noOperadorAtual() {
+        int no = arena.addOperator(fonte.operator(0), fonte.offset(0));
+        posicionar(no);
+        return no;
+    }
+
+    // Com LineMap o nó guarda apenas o deslocamento; sem ele, linha e coluna
+    private void posicionar(int no) {
+        if (arena.getLineMap() == null) {
+            arena.setPosition(no, fonte.line(0), fonte.column(0));
         }
     }
 
     private void advance() {
-        pos++;
-        if (pos < tokens.size()) {
-            currentToken = tokens.get(pos);
-        } else {
-            currentToken = new Token(TipoToken.EOF, "$", -1, -1);
+        fonte.advance();
+        consumidos++;
+    }
+
+    private TipoToken tipoAtual() {
+        return fonte.type(0);
+    }
+
+    // Token ausente: registra o erro e descarta até o ponto de sincronização,
+    // consumindo o token esperado se for ele que aparecer
+    private void esperar(TipoToken expected) {
+        if (tipoAtual() != expected) {
+            registrarErro(CodigoErro.TOKEN_ESPERADO, expected,
+                "Esperado " + expected + ", encontrado " + tipoAtual() + " '" + fonte.lexeme(0) + "'");
+            sincronizar();
+        }
+        if (tipoAtual() == expected) {
+            advance();
         }
     }
 
-    private void consume(TipoToken expected) throws SyntaxException {
-        if (currentToken.type == expected) {
+    // Avança até ';', ')' ou EOF. Um ')' cujo '(' está no próprio trecho
+    // descartado é descartado junto
+    private void sincronizar() {
+        int abertos = 0;
+        while (true) {
+            TipoToken tipo = tipoAtual();
+            if (tipo == TipoToken.EOF || tipo == TipoToken.SEMICOLON
+                    || (tipo == TipoToken.RPAREN && abertos == 0)) {
+                return;
+            }
+            if (tipo == TipoToken.LPAREN) {
+                abertos++;
+            } else if (tipo == TipoToken.RPAREN) {
+                abertos--;
+            }
             advance();
-        } else {
-            throw new SyntaxException(expected, currentToken);
         }
     }
 
-    private static class SyntaxException extends Exception {
-        public SyntaxException(TipoToken expected, Token found) {
-            super(String.format(
-                "Erro sintatico na linha %d, coluna %d: Esperado %s, encontrado %s '%s'",
-                found.line, found.column, expected, found.type, found.lexeme
-            ));
+    // Um erro só é registrado se algum token foi consumido desde o anterior;
+    // assim a recuperação de um erro não gera outros em cascata
+    private void registrarErro(CodigoErro codigo, TipoToken esperado, String mensagem) {
+        if (consumidos == consumidosNoErro) {
+            return;
+        }
+        consumidosNoErro = consumidos;
+        LineMap linhas = fonte.lineMap();
+        erros.add(new ErroSintatico(codigo, esperado, tipoAtual(), fonte.lexeme(0), limparMensagem(mensagem),
+            fonte.offset(0), linhas, linhas == null ? fonte.line(0) : 0, linhas == null ? fonte.column(0) : 0));
+    }
+
+    private static String limparMensagem(String message) {
+        return message.replace("�", "")
+                     .replace("´", "")
+                     .replace("`", "")
+                     .replace("^", "");
+    }
+
+    // Estado da reanálise: as instruções do resultado anterior e o
+    // deslocamento dos tokens posteriores à edição
+    private static final class Edicao {
+        private final RetornoParser anterior;
+        private final MapaInstrucoes velhas;
+        private final int fimAntigo;
+        private final int dt;      // em tokens
+        private final int limiar;  // primeiro caractere antigo não editado
+        private final int delta;   // em caracteres
+        private int proxima;       // primeira instrução antiga ainda não ultrapassada
+        private boolean sincronizada; // as instruções a partir de proxima foram reaproveitadas
+
+        private Edicao(RetornoParser anterior, int proxima, int fimAntigo, int dt, int limiar, int delta) {
+            this.anterior = anterior;
+            this.velhas = anterior.getInstrucoes();
+            this.proxima = proxima;
+            this.fimAntigo = fimAntigo;
+            this.dt = dt;
+            this.limiar = limiar;
+            this.delta = delta;
         }
 
-        public SyntaxException(String message, Token token) {
-            super(String.format(
-                "Erro sintatico na linha %d, coluna %d: %s",
-                token.line, token.column, cleanMessage(message)
-            ));
+        // Uma instrução antiga posterior à edição começa no token atual
+        private boolean sincronizou(int atual) {
+            while (proxima < velhas.total && velhas.inicios[proxima] + dt < atual) {
+                proxima++;
+            }
+            return proxima < velhas.total && velhas.inicios[proxima] >= fimAntigo
+                && velhas.inicios[proxima] + dt == atual;
+        }
+    }
+
+    // Pilha de chamadas pendentes da análise iterativa
+    private static final class Quadros {
+        private int[] minimos = new int[16];
+        private byte[] continuacoes = new byte[16];
+        private int[] nos = new int[16];
+        private int topo = -1;
+
+        private void empilhar(int minimo, byte continuacao, int no) {
+            if (++topo == minimos.length) {
+                minimos = Arrays.copyOf(minimos, topo * 2);
+                continuacoes = Arrays.copyOf(continuacoes, topo * 2);
+                nos = Arrays.copyOf(nos, topo * 2);
+            }
+            minimos[topo] = minimo;
+            continuacoes[topo] = continuacao;
+            nos[topo] = no;
         }
 
-        private static String cleanMessage(String message) {
-            return message.replace("�", "")
-                         .replace("´", "")
-                         .replace("`", "")
-                         .replace("^", "");
+        private void desempilhar() {
+            topo--;
         }
     }
-}
\ No newline at end of file
+}
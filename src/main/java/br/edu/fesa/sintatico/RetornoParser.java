@@ -5,30 +5,73 @@ import java.util.List;
 
 public class RetornoParser {
     private final boolean success;
-    private final String errorMessage;
+    private String errorMessage;
     private final List<Token> tokens;
-    private final ArvoreSintatica arvoreSintatica;
+    private final AstArena arena;
+    private final List<ErroSintatico> erros;
+    private final MapaInstrucoes instrucoes; // só em programas; ver Parser.reparse
+    private ArvoreSintatica arvoreSintatica;
 
     public RetornoParser(boolean success, String errorMessage, List<Token> tokens, ArvoreSintatica arvoreSintatica) {
         this.success = success;
         this.errorMessage = errorMessage;
         this.tokens = tokens;
+        this.arena = null;
+        this.erros = List.of();
+        this.instrucoes = null;
         this.arvoreSintatica = arvoreSintatica;
     }
 
+    // Árvore emitida na arena; com erros, os trechos descartados viram nós ERRO
+    RetornoParser(List<Token> tokens, AstArena arena, List<ErroSintatico> erros) {
+        this(tokens, arena, erros, null);
+    }
+
+    RetornoParser(List<Token> tokens, AstArena arena, List<ErroSintatico> erros, MapaInstrucoes instrucoes) {
+        this.success = erros.isEmpty();
+        this.tokens = tokens;
+        this.arena = arena;
+        this.erros = erros;
+        this.instrucoes = instrucoes;
+    }
+
     public boolean isSuccess() {
         return success;
     }
 
+    // Mensagem do primeiro erro; os demais estão em getErros()
     public String getErrorMessage() {
+        if (errorMessage == null && !erros.isEmpty()) {
+            ErroSintatico erro = erros.get(0);
+            errorMessage = "Erro sintatico na linha " + erro.getLinha() + ", coluna " + erro.getColuna()
+                + ": " + erro.getMensagem();
+        }
         return errorMessage;
     }
 
+    // Todos os erros sintáticos, na ordem do texto
+    public List<ErroSintatico> getErros() {
+        return erros;
+    }
+
     public List<Token> getTokens() {
         return tokens;
     }
 
+    // Montada a partir da arena na primeira chamada
     public ArvoreSintatica getArvoreSintatica() {
+        if (arvoreSintatica == null && arena != null) {
+            arvoreSintatica = arena.toArvore(arena.root());
+        }
         return arvoreSintatica;
     }
-}
\ No newline at end of file
+
+    // Árvore em arrays, ou null se o resultado foi criado sem arena
+    public AstArena getArena() {
+        return arena;
+    }
+
+    MapaInstrucoes getInstrucoes() {
+        return instrucoes;
+    }
+}
@@ -9,5 +9,6 @@ public enum TipoNo {
     NUMERO,
     OPERADOR,
     CHAMADA_FUNCAO,
-    ATRIBUICAO
+    ATRIBUICAO,
+    ERRO        // trecho descartado pela recuperação de erros do Parser
 }
@@ -1,8 +1,18 @@
 package br.edu.fesa.lexico;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 public class LexerTests {
     
@@ -170,4 +180,536 @@ public class LexerTests {
         assertEquals("a", tokens.get(0).getLexeme());
         assertEquals("b", tokens.get(1).getLexeme());
     }
-}
\ No newline at end of file
+
+    @Test
+    void deveGerarMesmosTokensLendoDeReaderComJanelaPequena() {
+        String entrada = "valor_total = soma(a1, 3.14) // fim\n"
+                       + "/* bloco \n longo */ texto = \"ab\\ncd\" >= 10";
+        
+        List<Token> esperados = new Lexer(entrada).generateTokens();
+        List<Token> obtidos = new Lexer(new StringReader(entrada), 3).generateTokens();
+        
+        assertEquals(esperados.size(), obtidos.size());
+        for (int i = 0; i < esperados.size(); i++) {
+            assertEquals(esperados.get(i).toString(), obtidos.get(i).toString());
+        }
+    }
+
+    @Test
+    void deveGerarMesmosTokensLendoArquivoMapeado(@TempDir Path dir) throws IOException {
+        String entrada = "preco = 10 * taxa\n"
+                       + "nome = \"ação 😀\" // comentário\n"
+                       + "/* ç */ total >= preco";
+        Path arquivo = dir.resolve("fonte.cs");
+        Files.writeString(arquivo, entrada, StandardCharsets.UTF_8);
+        
+        List<Token> esperados = new Lexer(entrada).generateTokens();
+        List<Token> obtidos;
+        try (Lexer lexer = new Lexer(arquivo)) {
+            obtidos = lexer.generateTokens();
+        }
+        
+        assertEquals(esperados.size(), obtidos.size());
+        for (int i = 0; i < esperados.size(); i++) {
+            assertEquals(esperados.get(i).toString(), obtidos.get(i).toString());
+        }
+    }
+
+    @Test
+    void naoDeveIncluirSinalNoNumeroForaDoExpoente() {
+        Lexer lexer = new Lexer("50+60 1e+5 2.5E-3");
+        List<Token> tokens = lexer.generateTokens();
+        
+        assertEquals(6, tokens.size()); // 50, +, 60, 1e+5, 2.5E-3 + EOF
+        assertEquals(TipoToken.NUMBER, tokens.get(0).getType());
+        assertEquals("50", tokens.get(0).getLexeme());
+        assertEquals(TipoToken.OP_ARITHMETIC, tokens.get(1).getType());
+        assertEquals(TipoToken.NUMBER, tokens.get(2).getType());
+        assertEquals("60", tokens.get(2).getLexeme());
+        assertEquals(TipoToken.NUMBER, tokens.get(3).getType());
+        assertEquals("1e+5", tokens.get(3).getLexeme());
+        assertEquals(TipoToken.NUMBER, tokens.get(4).getType());
+        assertEquals("2.5E-3", tokens.get(4).getLexeme());
+    }
+
+    @Test
+    void deveReconhecerIdentificadoresUnicode() {
+        String entrada = "ação + \uD835\uDC65\u2081x + 変数 \uD83D\uDE00 b";
+        List<Token> tokens = new Lexer(entrada).generateTokens();
+        
+        assertEquals(10, tokens.size());
+        assertEquals(TipoToken.IDENTIFIER, tokens.get(0).getType());
+        assertEquals("ação", tokens.get(0).getLexeme());
+        assertEquals(TipoToken.IDENTIFIER, tokens.get(2).getType());
+        assertEquals("\uD835\uDC65", tokens.get(2).getLexeme());
+        assertEquals(TipoToken.ERROR, tokens.get(3).getType());
+        assertEquals(TipoToken.IDENTIFIER, tokens.get(4).getType());
+        assertEquals("x", tokens.get(4).getLexeme());
+        assertEquals("変数", tokens.get(6).getLexeme());
+        assertEquals(TipoToken.ERROR, tokens.get(7).getType());
+        assertEquals("\uD83D\uDE00", tokens.get(7).getLexeme());
+        assertEquals(entrada.length() - 1, tokens.get(8).getStart());
+    }
+
+    @Test
+    void deveAceitarMarcasCombinantesEmIdentificadores() {
+        // "ação" decomposto: c + cedilha e o + til como marcas separadas
+        String acao = "a" + "c\u0327" + "a" + "o\u0303";
+        List<Token> tokens = new Lexer(acao + " = 1").generateTokens();
+        
+        assertEquals(4, tokens.size());
+        assertEquals(TipoToken.IDENTIFIER, tokens.get(0).getType());
+        assertEquals(acao, tokens.get(0).getLexeme());
+        assertEquals(TipoToken.OP_ASSIGNMENT, tokens.get(1).getType());
+        
+        // Uma marca solta não começa identificador
+        assertEquals(TipoToken.ERROR, new Lexer("\u0327a").generateTokens().get(0).getType());
+    }
+
+    @Test
+    void deveAtribuirCodigoAosOperadores() {
+        String entrada = "a += b <= c && (d % 2)";
+        List<Token> tokens = new Lexer(entrada).generateTokens();
+        TokenBuffer buffer = new Lexer(entrada).generateTokenBuffer();
+        
+        assertEquals(Operador.SOMA_ATRIBUICAO, tokens.get(1).getOperator());
+        assertEquals(Operador.MENOR_IGUAL, tokens.get(3).getOperator());
+        assertEquals(Operador.E_LOGICO, buffer.operator(5));
+        assertEquals(Operador.RESTO, buffer.operator(8));
+        assertNull(buffer.operator(6));
+        assertNull(tokens.get(0).getOperator());
+        assertEquals(Operador.DIVISAO, new Token(TipoToken.OP_ARITHMETIC, "/", 1, 1).getOperator());
+    }
+
+    @Test
+    void deveMarcarErroParaNumerosMalFormados() {
+        Lexer lexer = new Lexer("1.2.3 4. 5e");
+        List<Token> tokens = lexer.generateTokens();
+        
+        assertEquals(4, tokens.size());
+        assertEquals(TipoToken.ERROR, tokens.get(0).getType());
+        assertEquals("1.2.3", tokens.get(0).getLexeme());
+        assertEquals(TipoToken.ERROR, tokens.get(1).getType());
+        assertEquals("4.", tokens.get(1).getLexeme());
+        assertEquals(TipoToken.ERROR, tokens.get(2).getType());
+        assertEquals("5e", tokens.get(2).getLexeme());
+    }
+
+    @Test
+    void deveSaltarEspacosAsciiEUnicode() {
+        List<Token> tokens = new Lexer("a\u000B\f\u001F b\u3000c").generateTokens();
+        
+        assertEquals(4, tokens.size());
+        assertEquals("b", tokens.get(1).getLexeme());
+        assertEquals(6, tokens.get(1).getColumn());
+        assertEquals("c", tokens.get(2).getLexeme());
+        assertEquals(8, tokens.get(2).getColumn());
+    }
+
+    @Test
+    void deveConsumirAspaInicialDaString() {
+        List<Token> tokens = new Lexer("x \"abc\" y").generateTokens();
+        
+        assertEquals(4, tokens.size());
+        assertEquals(TipoToken.STRING, tokens.get(1).getType());
+        assertEquals("abc", tokens.get(1).getLexeme());
+        assertEquals(3, tokens.get(1).getColumn());
+        assertEquals("y", tokens.get(2).getLexeme());
+        
+        List<Token> aberta = new Lexer("\"abc").generateTokens();
+        assertEquals(TipoToken.ERROR, aberta.get(0).getType());
+        assertEquals(1, aberta.get(0).getColumn());
+    }
+
+    @Test
+    void deveSaltarComentariosEStringsMantendoPosicoes() {
+        String entrada = "a /* um\n dois\n */ b // fim\n  \"x\\ty\nz\" c";
+        List<Token> tokens = new Lexer(entrada).generateTokens();
+        
+        assertEquals(5, tokens.size());
+        assertEquals("b", tokens.get(1).getLexeme());
+        assertEquals(3, tokens.get(1).getLine());
+        assertEquals(5, tokens.get(1).getColumn());
+        assertEquals(TipoToken.STRING, tokens.get(2).getType());
+        assertEquals("x\ty\nz", tokens.get(2).getLexeme());
+        assertEquals(4, tokens.get(2).getLine());
+        assertEquals(3, tokens.get(2).getColumn());
+        assertEquals("c", tokens.get(3).getLexeme());
+        assertEquals(5, tokens.get(3).getLine());
+        assertEquals(4, tokens.get(3).getColumn());
+    }
+
+    @Test
+    void deveSaltarSequenciasLongasDeComentariosSemRecursao() {
+        StringBuilder entrada = new StringBuilder("a");
+        for (int i = 0; i < 200_000; i++) {
+            entrada.append("/**/");
+        }
+        entrada.append("b");
+        List<Token> tokens = new Lexer(entrada.toString()).generateTokens();
+        
+        assertEquals(3, tokens.size());
+        assertEquals("b", tokens.get(1).getLexeme());
+    }
+
+    @Test
+    void deveRegistrarTriviaApenasQuandoPedido() {
+        String entrada = "a  // fim\n/* x */b";
+        Lexer lexer = new Lexer(entrada);
+        TriviaBuffer trivia = lexer.recordTrivia();
+        List<Token> tokens = lexer.generateTokens();
+        
+        assertEquals(3, tokens.size());
+        assertEquals(4, trivia.size());
+        assertEquals(TipoToken.WHITESPACE, trivia.type(0));
+        assertEquals("  ", trivia.text(0).toString());
+        assertEquals(TipoToken.LINE_COMMENT, trivia.type(1));
+        assertEquals("// fim", trivia.text(1).toString());
+        assertEquals(TipoToken.WHITESPACE, trivia.type(2));
+        assertEquals("\n", trivia.text(2).toString());
+        assertEquals(TipoToken.BLOCK_COMMENT, trivia.type(3));
+        assertEquals(entrada.indexOf("/*"), trivia.start(3));
+        assertEquals(entrada.indexOf('b'), trivia.end(3));
+        
+        assertEquals(tokens.toString(), new Lexer(entrada).generateTokens().toString());
+    }
+
+    @Test
+    void deveExporLexemaComoTrechoDoFonte() {
+        String entrada = "(x1 + 42) \"sem escape\" \"com\\tescape\"";
+        List<Token> tokens = new Lexer(entrada).generateTokens();
+        
+        Token numero = tokens.get(3);
+        assertEquals(6, numero.getStart());
+        assertEquals(8, numero.getEnd());
+        assertEquals("42", numero.getText().toString());
+        
+        Token simples = tokens.get(5);
+        assertEquals(TipoToken.STRING, simples.getType());
+        assertEquals(entrada.indexOf('"'), simples.getStart());
+        assertEquals("sem escape", simples.getText().toString());
+        assertEquals("sem escape", simples.getLexeme());
+        assertEquals("com\tescape", tokens.get(6).getLexeme());
+        
+        TokenBuffer buffer = new Lexer(entrada).generateTokenBuffer();
+        assertEquals("sem escape", buffer.lexeme(5));
+        assertTrue(buffer.lexemeEquals(5, "sem escape"));
+        assertEquals("com\tescape", buffer.lexeme(6));
+    }
+
+    @Test
+    void deveGerarTokenBufferEquivalenteALista() {
+        String entrada = "total = preco * 2.5 // desconto\nif (x >= 10) \"ok\" @";
+        
+        List<Token> esperados = new Lexer(entrada).generateTokens();
+        TokenBuffer buffer = new Lexer(entrada).generateTokenBuffer();
+        
+        assertEquals(esperados.size(), buffer.size());
+        for (int i = 0; i < esperados.size(); i++) {
+            assertEquals(esperados.get(i).getType(), buffer.type(i));
+            assertEquals(esperados.get(i).getLexeme(), buffer.lexeme(i));
+            assertEquals(esperados.get(i).getLine(), buffer.line(i));
+            assertEquals(esperados.get(i).getColumn(), buffer.column(i));
+            assertEquals(esperados.get(i).toString(), buffer.asList().get(i).toString());
+        }
+    }
+
+    @Test
+    void deveInternarIdentificadoresRepetidos() {
+        Lexer lexer = new Lexer("soma + valor * soma");
+        List<Token> tokens = lexer.generateTokens();
+        
+        assertTrue(tokens.get(0).getNameId() >= 0);
+        assertEquals(tokens.get(0).getNameId(), tokens.get(4).getNameId());
+        assertNotEquals(tokens.get(0).getNameId(), tokens.get(2).getNameId());
+        assertSame(tokens.get(0).getLexeme(), tokens.get(4).getLexeme());
+        assertEquals(-1, tokens.get(1).getNameId());
+        assertEquals("valor", lexer.getNamePool().name(tokens.get(2).getNameId()));
+    }
+
+    @Test
+    void deveUsarPerfilCSharpPorPadrao() {
+        Lexer lexer = new Lexer("namespace x += null ++");
+        List<Token> tokens = lexer.generateTokens();
+        
+        assertEquals(6, tokens.size());
+        assertEquals(TipoToken.KEYWORD, tokens.get(0).getType());
+        assertEquals(TipoToken.IDENTIFIER, tokens.get(1).getType());
+        assertEquals(TipoToken.OP_ASSIGNMENT, tokens.get(2).getType());
+        assertEquals("+=", tokens.get(2).getLexeme());
+        assertEquals(TipoToken.KEYWORD, tokens.get(3).getType());
+        assertEquals(TipoToken.OP_ARITHMETIC, tokens.get(4).getType());
+        assertEquals("++", tokens.get(4).getLexeme());
+    }
+
+    @Test
+    void deveRespeitarPerfilDeExpressoes() {
+        Lexer lexer = new Lexer("if (a < b)", LanguageProfile.EXPRESSION);
+        List<Token> tokens = lexer.generateTokens();
+        
+        assertEquals(TipoToken.IDENTIFIER, tokens.get(0).getType());
+        assertEquals(TipoToken.LPAREN, tokens.get(1).getType());
+        assertEquals(TipoToken.ERROR, tokens.get(3).getType());
+        assertEquals("<", tokens.get(3).getLexeme());
+    }
+
+    @Test
+    void deveReconhecerOperadoresDoCSharp() {
+        Lexer lexer = new Lexer("a & b | c ^ ~d << 2 >> 1 ?? e ? f : g; x => x; m <<= 1 ??= n");
+        List<Token> tokens = lexer.generateTokens();
+        
+        assertEquals(Operador.E_BIT, tokens.get(1).getOperator());
+        assertEquals(Operador.OU_BIT, tokens.get(3).getOperator());
+        assertEquals(Operador.OU_EXCLUSIVO, tokens.get(5).getOperator());
+        assertEquals(Operador.COMPLEMENTO, tokens.get(6).getOperator());
+        assertEquals(Operador.DESLOCAMENTO_ESQUERDA, tokens.get(8).getOperator());
+        assertEquals(Operador.DESLOCAMENTO_DIREITA, tokens.get(10).getOperator());
+        assertEquals(Operador.COALESCENCIA, tokens.get(12).getOperator());
+        assertEquals(TipoToken.QUESTION, tokens.get(14).getType());
+        assertEquals(TipoToken.COLON, tokens.get(16).getType());
+        assertEquals(TipoToken.ARROW, tokens.get(20).getType());
+        assertEquals(Operador.DESLOCAMENTO_ESQUERDA_ATRIBUICAO, tokens.get(24).getOperator());
+        assertEquals(Operador.COALESCENCIA_ATRIBUICAO, tokens.get(26).getOperator());
+        for (Token token : tokens) {
+            assertNotEquals(TipoToken.ERROR, token.getType());
+        }
+    }
+
+    @Test
+    void deveAceitarPerfilPersonalizado() {
+        LanguageProfile perfil = new LanguageProfile("Mini",
+            Map.of("se", TipoToken.KEYWORD, "verdadeiro", TipoToken.BOOLEAN),
+            Map.of("<-", TipoToken.OP_ASSIGNMENT, "<", TipoToken.OP_RELATIONAL, "(", TipoToken.LPAREN));
+        List<Token> tokens = new Lexer("se x <- verdadeiro < (", perfil).generateTokens();
+        
+        assertEquals(TipoToken.KEYWORD, tokens.get(0).getType());
+        assertEquals(TipoToken.IDENTIFIER, tokens.get(1).getType());
+        assertEquals(TipoToken.OP_ASSIGNMENT, tokens.get(2).getType());
+        assertEquals("<-", tokens.get(2).getLexeme());
+        assertEquals(TipoToken.BOOLEAN, tokens.get(3).getType());
+        assertEquals(TipoToken.OP_RELATIONAL, tokens.get(4).getType());
+        assertEquals(TipoToken.LPAREN, tokens.get(5).getType());
+    }
+
+    @Test
+    void deveGerarMesmosTokensEmParalelo() {
+        StringBuilder entrada = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            entrada.append("valor").append(i % 7).append(" = ").append(i).append(" * taxa;\n");
+            if (i % 11 == 0) {
+                entrada.append("/* comentario\n que atravessa\n linhas */ x");
+            }
+            if (i % 13 == 0) {
+                entrada.append("texto = \"linha\nquebrada\"; // fim\n");
+            }
+        }
+        String texto = entrada.toString();
+        
+        List<Token> esperados = new Lexer(texto).generateTokens();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int tamanhoBloco : new int[] { 1, 17, 64, 1000 }) {
+                List<Token> obtidos = new ParallelLexer(texto, LanguageProfile.CSHARP, pool, tamanhoBloco)
+                    .generateTokens();
+                
+                assertEquals(esperados.size(), obtidos.size());
+                for (int i = 0; i < esperados.size(); i++) {
+                    assertEquals(esperados.get(i).toString(), obtidos.get(i).toString());
+                    assertEquals(esperados.get(i).getNameId(), obtidos.get(i).getNameId());
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void deveRelerApenasOTrechoEditado() {
+        StringBuilder entrada = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            entrada.append("valor").append(i).append(" = (preco + ").append(i).append(") * 2; // nota\n");
+        }
+        String texto = entrada.toString();
+        TokenBuffer anterior = new Lexer(texto).generateTokenBuffer();
+        
+        IncrementalLexer incremental = new IncrementalLexer();
+        int offset = texto.indexOf("preco", texto.length() / 2);
+        TokenBuffer novo = incremental.relex(anterior, offset, 5, "custo_total");
+        
+        assertMesmosTokens(new Lexer(texto.substring(0, offset) + "custo_total"
+            + texto.substring(offset + 5)).generateTokenBuffer(), novo);
+        assertTrue(incremental.getRelexedCount() < 10);
+    }
+
+    @Test
+    void deveGerarMesmosTokensAposEdicoesAleatorias() {
+        String[] trechos = { " ", "\n", "x", "12", "1.5e3", "/*", "*/", "//", "\"", "=", "<", "=", "+",
+                             "if", "(", ")", ";", "abc", "@" };
+        Random random = new Random(42);
+        String texto = "int total = 0; /* soma */\nfor (i = 1; i <= 10; i++) total += i; // fim\n";
+        TokenBuffer buffer = new Lexer(texto).generateTokenBuffer();
+        IncrementalLexer incremental = new IncrementalLexer();
+        
+        for (int n = 0; n < 500; n++) {
+            int offset = random.nextInt(texto.length() + 1);
+            int removidos = random.nextInt(Math.min(4, texto.length() - offset) + 1);
+            String inseridos = random.nextInt(3) == 0 ? "" : trechos[random.nextInt(trechos.length)];
+            
+            buffer = incremental.relex(buffer, offset, removidos, inseridos);
+            texto = texto.substring(0, offset) + inseridos + texto.substring(offset + removidos);
+            
+            assertEquals(texto, buffer.getSource().toString());
+            assertMesmosTokens(new Lexer(texto).generateTokenBuffer(), buffer);
+        }
+    }
+
+    private static void assertMesmosTokens(TokenBuffer esperados, TokenBuffer obtidos) {
+        assertEquals(esperados.size(), obtidos.size());
+        for (int i = 0; i < esperados.size(); i++) {
+            assertEquals(esperados.type(i), obtidos.type(i));
+            assertEquals(esperados.start(i), obtidos.start(i));
+            assertEquals(esperados.length(i), obtidos.length(i));
+            assertEquals(esperados.line(i), obtidos.line(i));
+            assertEquals(esperados.column(i), obtidos.column(i));
+            assertEquals(esperados.lexeme(i), obtidos.lexeme(i));
+        }
+    }
+
+    @Test
+    void deveResolverLinhaEColunaPeloLineMap() {
+        String texto = "ab\ncde\n\nf";
+        LineMap linhas = LineMap.of(texto);
+        
+        assertEquals(4, linhas.lineCount());
+        assertEquals(1, linhas.line(0));
+        assertEquals(2, linhas.column(1));
+        assertEquals(1, linhas.line(2)); // a quebra pertence à linha que ela encerra
+        assertEquals(2, linhas.line(3));
+        assertEquals(3, linhas.column(5));
+        assertEquals(3, linhas.line(7));
+        assertEquals(4, linhas.line(8));
+        assertEquals(8, linhas.lineStart(4));
+        
+        LineMap editado = linhas.edit(1, 4, "x\ny\nz");
+        String novo = texto.substring(0, 1) + "x\ny\nz" + texto.substring(5);
+        LineMap esperado = LineMap.of(novo);
+        assertEquals(esperado.lineCount(), editado.lineCount());
+        for (int i = 0; i < novo.length(); i++) {
+            assertEquals(esperado.line(i), editado.line(i));
+            assertEquals(esperado.column(i), editado.column(i));
+        }
+    }
+
+    @Test
+    void deveResolverLinhasSobDemandaGuardandoSoAJanela() {
+        StringBuilder entrada = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            entrada.append("x").append(i).append(" = ").append(i).append(" * y\n");
+        }
+        String texto = entrada.toString();
+        
+        TokenBuffer esperados = new Lexer(texto).generateTokenBuffer();
+        Lexer lexer = new Lexer(new StringReader(texto), 16);
+        TokenSource obtidos = lexer.tokenSource();
+        
+        assertNull(obtidos.lineMap());
+        for (int i = 0; i < esperados.size(); i++) {
+            assertEquals(esperados.type(i), obtidos.type(0));
+            assertEquals(esperados.line(i), obtidos.line(0));
+            assertEquals(esperados.column(i), obtidos.column(0));
+            obtidos.advance();
+        }
+        assertEquals(2001, lexer.getLineMap().lineCount());
+        
+        // nextToken() também resolve a posição antes de a janela avançar
+        List<Token> lidos = new Lexer(new StringReader(texto), 16).generateTokens();
+        assertEquals(esperados.size(), lidos.size());
+        for (int i = 0; i < esperados.size(); i++) {
+            assertEquals(esperados.line(i), lidos.get(i).getLine());
+            assertEquals(esperados.column(i), lidos.get(i).getColumn());
+        }
+    }
+
+    @Test
+    void deveDecodificarLiteraisNumericos() {
+        List<Token> tokens = new Lexer("42 2.5 1e5 15e-1 3.14159265358979323846 "
+            + "9223372036854775807 9223372036854775808 1e400").generateTokens();
+        
+        assertEquals(TipoLiteral.INTEIRO, tokens.get(0).getLiteral());
+        assertEquals(42L, tokens.get(0).getLongValue());
+        assertEquals(TipoLiteral.DECIMAL, tokens.get(1).getLiteral());
+        assertEquals(2.5, tokens.get(1).getDoubleValue());
+        assertEquals(TipoLiteral.DECIMAL, tokens.get(2).getLiteral());
+        assertEquals(100000.0, tokens.get(2).getDoubleValue());
+        assertEquals(1.5, tokens.get(3).getDoubleValue());
+        assertEquals(3.14159265358979323846, tokens.get(4).getDoubleValue());
+        assertEquals(Long.MAX_VALUE, tokens.get(5).getLongValue());
+        assertEquals(TipoToken.ERROR, tokens.get(6).getType());
+        assertTrue(tokens.get(6).getLexeme().contains("fora do intervalo"));
+        assertEquals(TipoToken.ERROR, tokens.get(7).getType());
+        assertNull(tokens.get(8).getLiteral());
+        
+        TokenBuffer buffer = new Lexer("7 0.25").generateTokenBuffer();
+        assertEquals(TipoLiteral.INTEIRO, buffer.literal(0));
+        assertEquals(7L, buffer.longValue(0));
+        assertEquals(0.25, buffer.doubleValue(1));
+        assertEquals(TipoLiteral.DECIMAL, new Token(TipoToken.NUMBER, "3e2", 1, 1).getLiteral());
+    }
+
+    @Test
+    void deveGuardarLexemaDeNumeroLidoDeReader() {
+        TokenBuffer buffer = new Lexer(new StringReader("x = 12 + 0.5;")).generateTokenBuffer();
+        
+        assertEquals("12", buffer.lexeme(2));
+        assertEquals(12L, buffer.longValue(2));
+        assertEquals("0.5", buffer.lexeme(4));
+        assertEquals(0.5, buffer.doubleValue(4));
+        assertEquals("12", buffer.asList().get(2).getLexeme());
+        assertTrue(buffer.token(4).toString().contains("'0.5'"));
+        assertTrue(TokenWriter.encode(buffer).length > 0);
+    }
+
+    @Test
+    void deveLerTokensGravadosEmFormatoBinario(@TempDir Path dir) throws IOException {
+        String entrada = "preco = 10 * taxa\n"
+                       + "nome = \"a\\tb\" // comentário\n"
+                       + "total >= preco && 2.5 != 1e3 ação";
+        Lexer lexer = new Lexer(entrada);
+        TokenBuffer buffer = lexer.generateTokenBuffer();
+        Path arquivo = dir.resolve("tokens.bin");
+        TokenWriter.write(buffer, arquivo);
+        
+        TokenReader leitor = TokenReader.open(arquivo);
+        assertEquals(buffer.size(), leitor.size());
+        TokenBuffer lido = leitor.toTokenBuffer();
+        TokenSource cursor = leitor.tokenSource();
+        TokenSource esperado = buffer.cursor();
+        for (int i = 0; i < buffer.size(); i++) {
+            assertEquals(buffer.token(i).toString(), lido.token(i).toString());
+            assertEquals(buffer.literal(i), lido.literal(i));
+            assertEquals(buffer.doubleValue(i), lido.doubleValue(i));
+            assertEquals(buffer.operator(i), lido.operator(i));
+            assertEquals(esperado.type(1), cursor.type(1));
+            assertEquals(esperado.lexeme(0), cursor.lexeme(0));
+            assertEquals(esperado.offset(0), cursor.offset(0));
+            assertEquals(esperado.line(0), cursor.line(0));
+            assertEquals(esperado.column(0), cursor.column(0));
+            assertEquals(esperado.operator(0), cursor.operator(0));
+            assertEquals(esperado.longValue(0), cursor.longValue(0));
+            assertEquals(buffer.nameId(i) >= 0, cursor.nameId(0) >= 0);
+            esperado.advance();
+            cursor.advance();
+        }
+        assertEquals(TipoToken.EOF, cursor.type(0));
+        assertEquals(leitor.getNamePool().find("preco"), lido.nameId(0));
+        
+        // Tokens sem posição no fonte guardam linha e coluna
+        TokenBuffer avulsos = TokenBuffer.of(List.of(
+            new Token(TipoToken.IDENTIFIER, "a", 3, 7),
+            new Token(TipoToken.OP_ARITHMETIC, "+", 2, 1),
+            new Token(TipoToken.EOF, "$", 2, 4)));
+        TokenBuffer relido = new TokenReader(ByteBuffer.wrap(TokenWriter.encode(avulsos)), null).toTokenBuffer();
+        assertEquals(avulsos.asList().toString(), relido.asList().toString());
+        assertEquals(Operador.SOMA, relido.operator(1));
+    }
+}
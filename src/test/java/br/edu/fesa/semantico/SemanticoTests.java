@@ -1,8 +1,14 @@
 package br.edu.fesa.semantico;
 
+import br.edu.fesa.lexico.Lexer;
+import br.edu.fesa.lexico.NamePool;
+import br.edu.fesa.lexico.TokenBuffer;
 import br.edu.fesa.lexico.TipoToken;
 import br.edu.fesa.lexico.Token;
+import br.edu.fesa.semantico.Semantico.TipoDado;
 import br.edu.fesa.sintatico.ArvoreSintatica;
+import br.edu.fesa.sintatico.AstArena;
+import br.edu.fesa.sintatico.Parser;
 import br.edu.fesa.sintatico.TipoNo;
 import java.util.List;
 import static org.junit.jupiter.api.Assertions.*;
@@ -190,4 +196,98 @@ public class SemanticoTests {
         assertFalse(resultado.isSucesso());
         assertTrue(resultado.getErros().get(0).getMensagem().contains("deve ser um identificador"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void deveResolverEscoposPorIdDeNome() {
+        NamePool nomes = new NamePool();
+        TabelaDeSimbolos tabela = new TabelaDeSimbolos(nomes);
+        int x = nomes.intern("x");
+        
+        tabela.declarar(x, TipoDado.INTEIRO, 1, 1);
+        tabela.entrarEscopo();
+        tabela.declarar("x", TipoDado.DECIMAL, 2, 1);
+        assertEquals(TipoDado.DECIMAL, tabela.buscar(x).getTipo());
+        assertThrows(RuntimeException.class, () -> tabela.declarar(x, TipoDado.STRING, 3, 1));
+        
+        tabela.sairEscopo();
+        assertEquals(TipoDado.INTEIRO, tabela.buscar("x").getTipo());
+        assertNull(tabela.buscar("y"));
+    }
+
+    @Test
+    void deveTiparNotacaoCientificaComoDecimal() {
+        Lexer lexer = new Lexer("1e5 * 2");
+        TokenBuffer tokens = lexer.generateTokenBuffer();
+        ArvoreSintatica arvore = new Parser(tokens).parse().getArvoreSintatica();
+        
+        assertEquals(100000.0, arvore.getEsquerda().getValorDecimal());
+        new Semantico(arvore, tokens.asList(), lexer.getNamePool()).analisar();
+        assertEquals(TipoDado.DECIMAL, arvore.getTipoInferido());
+    }
+
+    @Test
+    void deveTiparOperadoresRelacionaisELogicos() {
+        Lexer lexer = new Lexer("1 < 2.5 && !(7 % 2 == 1)");
+        TokenBuffer tokens = lexer.generateTokenBuffer();
+        ArvoreSintatica arvore = new Parser(tokens).parse().getArvoreSintatica();
+        
+        ResultadoAnalise resultado = new Semantico(arvore, tokens.asList(), lexer.getNamePool()).analisar();
+        assertTrue(resultado.isSucesso());
+        assertEquals(TipoDado.BOOLEANO, arvore.getTipoInferido());
+        assertEquals(TipoDado.INTEIRO, arvore.getDireita().getEsquerda().getEsquerda().getTipoInferido());
+    }
+
+    @Test
+    void deveAnalisarDiretoNaArena() {
+        Lexer lexer = new Lexer("sqrt(x) + 1");
+        TokenBuffer tokens = lexer.generateTokenBuffer();
+        AstArena arena = new Parser(tokens).parse().getArena();
+        
+        ResultadoAnalise resultado = new Semantico(arena, tokens.asList(), lexer.getNamePool()).analisar();
+        assertFalse(resultado.isSucesso());
+        assertEquals("VAR_NAO_DECLARADA", resultado.getErros().get(0).getCodigo());
+        assertEquals(6, resultado.getErros().get(0).getColuna());
+        assertEquals(TipoDado.DECIMAL, arena.inferredType(arena.root()));
+    }
+
+    @Test
+    void deveReportarNumeroForaDoIntervalo() {
+        ArvoreSintatica arvore = new ArvoreSintatica("99999999999999999999", TipoNo.NUMERO, 1, 1);
+        
+        ResultadoAnalise resultado = new Semantico(arvore, List.of()).analisar();
+        assertFalse(resultado.isSucesso());
+        assertEquals("NUMERO_INVALIDO", resultado.getErros().get(0).getCodigo());
+    }
+
+    @Test
+    void deveAnalisarTodasAsInstrucoesDoPrograma() {
+        Lexer lexer = new Lexer("x = 1; x = x + 2; y = x > 2; z");
+        TokenBuffer tokens = lexer.generateTokenBuffer();
+        AstArena arena = new Parser(tokens).parseProgram().getArena();
+        
+        ResultadoAnalise resultado = new Semantico(arena, tokens.asList(), lexer.getNamePool()).analisar();
+        assertFalse(resultado.isSucesso());
+        assertEquals(1, resultado.getErros().size());
+        assertEquals("VAR_NAO_DECLARADA", resultado.getErros().get(0).getCodigo());
+        assertEquals(30, resultado.getErros().get(0).getColuna());
+        int terceira = arena.nextSibling(arena.nextSibling(arena.firstChild(arena.root())));
+        assertEquals(TipoDado.BOOLEANO, arena.inferredType(arena.right(terceira)));
+    }
+
+    @Test
+    void deveReaproveitarAnaliseDeSubexpressoesCompartilhadas() {
+        Lexer lexer = new Lexer("sqrt(q) + sqrt(q)");
+        TokenBuffer tokens = lexer.generateTokenBuffer();
+        AstArena arena = new Parser(tokens).shareSubtrees().parse().getArena();
+        int raiz = arena.root();
+        assertEquals(arena.left(raiz), arena.right(raiz));
+        
+        // Com erro, cada ocorrência é reportada na sua própria posição
+        ResultadoAnalise resultado = new Semantico(arena, tokens.asList(), lexer.getNamePool()).analisar();
+        assertEquals(2, resultado.getErros().size());
+        assertEquals("VAR_NAO_DECLARADA", resultado.getErros().get(0).getCodigo());
+        assertEquals(6, resultado.getErros().get(0).getColuna());
+        assertEquals(16, resultado.getErros().get(1).getColuna());
+        assertEquals(TipoDado.DECIMAL, arena.inferredType(raiz));
+    }
+}
@@ -1,10 +1,26 @@
 package br.edu.fesa.sintatico;
 
+import br.edu.fesa.lexico.IncrementalLexer;
+import br.edu.fesa.lexico.Lexer;
+import br.edu.fesa.lexico.LineMap;
+import br.edu.fesa.lexico.Operador;
 import br.edu.fesa.lexico.TipoToken;
 import br.edu.fesa.lexico.Token;
+import br.edu.fesa.lexico.TokenBuffer;
+import br.edu.fesa.lexico.TokenReader;
+import br.edu.fesa.lexico.TokenWriter;
+import br.edu.fesa.semantico.ResultadoAnalise;
+import br.edu.fesa.semantico.Semantico;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
 import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 public class ParserTests {
     
@@ -178,4 +194,443 @@ public class ParserTests {
         RetornoParser resultado = new Parser(tokens).parse();
         assertFalse(resultado.isSuccess());
     }
-}
\ No newline at end of file
+
+    @Test
+    void deveAnalisarDiretoDoTokenBuffer() {
+        RetornoParser resultado = new Parser(new Lexer("a * (b + c) / 2").generateTokenBuffer()).parse();
+        
+        assertTrue(resultado.isSuccess());
+        assertEquals("/", resultado.getArvoreSintatica().getValor());
+        assertEquals("*", resultado.getArvoreSintatica().getEsquerda().getValor());
+        assertEquals(10, resultado.getTokens().size());
+    }
+
+    @Test
+    void deveRespeitarPrecedenciaDaTabelaDeOperadores() {
+        RetornoParser resultado = new Parser(new Lexer("a || b && c == d < e + f % -g - h").generateTokens()).parse();
+        
+        assertTrue(resultado.isSuccess());
+        ArvoreSintatica ou = resultado.getArvoreSintatica();
+        assertEquals("||", ou.getValor());
+        ArvoreSintatica e = ou.getDireita();
+        assertEquals("&&", e.getValor());
+        ArvoreSintatica igual = e.getDireita();
+        assertEquals("==", igual.getValor());
+        ArvoreSintatica menor = igual.getDireita();
+        assertEquals("<", menor.getValor());
+        ArvoreSintatica subtracao = menor.getDireita();
+        assertEquals("-", subtracao.getValor());
+        assertEquals("h", subtracao.getDireita().getValor());
+        ArvoreSintatica soma = subtracao.getEsquerda();
+        assertEquals("+", soma.getValor());
+        ArvoreSintatica resto = soma.getDireita();
+        assertEquals("%", resto.getValor());
+        assertEquals("-", resto.getDireita().getValor());
+        assertEquals("g", resto.getDireita().getEsquerda().getValor());
+        assertNull(resto.getDireita().getDireita());
+    }
+
+    @Test
+    void deveGerarMesmaArvoreNaAnaliseIterativa() {
+        String[] entradas = {
+            "a + b * c - d / e % 2",
+            "a || b && c == d < e + f % -g - h",
+            "f(g(x) + (y)) * -(z - 1) / !w",
+            "((a))",
+            "a + * b",
+            "(a + b",
+            "a b"
+        };
+        for (String entrada : entradas) {
+            RetornoParser esperado = new Parser(new Lexer(entrada).generateTokens()).parse();
+            RetornoParser obtido = new Parser(new Lexer(entrada).generateTokens()).parseIterative();
+            
+            assertEquals(esperado.isSuccess(), obtido.isSuccess(), entrada);
+            assertEquals(esperado.getErrorMessage(), obtido.getErrorMessage(), entrada);
+            assertEquals(String.valueOf(esperado.getArvoreSintatica()),
+                         String.valueOf(obtido.getArvoreSintatica()), entrada);
+        }
+    }
+
+    @Test
+    void deveAnalisarAninhamentoProfundoSemEstourarAPilha() {
+        int profundidade = 200_000;
+        String entrada = "sqrt(".repeat(profundidade) + "-x" + ")".repeat(profundidade);
+        
+        Lexer lexer = new Lexer(entrada);
+        TokenBuffer tokens = lexer.generateTokenBuffer();
+        RetornoParser resultado = new Parser(tokens).parseIterative();
+        assertTrue(resultado.isSuccess());
+        ArvoreSintatica no = resultado.getArvoreSintatica();
+        for (int i = 0; i < profundidade; i++) {
+            assertEquals(TipoNo.CHAMADA_FUNCAO, no.getTipo());
+            no = no.getEsquerda();
+        }
+        assertEquals("-", no.getValor());
+        assertEquals("x", no.getEsquerda().getValor());
+        
+        // A análise semântica também percorre a arena sem recursão
+        AstArena arena = resultado.getArena();
+        ResultadoAnalise analise = new Semantico(arena, tokens.asList(), lexer.getNamePool()).analisar();
+        assertEquals(2, analise.getErros().size());
+        assertEquals("VAR_NAO_DECLARADA", analise.getErros().get(0).getCodigo());
+        assertEquals(entrada.indexOf('x') + 1, analise.getErros().get(0).getColuna());
+        assertEquals("TIPO_OPERANDO", analise.getErros().get(1).getCodigo());
+        assertEquals(Semantico.TipoDado.DECIMAL, arena.inferredType(arena.root()));
+        
+        RetornoParser limitado = new Parser(new Lexer(entrada).generateTokenBuffer()).parseIterative(1000);
+        assertFalse(limitado.isSuccess());
+        assertTrue(limitado.getErrorMessage().contains("Profundidade maxima"));
+    }
+
+    @Test
+    void deveEmitirArvoreNaArena() {
+        RetornoParser resultado = new Parser(new Lexer("soma(a) * a + 2.5").generateTokenBuffer()).parse();
+        AstArena arena = resultado.getArena();
+        
+        assertEquals(6, arena.size());
+        int raiz = arena.root();
+        assertEquals(TipoNo.OPERADOR, arena.type(raiz));
+        assertEquals(Operador.SOMA, arena.operator(raiz));
+        int produto = arena.left(raiz);
+        int chamada = arena.left(produto);
+        assertEquals(TipoNo.CHAMADA_FUNCAO, arena.type(chamada));
+        assertEquals(arena.valueIndex(arena.left(chamada)), arena.valueIndex(arena.right(produto)));
+        assertEquals(2.5, arena.doubleValue(arena.right(raiz)));
+        assertEquals(1, arena.line(chamada));
+        assertEquals(1, arena.column(chamada));
+        
+        AstArena.Cursor cursor = arena.cursor(raiz);
+        cursor.toLeft();
+        cursor.toRight();
+        assertEquals("a", cursor.value());
+        assertTrue(cursor.toParent());
+        assertEquals(Operador.MULTIPLICACAO, cursor.operator());
+        
+        assertEquals(resultado.getArvoreSintatica().toString(),
+                     AstArena.of(resultado.getArvoreSintatica()).toArvore(0).toString());
+    }
+
+    @Test
+    void deveAnalisarConsumindoTokensSobDemanda() {
+        StringBuilder entrada = new StringBuilder("x0");
+        for (int i = 1; i < 5000; i++) {
+            entrada.append(i % 2 == 0 ? " + " : " * ").append("f(x").append(i).append(")");
+        }
+        String texto = entrada.toString();
+        
+        RetornoParser esperado = new Parser(new Lexer(texto).generateTokens()).parse();
+        RetornoParser obtido = new Parser(new Lexer(new StringReader(texto)).tokenSource()).parse();
+        
+        assertTrue(obtido.isSuccess());
+        assertNull(obtido.getTokens());
+        assertEquals(esperado.getArvoreSintatica().toString(), obtido.getArvoreSintatica().toString());
+    }
+
+    @Test
+    void deveReportarErroAoConsumirTokensSobDemanda() {
+        RetornoParser resultado = new Parser(new Lexer("a + * b").tokenSource()).parse();
+        
+        assertFalse(resultado.isSuccess());
+        assertTrue(resultado.getErrorMessage().contains("linha 1, coluna 5"));
+    }
+
+    @Test
+    void deveAnalisarProgramaComVariasInstrucoes() {
+        RetornoParser resultado = new Parser(new Lexer("x = 1;;\ny = x * 2;\nf(y)").generateTokens()).parseProgram();
+        
+        assertTrue(resultado.isSuccess());
+        ArvoreSintatica programa = resultado.getArvoreSintatica();
+        assertEquals(TipoNo.PROGRAM, programa.getTipo());
+        assertEquals(3, programa.getFilhos().size());
+        ArvoreSintatica segunda = programa.getFilhos().get(1);
+        assertEquals(TipoNo.ATRIBUICAO, segunda.getTipo());
+        assertEquals("y", segunda.getEsquerda().getValor());
+        assertEquals("*", segunda.getDireita().getValor());
+        assertEquals(2, segunda.getLinha());
+        assertEquals(TipoNo.CHAMADA_FUNCAO, programa.getFilhos().get(2).getTipo());
+        
+        RetornoParser iterativo = new Parser(new Lexer("x = 1;;\ny = x * 2;\nf(y)").generateTokens())
+                .parseProgramIterative(100);
+        assertEquals(programa.toString(), iterativo.getArvoreSintatica().toString());
+    }
+
+    @Test
+    void deveExigirSeparadorEntreInstrucoes() {
+        RetornoParser resultado = new Parser(new Lexer("x = 1\ny = 2").generateTokens()).parseProgram();
+        
+        assertFalse(resultado.isSuccess());
+        assertTrue(resultado.getErrorMessage().contains("linha 2, coluna 1"));
+    }
+
+    @Test
+    void deveReportarTodosOsErrosDoProgramaNumaUnicaAnalise() {
+        String entrada = "x = ;\ny = (a b) + 1;\nz = 2 + * 3;\nf(1";
+        RetornoParser resultado = new Parser(new Lexer(entrada).generateTokens()).parseProgram();
+        
+        assertFalse(resultado.isSuccess());
+        List<ErroSintatico> erros = resultado.getErros();
+        assertEquals(4, erros.size());
+        assertEquals(CodigoErro.EXPRESSAO_ESPERADA, erros.get(0).getCodigo());
+        assertEquals(1, erros.get(0).getLinha());
+        assertEquals(CodigoErro.TOKEN_ESPERADO, erros.get(1).getCodigo());
+        assertEquals(TipoToken.RPAREN, erros.get(1).getEsperado());
+        assertEquals("b", erros.get(1).getLexema());
+        assertEquals(2, erros.get(1).getLinha());
+        assertEquals(8, erros.get(1).getColuna());
+        assertEquals(CodigoErro.EXPRESSAO_ESPERADA, erros.get(2).getCodigo());
+        assertEquals(3, erros.get(2).getLinha());
+        assertEquals(TipoToken.EOF, erros.get(3).getEncontrado());
+        assertTrue(resultado.getErrorMessage().contains("linha 1, coluna 5"));
+        
+        // As instruções continuam na árvore; o trecho descartado vira nó ERRO
+        ArvoreSintatica programa = resultado.getArvoreSintatica();
+        assertEquals(4, programa.getFilhos().size());
+        assertEquals(TipoNo.ERRO, programa.getFilhos().get(0).getDireita().getTipo());
+        assertEquals("+", programa.getFilhos().get(1).getDireita().getValor());
+        assertEquals(TipoNo.ERRO, programa.getFilhos().get(2).getDireita().getDireita().getTipo());
+        
+        RetornoParser iterativo = new Parser(new Lexer(entrada).generateTokens()).parseProgramIterative(100);
+        assertEquals(erros.toString(), iterativo.getErros().toString());
+        assertEquals(programa.toString(), iterativo.getArvoreSintatica().toString());
+    }
+
+    @Test
+    void naoDeveGerarErrosEmCascataAoRecuperar() {
+        RetornoParser resultado = new Parser(new Lexer("a + ) b ); c").generateTokens()).parseProgram();
+        
+        assertEquals(1, resultado.getErros().size());
+        assertEquals(CodigoErro.EXPRESSAO_ESPERADA, resultado.getErros().get(0).getCodigo());
+        assertEquals("c", resultado.getArvoreSintatica().getFilhos().get(1).getValor());
+    }
+
+    @Test
+    void deveCompartilharSubexpressoesIguais() {
+        String entrada = "d = sqrt(a*a + b*b);\ne = 2 * sqrt(a*a + b*b);\nsqrt(a*a + b*b);\nsqrt(a*a + b*b)";
+        RetornoParser arvore = new Parser(new Lexer(entrada).generateTokenBuffer()).parseProgram();
+        RetornoParser compartilhada = new Parser(new Lexer(entrada).generateTokenBuffer())
+                .shareSubtrees().parseProgram();
+        
+        assertTrue(compartilhada.isSuccess());
+        assertEquals(arvore.getArvoreSintatica().toString(), compartilhada.getArvoreSintatica().toString());
+        
+        AstArena arena = compartilhada.getArena();
+        assertTrue(arena.isShared());
+        // programa, d, =, a, *, b, *, +, sqrt, e, =, 2, * e um nó próprio para
+        // cada uma das duas instruções que são só a chamada
+        assertEquals(15, arena.size());
+        int primeira = arena.firstChild(arena.root());
+        int segunda = arena.nextSibling(primeira);
+        int terceira = arena.nextSibling(segunda);
+        int chamada = arena.right(primeira);
+        assertEquals(chamada, arena.right(arena.right(segunda)));
+        assertNotEquals(chamada, terceira);
+        assertEquals(arena.left(chamada), arena.left(terceira));
+        assertNotEquals(terceira, arena.nextSibling(terceira));
+        // Os argumentos compartilhados ficam na posição de cada ocorrência
+        assertEquals(entrada.indexOf("+"), arena.leftOffset(chamada, arena.offset(chamada)));
+        assertEquals(entrada.lastIndexOf("+"),
+                arena.leftOffset(arena.nextSibling(terceira), arena.offset(arena.nextSibling(terceira))));
+        assertEquals(4, compartilhada.getArvoreSintatica().getFilhos().size());
+        
+        RetornoParser iterativa = new Parser(new Lexer(entrada).generateTokenBuffer())
+                .shareSubtrees().parseProgramIterative(100);
+        assertEquals(15, iterativa.getArena().size());
+    }
+
+    @Test
+    void deveGerarMesmaArvoreNoParserLL1() {
+        String[] entradas = {
+            "a + b * c - d / e % f",
+            "x = -a * !b;; y = f(x) <= 2 && x != 1.5 || (a);",
+            "((a))",
+            ""
+        };
+        for (String entrada : entradas) {
+            RetornoParser esperado = new Parser(new Lexer(entrada).generateTokens()).parseProgram();
+            RetornoParser obtido = new LL1Parser(new Lexer(entrada).generateTokenBuffer()).parse();
+            
+            assertTrue(obtido.isSuccess(), entrada);
+            assertEquals(esperado.getArvoreSintatica().toString(), obtido.getArvoreSintatica().toString(), entrada);
+        }
+    }
+
+    @Test
+    void deveReportarErroNoParserLL1() {
+        RetornoParser resultado = new LL1Parser(new Lexer("a + * b").generateTokens()).parse();
+        
+        assertFalse(resultado.isSuccess());
+        ErroSintatico erro = resultado.getErros().get(0);
+        assertEquals(CodigoErro.TOKEN_INESPERADO, erro.getCodigo());
+        assertEquals(5, erro.getColuna());
+        assertTrue(erro.getMensagem().contains("IDENTIFIER"));
+        
+        resultado = new LL1Parser(new Lexer("f(a b)").generateTokens()).parse();
+        assertEquals(TipoToken.RPAREN, resultado.getErros().get(0).getEsperado());
+    }
+
+    @Test
+    void deveCalcularFirstEFollowDaGramatica() {
+        Gramatica gramatica = Gramatica.of(
+            "E  -> T E2\n" +
+            "E2 -> '+' T E2 | ε\n" +
+            "T  -> F T2\n" +
+            "T2 -> '*' F T2 | ε\n" +
+            "F  -> IDENTIFIER | LPAREN E RPAREN   // exemplo clássico\n");
+        
+        assertEquals(Set.of("IDENTIFIER", "LPAREN"), gramatica.first("E"));
+        assertEquals(Set.of("RPAREN", "EOF"), gramatica.follow("E"));
+        assertEquals(Set.of("'+'", "RPAREN", "EOF"), gramatica.follow("T"));
+        assertEquals(Set.of("'+'", "'*'", "RPAREN", "EOF"), gramatica.follow("F"));
+        assertEquals(Set.of("IDENTIFIER", "NUMBER", "LPAREN", "'-'", "'!'"), Gramatica.padrao().first("Ou"));
+        
+        assertThrows(IllegalArgumentException.class, () -> Gramatica.of("E -> E '+' IDENTIFIER | IDENTIFIER"));
+    }
+
+    @Test
+    void deveReanalisarApenasAsInstrucoesAfetadas() {
+        StringBuilder entrada = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            entrada.append("v").append(i).append(" = (preco + ").append(i).append(") * f(v").append(i).append(");\n");
+        }
+        String texto = entrada.toString();
+        TokenBuffer antigos = new Lexer(texto).generateTokenBuffer();
+        RetornoParser anterior = new Parser(antigos).parseProgram();
+        AstArena arena = anterior.getArena();
+        int ultima = arena.firstChild(arena.root());
+        while (arena.nextSibling(ultima) != AstArena.NENHUM) {
+            ultima = arena.nextSibling(ultima);
+        }
+        int tamanho = arena.size();
+        
+        IncrementalLexer incremental = new IncrementalLexer();
+        int offset = texto.indexOf("preco", texto.length() / 2);
+        TokenBuffer novos = incremental.relex(antigos, offset, 5, "\n(custo - 1)");
+        RetornoParser novo = new Parser(novos).reparse(anterior, antigos, incremental.changedStart(),
+                incremental.changedEndOld(), incremental.changedEndNew());
+        
+        String editado = texto.substring(0, offset) + "\n(custo - 1)" + texto.substring(offset + 5);
+        RetornoParser completo = new Parser(new Lexer(editado).generateTokenBuffer()).parseProgram();
+        assertEquals(descrever(completo.getArena(), completo.getArena().root()),
+                     descrever(novo.getArena(), novo.getArena().root()));
+        
+        // Só a instrução editada (e o novo nó do programa) foram criados
+        assertSame(arena, novo.getArena());
+        assertTrue(arena.size() - tamanho < 20);
+        // A última instrução é o mesmo nó, agora uma linha abaixo
+        assertEquals(101, arena.line(arena.left(ultima)));
+        assertEquals(1, arena.column(arena.left(ultima)));
+    }
+
+    @Test
+    void deveReanalisarComoAAnaliseCompletaAposEdicoesAleatorias() {
+        String[] trechos = { " ", "\n", "x", "12", ";", "=", "+", "*", "(", ")", "f(", "a = 1;", "!" };
+        Random random = new Random(7);
+        String texto = "a = 1;\nb = a + 2;\nc = f(b) * (a - 3);\n;d = !c || b;\n";
+        TokenBuffer buffer = new Lexer(texto).generateTokenBuffer();
+        RetornoParser resultado = new Parser(buffer).parseProgram();
+        IncrementalLexer incremental = new IncrementalLexer();
+        
+        for (int n = 0; n < 300; n++) {
+            int offset = random.nextInt(texto.length() + 1);
+            int removidos = random.nextInt(Math.min(4, texto.length() - offset) + 1);
+            String inseridos = random.nextInt(3) == 0 ? "" : trechos[random.nextInt(trechos.length)];
+            
+            TokenBuffer novos = incremental.relex(buffer, offset, removidos, inseridos);
+            resultado = new Parser(novos).reparse(resultado, buffer, incremental.changedStart(),
+                    incremental.changedEndOld(), incremental.changedEndNew());
+            buffer = novos;
+            texto = texto.substring(0, offset) + inseridos + texto.substring(offset + removidos);
+            
+            RetornoParser completo = new Parser(new Lexer(texto).generateTokenBuffer()).parseProgram();
+            assertEquals(descrever(completo.getArena(), completo.getArena().root()),
+                         descrever(resultado.getArena(), resultado.getArena().root()), texto);
+            assertEquals(completo.getErros().toString(), resultado.getErros().toString(), texto);
+            // Nós de instruções trocadas não se acumulam: a arena é compactada
+            assertTrue(resultado.getArena().size() <= 2 * completo.getArena().size() + 1, texto);
+        }
+    }
+
+    @Test
+    void deveLerArvoreGravadaEmFormatoBinario(@TempDir Path dir) throws IOException {
+        String entrada = "x = 1.5 * (y + 2);\ny = sqrt(x) - -x; x >= y";
+        Lexer lexer = new Lexer(entrada);
+        TokenBuffer buffer = lexer.generateTokenBuffer();
+        RetornoParser retorno = new Parser(buffer).shareSubtrees().parseProgram();
+        assertTrue(retorno.isSuccess());
+        AstArena arena = retorno.getArena();
+        Path arvore = dir.resolve("arvore.bin");
+        AstWriter.write(arena, arvore);
+        
+        AstReader leitor = AstReader.open(arvore);
+        AstArena lida = leitor.toArena(lexer.getNamePool());
+        assertEquals(descrever(arena, arena.root()), descrever(lida, lida.root()));
+        assertEquals(arena.toArvore(arena.root()).toString(), leitor.toArvore().toString());
+        int alvo = lida.left(lida.firstChild(lida.root()));
+        assertEquals(lexer.getNamePool().find("x"), lida.nameId(alvo));
+        
+        // O cursor só decodifica os nós visitados
+        AstReader.Cursor cursor = leitor.cursor();
+        assertEquals(TipoNo.PROGRAM, cursor.type());
+        cursor.toFirstChild();
+        cursor.toNextSibling();
+        assertEquals(TipoNo.ATRIBUICAO, cursor.type());
+        cursor.toRight();
+        assertEquals(Operador.SUBTRACAO, cursor.operator());
+        cursor.toRight();
+        cursor.toLeft();
+        assertEquals("x", cursor.value());
+        assertEquals(2, cursor.line());
+        assertEquals(16, cursor.column());
+        assertFalse(cursor.hasNextSibling());
+        assertTrue(cursor.toParent());
+        assertTrue(cursor.toParent());
+        cursor.toLeft();
+        assertEquals("sqrt", cursor.value());
+        assertTrue(cursor.toParent());
+        assertTrue(cursor.toParent());
+        assertTrue(cursor.hasNextSibling());
+        cursor.toNextSibling();
+        assertEquals(Operador.MAIOR_IGUAL, cursor.operator());
+        assertFalse(cursor.hasNextSibling());
+        assertTrue(cursor.toParent());
+        assertFalse(cursor.toParent());
+        
+        // Tokens gravados alimentam o Parser sem o fonte
+        Path tokens = dir.resolve("tokens.bin");
+        TokenWriter.write(buffer, tokens);
+        AstArena direta = new Parser(buffer).parseProgram().getArena();
+        AstArena reanalisada = new Parser(TokenReader.open(tokens).tokenSource()).parseProgram().getArena();
+        assertEquals(descrever(direta, direta.root()), descrever(reanalisada, reanalisada.root()));
+        
+        // Árvores de objetos guardam linha e coluna explícitas
+        ArvoreSintatica raiz = new Parser(lexer.generateTokens()).parseProgram().getArvoreSintatica();
+        AstReader explicita = new AstReader(ByteBuffer.wrap(AstWriter.encode(AstArena.of(raiz))));
+        assertNull(explicita.getLineMap());
+        assertEquals(raiz.toString(), explicita.toArvore().toString());
+    }
+
+    // Pré-ordem com tipo, valor e posição de cada nó
+    private static String descrever(AstArena arena, int no) {
+        return descrever(arena, no, no != AstArena.NENHUM ? arena.offset(no) : -1);
+    }
+
+    // Posição da ocorrência, não a do nó: um nó compartilhado aparece em cada
+    // lugar com a sua
+    private static String descrever(AstArena arena, int no, int posicao) {
+        if (no == AstArena.NENHUM) {
+            return "-";
+        }
+        LineMap linhas = arena.getLineMap();
+        StringBuilder texto = new StringBuilder()
+            .append(arena.type(no)).append(' ').append(arena.value(no))
+            .append('@').append(linhas != null ? linhas.line(posicao) : arena.line(no))
+            .append(':').append(linhas != null ? linhas.column(posicao) : arena.column(no))
+            .append(" (").append(descrever(arena, arena.left(no), arena.leftOffset(no, posicao)))
+            .append(", ").append(descrever(arena, arena.right(no), arena.rightOffset(no, posicao)));
+        for (int filho = arena.firstChild(no); filho != AstArena.NENHUM; filho = arena.nextSibling(filho)) {
+            texto.append("; ").append(descrever(arena, filho, arena.offset(filho)));
+        }
+        return texto.append(')').toString();
+    }
+}